@@ -0,0 +1,142 @@
+package pixel_tracer.benchmarks;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import pixel_tracer.Area;
+import pixel_tracer.CanvasStorage;
+import pixel_tracer.DenseCanvas;
+import pixel_tracer.MappedCanvas;
+import pixel_tracer.TiledCanvas;
+
+/**
+ * Opérations sur la grille d'une zone : effacement, redimensionnement et
+ * encodage de l'affichage.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AreaBenchmark {
+    @Param({ "80x40", "400x200", "1600x800" })
+    private String size;
+
+    // Caractère de remplissage : ASCII, ou hors ASCII pour l'encodage multi-octets
+    @Param({ "@", "\u2588" })
+    private String fill;
+
+    // Stockage de la grille : tableau unique, tuiles allouées à la demande ou
+    // fichier projeté en mémoire
+    @Param({ "dense", "sparse", "mapped" })
+    private String storage;
+
+    private Area area;
+    private Area unicodeArea;
+    private int width;
+    private int height;
+    private boolean grown;
+    private StringBuilder text;
+    private OutputStream sink;
+
+    private Path mappedFile;
+
+    @Setup
+    public void setUp() throws IOException {
+        int separator = size.indexOf('x');
+        width = Integer.parseInt(size.substring(0, separator));
+        height = Integer.parseInt(size.substring(separator + 1));
+
+        CanvasStorage grid;
+        if (storage.equals("sparse")) {
+            grid = new TiledCanvas(width, height, '.');
+        } else if (storage.equals("mapped")) {
+            mappedFile = Files.createTempFile("pixel-tracer", ".ptc");
+            grid = MappedCanvas.create(mappedFile, width, height, '.');
+        } else {
+            grid = new DenseCanvas(width, height, '.');
+        }
+        area = new Area(grid, 1, "Benchmark");
+        area.setFillChar(fill.charAt(0));
+        // Une cellule sur trois remplie, pour un contenu représentatif
+        for (int y = 0; y < height; y++) {
+            for (int x = y % 3; x < width; x += 3) {
+                area.setCell(x, y, area.getFillChar());
+            }
+        }
+        text = new StringBuilder();
+        sink = new DiscardingOutputStream();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        if (area.getGrid() instanceof MappedCanvas) {
+            ((MappedCanvas) area.getGrid()).close();
+            Files.deleteIfExists(mappedFile);
+        }
+    }
+
+    @Benchmark
+    public Area clearGrid() {
+        area.clearGrid();
+        return area;
+    }
+
+    /**
+     * Alterne entre la taille nominale et une taille légèrement supérieure.
+     */
+    @Benchmark
+    public Area resize() {
+        grown = !grown;
+        area.resize(grown ? width + 1 : width, grown ? height + 1 : height);
+        return area;
+    }
+
+    @Benchmark
+    public int encode() {
+        return area.getEncoder().encode(area);
+    }
+
+    @Benchmark
+    public OutputStream drawStream() throws IOException {
+        area.draw(sink);
+        return sink;
+    }
+
+    @Benchmark
+    public int drawAppendable() throws IOException {
+        text.setLength(0);
+        area.draw(text);
+        return text.length();
+    }
+
+    /**
+     * Flux de sortie qui ignore les octets écrits.
+     */
+    private static final class DiscardingOutputStream extends OutputStream {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package pixel_tracer.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import pixel_tracer.Area;
+import pixel_tracer.CommandProcessor;
+import pixel_tracer.Layer;
+import pixel_tracer.PixelTracerApp;
+
+/**
+ * Débit de {@link CommandProcessor#processCommand(String)}, par lots de
+ * commandes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommandBenchmark {
+    private static final int BATCH = 256;
+    private static final int LAYER_ID = 1_000_000;
+
+    private static final String[] SHAPES = {
+            "point 10 20",
+            "line 0 0 79 39",
+            "square 5 5 10",
+            "rectangle 2 3 40 12",
+            "circle 40 20 15",
+            "polygon 10 10 30 5 50 20 30 35 10 30",
+            "curve 0 0 20 40 60 0 79 39"
+    };
+
+    private static final String[] SETTINGS = {
+            "set char 35 border",
+            "set char 64 border",
+            "set render full",
+            "set render incremental",
+            "SET layer 1000000 visible",
+            "select layer 1000000"
+    };
+
+    private static final String[] ERRORS = {
+            "",
+            "unknown 1 2",
+            "point 10",
+            "polygon 1 2 3",
+            "line a b c d",
+            "select layer 999"
+    };
+
+    // Jeu de commandes : shapes (création de formes), settings ou errors
+    @Param({ "shapes", "settings", "errors" })
+    private String script;
+
+    private PixelTracerApp app;
+    private CommandProcessor processor;
+    private String[] commands;
+
+    @Setup
+    public void setUp() {
+        app = new PixelTracerApp();
+        processor = new CommandProcessor(app);
+        switch (script) {
+            case "shapes":
+                commands = SHAPES;
+                break;
+            case "settings":
+                commands = SETTINGS;
+                break;
+            default:
+                commands = ERRORS;
+                break;
+        }
+        resetLayer();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int processBatch() {
+        int status = 0;
+        for (int i = 0; i < BATCH; i++) {
+            status += processor.processCommand(commands[i % commands.length]);
+        }
+        // Les formes créées ne doivent pas s'accumuler d'un lot à l'autre
+        resetLayer();
+        return status;
+    }
+
+    private void resetLayer() {
+        Area area = app.getCurrentArea();
+        area.removeLayerById(LAYER_ID);
+        Layer layer = new Layer(LAYER_ID, "Benchmark");
+        area.addLayer(layer);
+        app.setCurrentLayer(layer);
+        area.clearDamage();
+    }
+}
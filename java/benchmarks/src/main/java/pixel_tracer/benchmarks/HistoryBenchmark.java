@@ -0,0 +1,57 @@
+package pixel_tracer.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import pixel_tracer.CommandProcessor;
+import pixel_tracer.PixelTracerApp;
+import pixel_tracer.Shape;
+
+/**
+ * Suppression d'une forme au milieu d'une couche, puis annulation et
+ * rétablissement : le coût doit dépendre de la forme, pas du nombre de formes
+ * de la couche.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HistoryBenchmark {
+    @Param({ "1000", "100000" })
+    private int shapeCount;
+
+    private PixelTracerApp app;
+    private CommandProcessor processor;
+    private String delete;
+
+    @Setup
+    public void setUp() {
+        app = new PixelTracerApp();
+        app.resizeCurrentArea(4000, 2000);
+        processor = new CommandProcessor(app);
+        Scenes.populate(app.getCurrentLayer(), "mixed", shapeCount, 4000, 2000);
+        Shape middle = app.getCurrentLayer().getShapes().get(shapeCount / 2);
+        delete = "delete shape " + middle.getId();
+    }
+
+    @Benchmark
+    public int deleteUndoRedoUndo() {
+        processor.processCommand(delete);
+        processor.processCommand("undo");
+        processor.processCommand("redo");
+        return processor.processCommand("undo");
+    }
+}
\ No newline at end of file
@@ -0,0 +1,108 @@
+package pixel_tracer.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import pixel_tracer.Area;
+import pixel_tracer.CommandProcessor;
+import pixel_tracer.Journal;
+import pixel_tracer.Layer;
+import pixel_tracer.PixelTracerApp;
+
+/**
+ * Débit de {@link CommandProcessor#processCommand(String)} avec et sans
+ * journal : l'écriture sur le disque se fait sur un autre fil, par lots.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JournalBenchmark {
+    private static final int BATCH = 256;
+    private static final int LAYER_ID = 1_000_000;
+
+    private static final String[] COMMANDS = {
+            "point 10 20",
+            "line 0 0 79 39",
+            "rectangle 2 3 40 12",
+            "circle 40 20 15",
+            "set layer invisible 1000000",
+            "set layer visible 1000000"
+    };
+
+    // Journal : off (aucun), on (seuil de compaction par défaut) ou compact
+    // (instantané tous les 64 Ko de commandes)
+    @Param({ "off", "on", "compact" })
+    private String journal;
+
+    private PixelTracerApp app;
+    private CommandProcessor processor;
+    private Journal log;
+    private Path directory;
+
+    @Setup
+    public void setUp() throws IOException {
+        app = new PixelTracerApp();
+        processor = new CommandProcessor(app);
+        if (!journal.equals("off")) {
+            directory = Files.createTempDirectory("pixel-tracer-journal");
+            log = Journal.open(app, processor, directory,
+                    journal.equals("compact") ? 1 << 16 : Journal.DEFAULT_COMPACTION_BYTES);
+            processor.setJournal(log);
+        }
+        resetLayer();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        if (log != null) {
+            log.close();
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+                for (Path file : files) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(directory);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int processBatch() {
+        int status = 0;
+        for (int i = 0; i < BATCH; i++) {
+            status += processor.processCommand(COMMANDS[i % COMMANDS.length]);
+        }
+        // Les formes créées ne doivent pas s'accumuler d'un lot à l'autre
+        resetLayer();
+        return status;
+    }
+
+    private void resetLayer() {
+        Area area = app.getCurrentArea();
+        area.removeLayerById(LAYER_ID);
+        Layer layer = new Layer(LAYER_ID, "Benchmark");
+        area.addLayer(layer);
+        app.setCurrentLayer(layer);
+        area.clearDamage();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,78 @@
+package pixel_tracer.benchmarks;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import pixel_tracer.PixelTracerApp;
+import pixel_tracer.ProjectFile;
+
+/**
+ * Enregistrement et chargement d'un projet au format binaire. L'écriture en
+ * mémoire seule est la pause du fil des commandes lorsque le journal prend un
+ * instantané.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProjectBenchmark {
+    @Param({ "10000", "100000" })
+    private int shapeCount;
+
+    private PixelTracerApp app;
+    private PixelTracerApp loaded;
+    private Path file;
+
+    @Setup
+    public void setUp() throws IOException {
+        app = new PixelTracerApp();
+        app.resizeCurrentArea(4000, 2000);
+        Scenes.populate(app.getCurrentLayer(), "mixed", shapeCount, 4000, 2000);
+        file = Files.createTempFile("pixel-tracer", ".ptp");
+        ProjectFile.save(app, file);
+        loaded = new PixelTracerApp();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public Path save() throws IOException {
+        ProjectFile.save(app, file);
+        return file;
+    }
+
+    @Benchmark
+    public ByteBuffer encode() throws IOException {
+        return ProjectFile.encode(app, file);
+    }
+
+    /**
+     * Charge le projet, index spatial des couches compris.
+     */
+    @Benchmark
+    public PixelTracerApp load() throws IOException {
+        ProjectFile.load(loaded, file);
+        return loaded;
+    }
+}
\ No newline at end of file
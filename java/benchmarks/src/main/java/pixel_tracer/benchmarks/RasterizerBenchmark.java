@@ -0,0 +1,190 @@
+package pixel_tracer.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import pixel_tracer.BoundingBox;
+import pixel_tracer.CircleShape;
+import pixel_tracer.CoverageMask;
+import pixel_tracer.CurveShape;
+import pixel_tracer.Point;
+import pixel_tracer.Rasterizer;
+import pixel_tracer.RectangleShape;
+import pixel_tracer.Shape;
+import pixel_tracer.Transform;
+
+/**
+ * Primitives de tracé seules, sur une forme dont l'étendue varie.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RasterizerBenchmark {
+    private static final int AREA_SIZE = 512;
+    private static final int POLYGON_VERTICES = 16;
+
+    // Étendue de la forme tracée, en cellules
+    @Param({ "8", "64", "256" })
+    private int extent;
+
+    // Demi-épaisseur des traits épais, en cellules
+    @Param({ "2" })
+    private double strokeRadius;
+
+    private CoverageMask mask;
+    private Rasterizer rasterizer;
+    private Point[] curve;
+    private CurveShape curveShape;
+    private Shape rotatedRectangle;
+    private Shape scaledCircle;
+    private List<Point> polygon;
+    private int center;
+
+    @Setup
+    public void setUp() {
+        mask = new CoverageMask(AREA_SIZE, AREA_SIZE);
+        rasterizer = new Rasterizer();
+        rasterizer.begin(mask, new BoundingBox(0, 0, AREA_SIZE - 1, AREA_SIZE - 1));
+        center = AREA_SIZE / 2;
+
+        curve = new Point[] {
+                new Point(center - extent / 2, center),
+                new Point(center - extent / 4, center - extent / 2),
+                new Point(center + extent / 4, center + extent / 2),
+                new Point(center + extent / 2, center) };
+        curveShape = new CurveShape(curve[0].getPosX(), curve[0].getPosY(), curve[1].getPosX(), curve[1].getPosY(),
+                curve[2].getPosX(), curve[2].getPosY(), curve[3].getPosX(), curve[3].getPosY());
+
+        rotatedRectangle = new RectangleShape(center - extent / 2, center - extent / 4, extent, extent / 2);
+        rotatedRectangle.transform(Transform.rotation(30, center, center));
+        scaledCircle = new CircleShape(center, center, extent / 4);
+        scaledCircle.transform(Transform.scaling(2, 1, center, center));
+
+        polygon = new ArrayList<>();
+        for (int i = 0; i < POLYGON_VERTICES; i++) {
+            double angle = 2 * Math.PI * i / POLYGON_VERTICES;
+            polygon.add(new Point(center + (int) (extent / 2 * Math.cos(angle)),
+                    center + (int) (extent / 2 * Math.sin(angle))));
+        }
+    }
+
+    @Benchmark
+    public CoverageMask renderLine() {
+        rasterizer.line(center - extent / 2, center - extent / 4, center + extent / 2, center + extent / 4);
+        return mask;
+    }
+
+    @Benchmark
+    public CoverageMask renderCircle() {
+        rasterizer.circle(center, center, extent / 2);
+        return mask;
+    }
+
+    @Benchmark
+    public CoverageMask renderCurve() {
+        rasterizer.curve(curve[0], curve[1], curve[2], curve[3]);
+        return mask;
+    }
+
+    // Courbe dont la ligne brisée est déjà en cache, comme lors d'un réaffichage
+    @Benchmark
+    public CoverageMask renderCachedCurve() {
+        rasterizer.drawShape(curveShape);
+        return mask;
+    }
+
+    @Benchmark
+    public int[] flattenCurve() {
+        return CurveShape.flatten(curve[0], curve[1], curve[2], curve[3]);
+    }
+
+    @Benchmark
+    public CoverageMask renderPolygon() {
+        rasterizer.polygon(polygon);
+        return mask;
+    }
+
+    @Benchmark
+    public CoverageMask fillCircle() {
+        rasterizer.fillCircle(center, center, extent / 2);
+        return mask;
+    }
+
+    @Benchmark
+    public CoverageMask fillPolygon() {
+        rasterizer.fillPolygon(polygon, Shape.FillRule.NON_ZERO);
+        return mask;
+    }
+
+    @Benchmark
+    public CoverageMask fillRectangle() {
+        rasterizer.fillRectangle(center - extent / 2, center - extent / 4, extent, extent / 2);
+        return mask;
+    }
+
+    @Benchmark
+    public CoverageMask renderRectangle() {
+        rasterizer.rectangle(center - extent / 2, center - extent / 4, extent, extent / 2);
+        return mask;
+    }
+
+    @Benchmark
+    public CoverageMask strokeLine() {
+        rasterizer.strokeLine(center - extent / 2, center - extent / 4, center + extent / 2, center + extent / 4,
+                strokeRadius);
+        return mask;
+    }
+
+    @Benchmark
+    public CoverageMask strokeCircle() {
+        rasterizer.strokeCircle(center, center, extent / 2, strokeRadius);
+        return mask;
+    }
+
+    @Benchmark
+    public CoverageMask strokeCurve() {
+        rasterizer.strokeCurve(curve[0], curve[1], curve[2], curve[3], strokeRadius);
+        return mask;
+    }
+
+    @Benchmark
+    public CoverageMask strokePolygon() {
+        rasterizer.strokePolygon(polygon, strokeRadius);
+        return mask;
+    }
+
+    @Benchmark
+    public CoverageMask strokeRectangle() {
+        rasterizer.strokeRectangle(center - extent / 2, center - extent / 4, extent, extent / 2, strokeRadius);
+        return mask;
+    }
+
+    // Formes transformées dont le contour est déjà en cache
+    @Benchmark
+    public CoverageMask renderRotatedRectangle() {
+        rasterizer.drawShape(rotatedRectangle);
+        return mask;
+    }
+
+    @Benchmark
+    public CoverageMask renderScaledCircle() {
+        rasterizer.drawShape(scaledCircle);
+        return mask;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,66 @@
+package pixel_tracer.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import pixel_tracer.Area;
+import pixel_tracer.Layer;
+import pixel_tracer.PixelTracerApp;
+
+/**
+ * Rendu complet de toutes les zones d'un projet, l'une après l'autre ou en
+ * parallèle.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RenderAllBenchmark {
+    @Param({ "4", "32" })
+    private int areaCount;
+
+    @Param({ "1000" })
+    private int shapeCount;
+
+    @Param({ "true", "false" })
+    private boolean parallel;
+
+    private PixelTracerApp app;
+
+    @Setup
+    public void setUp() {
+        app = new PixelTracerApp();
+        app.resizeCurrentArea(200, 100);
+        Scenes.populate(app.getCurrentLayer(), "mixed", shapeCount, 200, 100);
+        for (int i = 1; i < areaCount; i++) {
+            Area area = app.createArea(200, 100, "Zone" + i);
+            Layer layer = new Layer(i, "Layer");
+            area.addLayer(layer);
+            Scenes.populate(layer, "mixed", shapeCount, 200, 100);
+        }
+        app.setIncrementalRendering(false);
+        app.setParallelRendering(parallel);
+    }
+
+    /**
+     * Redessine entièrement toutes les zones.
+     */
+    @Benchmark
+    public PixelTracerApp renderAll() {
+        app.renderAll();
+        return app;
+    }
+}
\ No newline at end of file
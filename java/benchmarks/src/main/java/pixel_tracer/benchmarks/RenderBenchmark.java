@@ -0,0 +1,102 @@
+package pixel_tracer.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import pixel_tracer.Area;
+import pixel_tracer.BoundingBox;
+import pixel_tracer.Layer;
+import pixel_tracer.PixelTracerApp;
+
+/**
+ * Rendu de la zone courante selon la taille de la scène et le type de formes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RenderBenchmark {
+    @Param({ "10", "100", "1000" })
+    private int shapeCount;
+
+    @Param({ "lines", "circles", "curves", "polygons", "mixed" })
+    private String mix;
+
+    @Param({ "200x100" })
+    private String areaSize;
+
+    @Param({ "true", "false" })
+    private boolean parallel;
+
+    private PixelTracerApp app;
+    private Area area;
+    private Layer overlay;
+    private int frame;
+
+    @Setup
+    public void setUp() {
+        int separator = areaSize.indexOf('x');
+        int width = Integer.parseInt(areaSize.substring(0, separator));
+        int height = Integer.parseInt(areaSize.substring(separator + 1));
+
+        app = new PixelTracerApp();
+        app.resizeCurrentArea(width, height);
+        app.setParallelRendering(parallel);
+        area = app.getCurrentArea();
+        Scenes.populate(app.getCurrentLayer(), mix, shapeCount, width, height);
+
+        // Couche supplémentaire, masquée et affichée tour à tour
+        overlay = new Layer(Integer.MAX_VALUE, "Overlay");
+        area.addLayer(overlay);
+        Scenes.populate(overlay, mix, Math.max(1, shapeCount / 10), width, height);
+        app.renderCurrentArea();
+    }
+
+    /**
+     * Redessine toute la zone.
+     */
+    @Benchmark
+    public Area renderFull() {
+        area.invalidateAll();
+        app.renderCurrentArea();
+        return area;
+    }
+
+    /**
+     * Redessine une région de 16x8 cellules qui parcourt la zone, comme après
+     * l'ajout ou la suppression d'une petite forme.
+     */
+    @Benchmark
+    public Area renderDamaged() {
+        int x = (frame * 16) % area.getWidth();
+        int y = (frame / 8 * 8) % area.getHeight();
+        frame++;
+        area.invalidate(new BoundingBox(x, y, x + 15, y + 7));
+        app.renderCurrentArea();
+        return area;
+    }
+
+    /**
+     * Masque ou affiche une couche : la grille est recomposée à partir des
+     * pixels des couches gardés en cache.
+     */
+    @Benchmark
+    public Area toggleLayer() {
+        overlay.setVisible(!overlay.isVisible());
+        app.renderCurrentArea();
+        return area;
+    }
+}
@@ -0,0 +1,68 @@
+package pixel_tracer.benchmarks;
+
+import java.util.Random;
+
+import pixel_tracer.CircleShape;
+import pixel_tracer.CurveShape;
+import pixel_tracer.Layer;
+import pixel_tracer.LineShape;
+import pixel_tracer.PolygonShape;
+import pixel_tracer.RectangleShape;
+import pixel_tracer.Shape;
+
+/**
+ * Génération de scènes reproductibles pour les benchmarks.
+ */
+final class Scenes {
+    // Graine fixe : toutes les exécutions mesurent la même scène
+    private static final long SEED = 42;
+    private static final String[] KINDS = { "lines", "circles", "curves", "polygons", "rectangles" };
+
+    private Scenes() {
+    }
+
+    /**
+     * Ajoute des formes aléatoires à une couche.
+     *
+     * @param layer  La couche à remplir
+     * @param mix    Le type de formes : lines, circles, curves, polygons ou mixed
+     * @param count  Le nombre de formes
+     * @param width  La largeur de la zone
+     * @param height La hauteur de la zone
+     */
+    static void populate(Layer layer, String mix, int count, int width, int height) {
+        Random random = new Random(SEED);
+        for (int i = 0; i < count; i++) {
+            layer.addShape(createShape(random, mix, i, width, height));
+        }
+    }
+
+    private static Shape createShape(Random random, String mix, int index, int width, int height) {
+        String kind = mix.equals("mixed") ? KINDS[index % KINDS.length] : mix;
+        int x = random.nextInt(width);
+        int y = random.nextInt(height);
+        // Les formes restent petites devant la zone, comme dans un dessin réel
+        int size = 2 + random.nextInt(Math.max(1, Math.min(width, height) / 4));
+
+        switch (kind) {
+            case "lines":
+                return new LineShape(x, y, x + random.nextInt(2 * size) - size, y + random.nextInt(2 * size) - size);
+            case "circles":
+                return new CircleShape(x, y, size / 2);
+            case "curves":
+                return new CurveShape(x, y, x + size, y - size, x + 2 * size, y + size, x + 3 * size, y);
+            case "polygons":
+                int[] coordinates = new int[12];
+                for (int i = 0; i < coordinates.length; i += 2) {
+                    double angle = Math.PI * i / 6;
+                    coordinates[i] = x + (int) (size * Math.cos(angle));
+                    coordinates[i + 1] = y + (int) (size * Math.sin(angle));
+                }
+                return new PolygonShape(coordinates);
+            case "rectangles":
+                return new RectangleShape(x, y, size, size / 2 + 1);
+            default:
+                throw new IllegalArgumentException("Type de formes inconnu : " + kind);
+        }
+    }
+}
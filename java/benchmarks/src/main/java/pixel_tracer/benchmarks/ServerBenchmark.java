@@ -0,0 +1,146 @@
+package pixel_tracer.benchmarks;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import pixel_tracer.CommandProcessor;
+import pixel_tracer.CommandServer;
+import pixel_tracer.PixelTracerApp;
+
+/**
+ * Aller-retour d'une commande par le serveur TCP local, depuis un client puis
+ * depuis plusieurs clients dont les commandes sont sérialisées.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ServerBenchmark {
+    /**
+     * Serveur partagé par tous les clients.
+     */
+    @State(Scope.Benchmark)
+    public static class Server {
+        private CommandServer server;
+        private SocketAddress address;
+
+        @Setup
+        public void setUp() throws IOException {
+            PixelTracerApp app = new PixelTracerApp();
+            app.resizeCurrentArea(80, 25);
+            Scenes.populate(app.getCurrentLayer(), "mixed", 100, 80, 25);
+            server = CommandServer.open(app, new CommandProcessor(app), "0");
+            address = server.getAddress();
+            Thread acceptor = new Thread(() -> {
+                try {
+                    server.serve();
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            acceptor.setDaemon(true);
+            acceptor.start();
+        }
+
+        @TearDown
+        public void tearDown() throws IOException {
+            server.close();
+        }
+    }
+
+    /**
+     * Connexion d'un client et tampon de ses réponses.
+     */
+    @State(Scope.Thread)
+    public static class Client {
+        private SocketChannel channel;
+        private ByteBuffer input;
+
+        @Setup
+        public void setUp(Server server) throws IOException {
+            channel = SocketChannel.open(server.address);
+            input = ByteBuffer.allocate(1 << 16);
+        }
+
+        @TearDown
+        public void tearDown() throws IOException {
+            channel.close();
+        }
+
+        /**
+         * Envoie une commande et lit toute sa réponse.
+         *
+         * @return Le code de la réponse
+         */
+        int send(String command) throws IOException {
+            ByteBuffer output = ByteBuffer.wrap((command + "\n").getBytes(StandardCharsets.UTF_8));
+            while (output.hasRemaining()) {
+                channel.write(output);
+            }
+
+            // En-tête "code longueur message", puis longueur octets
+            input.clear();
+            int headerEnd = -1;
+            while (headerEnd < 0) {
+                if (channel.read(input) < 0)
+                    throw new IOException("connexion fermée");
+                for (int i = 0; i < input.position(); i++) {
+                    if (input.get(i) == '\n') {
+                        headerEnd = i;
+                        break;
+                    }
+                }
+            }
+            String header = new String(input.array(), 0, headerEnd, StandardCharsets.UTF_8);
+            String[] fields = header.split(" ", 3);
+            int total = headerEnd + 1 + Integer.parseInt(fields[1]);
+            while (input.position() < total) {
+                if (channel.read(input) < 0)
+                    throw new IOException("connexion fermée");
+            }
+            return Integer.parseInt(fields[0]);
+        }
+    }
+
+    /**
+     * Ajoute puis retire une forme.
+     */
+    @Benchmark
+    @Threads(1)
+    public int edit(Client client) throws IOException {
+        return client.send("point 10 10") + client.send("undo");
+    }
+
+    @Benchmark
+    @Threads(4)
+    public int editContended(Client client) throws IOException {
+        return client.send("point 10 10") + client.send("undo");
+    }
+
+    /**
+     * Reçoit la trame de la zone courante.
+     */
+    @Benchmark
+    @Threads(1)
+    public int plot(Client client) throws IOException {
+        return client.send("plot");
+    }
+}
\ No newline at end of file
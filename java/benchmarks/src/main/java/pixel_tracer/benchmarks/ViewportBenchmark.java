@@ -0,0 +1,83 @@
+package pixel_tracer.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import pixel_tracer.Area;
+import pixel_tracer.PixelTracerApp;
+import pixel_tracer.Viewport;
+
+/**
+ * Rendu d'une vue de la taille d'un terminal sur une zone bien plus grande,
+ * comparé au rendu de toute la zone.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ViewportBenchmark {
+    @Param({ "1000", "10000" })
+    private int shapeCount;
+
+    @Param({ "4000x2000" })
+    private String areaSize;
+
+    @Param({ "0", "-3" })
+    private int zoom;
+
+    private PixelTracerApp app;
+    private Area area;
+    private Viewport viewport;
+    private int frame;
+
+    @Setup
+    public void setUp() {
+        int separator = areaSize.indexOf('x');
+        int width = Integer.parseInt(areaSize.substring(0, separator));
+        int height = Integer.parseInt(areaSize.substring(separator + 1));
+
+        app = new PixelTracerApp();
+        app.resizeCurrentArea(width, height);
+        app.setParallelRendering(false);
+        area = app.getCurrentArea();
+        Scenes.populate(app.getCurrentLayer(), "mixed", shapeCount, width, height);
+        viewport = new Viewport(width / 2, height / 2, 80, 40, zoom);
+        area.setViewport(viewport);
+        app.renderCurrentArea();
+    }
+
+    /**
+     * Déplace la vue d'une cellule puis la redessine.
+     */
+    @Benchmark
+    public Area panView() {
+        frame++;
+        area.setViewport(viewport.pan(frame % 64, 0));
+        app.renderCurrentArea();
+        return area;
+    }
+
+    /**
+     * Redessine toute la zone, sans vue, avec le même rendu séquentiel.
+     */
+    @Benchmark
+    public Area renderWholeArea() {
+        area.setViewport(null);
+        app.renderCurrentArea();
+        area.setViewport(viewport);
+        return area;
+    }
+}
\ No newline at end of file
@@ -1,6 +1,9 @@
 package pixel_tracer;
 
-import java.util.ArrayList;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -11,10 +14,19 @@ public class Area {
     private String name;
     private int width;
     private int height;
-    private List<Layer> layers;
+    private LongOrderedMap<Layer> layers;
     private char emptyChar;
     private char fillChar;
-    private char[][] grid;
+    // Caractères de la grille
+    private CanvasStorage grid;
+    private BoundingBox damage;
+    private boolean fullyDamaged;
+    private FrameEncoder encoder;
+    // Vue affichée à la place de la grille, ou null pour afficher toute la zone
+    private Viewport viewport;
+    // Caractères de la vue, rangés ligne par ligne, et indicateur de mise à jour
+    private char[] view;
+    private boolean viewStale;
 
     /**
      * Crée une nouvelle zone avec la largeur, hauteur, ID et nom spécifiés.
@@ -25,30 +37,118 @@ public class Area {
      * @param name   Nom de la zone
      */
     public Area(int width, int height, int id, String name) {
-        this.width = width;
-        this.height = height;
+        this(new DenseCanvas(width, height, '.'), id, name);
+        invalidateAll();
+    }
+
+    /**
+     * Crée une nouvelle zone dont la grille est gardée dans le stockage
+     * spécifié. La zone prend la taille du stockage et son caractère de fond
+     * comme caractère vide. Le contenu du stockage, par exemple une grille
+     * déjà rendue rouverte depuis un fichier, est affiché tel quel : seules
+     * les régions modifiées ensuite sont recomposées.
+     * 
+     * @param grid Le stockage de la grille
+     * @param id   Identifiant unique de la zone
+     * @param name Nom de la zone
+     */
+    public Area(CanvasStorage grid, int id, String name) {
+        this.width = grid.getWidth();
+        this.height = grid.getHeight();
         this.id = id;
         this.name = name;
-        this.layers = new ArrayList<>();
-        this.emptyChar = '.';
+        this.layers = new LongOrderedMap<>();
+        this.emptyChar = grid.getBackground();
         this.fillChar = '@';
+        this.grid = grid;
+    }
 
-        // Initialisation de la grille
-        this.grid = new char[height][width];
-        clearGrid();
+    /**
+     * @return Le stockage de la grille
+     */
+    public CanvasStorage getGrid() {
+        return grid;
     }
 
     /**
      * Initialise la grille avec le caractère vide.
      */
     public void clearGrid() {
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                grid[y][x] = emptyChar;
-            }
+        grid.clear(emptyChar);
+    }
+
+    /**
+     * Remplit une région rectangulaire de la grille avec le caractère vide.
+     * La région est d'abord restreinte aux limites de la zone.
+     * 
+     * @param region La région à effacer
+     */
+    public void clearRegion(BoundingBox region) {
+        BoundingBox clipped = region.intersection(getBounds());
+        for (int y = clipped.getMinY(); y <= clipped.getMaxY(); y++) {
+            fillRow(y, clipped.getMinX(), clipped.getMaxX(), emptyChar);
         }
     }
 
+    /**
+     * @return La boîte couvrant toute la grille
+     */
+    public BoundingBox getBounds() {
+        return new BoundingBox(0, 0, width - 1, height - 1);
+    }
+
+    /**
+     * Marque une région comme endommagée : elle sera effacée et redessinée au
+     * prochain rendu incrémental. Les régions successives sont fusionnées.
+     * 
+     * @param region La région modifiée
+     */
+    public void invalidate(BoundingBox region) {
+        if (fullyDamaged || region == null || region.isEmpty())
+            return;
+        damage = damage == null ? region : damage.union(region);
+    }
+
+    /**
+     * Marque toute la zone comme endommagée.
+     */
+    public void invalidateAll() {
+        fullyDamaged = true;
+        damage = null;
+    }
+
+    /**
+     * @return true si la zone doit être redessinée, au moins en partie
+     */
+    public boolean isDamaged() {
+        return fullyDamaged || damage != null;
+    }
+
+    /**
+     * @return true si toute la zone doit être redessinée
+     */
+    public boolean isFullyDamaged() {
+        return fullyDamaged;
+    }
+
+    /**
+     * @return La région endommagée restreinte à la grille, vide si rien n'est à
+     *         redessiner
+     */
+    public BoundingBox getDamage() {
+        if (fullyDamaged)
+            return getBounds();
+        return damage == null ? BoundingBox.EMPTY : damage.intersection(getBounds());
+    }
+
+    /**
+     * Indique que la grille est à jour.
+     */
+    public void clearDamage() {
+        fullyDamaged = false;
+        damage = null;
+    }
+
     /**
      * @return L'identifiant de la zone
      */
@@ -98,27 +198,12 @@ public class Area {
      * @param newHeight Nouvelle hauteur
      */
     public void resize(int newWidth, int newHeight) {
-        char[][] newGrid = new char[newHeight][newWidth];
-
-        // Copie des données existantes
-        for (int y = 0; y < Math.min(height, newHeight); y++) {
-            for (int x = 0; x < Math.min(width, newWidth); x++) {
-                newGrid[y][x] = grid[y][x];
-            }
-        }
-
-        // Initialisation des nouvelles cellules
-        for (int y = 0; y < newHeight; y++) {
-            for (int x = 0; x < newWidth; x++) {
-                if (y >= height || x >= width) {
-                    newGrid[y][x] = emptyChar;
-                }
-            }
-        }
-
-        this.grid = newGrid;
+        grid.resize(newWidth, newHeight);
         this.width = newWidth;
         this.height = newHeight;
+        invalidateAll();
+        // La vue peut montrer des cellules qui ne font plus partie de la zone
+        viewStale = viewport != null;
     }
 
     /**
@@ -132,7 +217,13 @@ public class Area {
      * @param emptyChar Nouveau caractère pour les cellules vides
      */
     public void setEmptyChar(char emptyChar) {
-        this.emptyChar = emptyChar;
+        if (this.emptyChar != emptyChar) {
+            this.emptyChar = emptyChar;
+            // Le nouveau caractère devient le fond : un stockage par tuiles n'a
+            // pas à allouer les tuiles vides pour l'écrire
+            clearGrid();
+            invalidateAll();
+        }
     }
 
     /**
@@ -146,14 +237,18 @@ public class Area {
      * @param fillChar Nouveau caractère pour les cellules remplies
      */
     public void setFillChar(char fillChar) {
-        this.fillChar = fillChar;
+        if (this.fillChar != fillChar) {
+            this.fillChar = fillChar;
+            invalidateAll();
+        }
     }
 
     /**
-     * @return La liste des couches de cette zone
+     * @return La liste des couches de cette zone, dans l'ordre de rendu (vue en
+     *         lecture seule)
      */
     public List<Layer> getLayers() {
-        return layers;
+        return layers.values();
     }
 
     /**
@@ -162,7 +257,44 @@ public class Area {
      * @param layer La couche à ajouter
      */
     public void addLayer(Layer layer) {
-        layers.add(layer);
+        Layer previous = layers.put(layer.getId(), layer);
+        if (previous == layer)
+            return;
+        if (previous != null) {
+            // Une autre couche portait le même identifiant : elle est remplacée
+            detachLayer(previous);
+        }
+        layer.setArea(this);
+        if (layer.isVisible()) {
+            invalidate(layer.getBounds());
+        }
+    }
+
+    /**
+     * Replace une couche retirée de la zone à sa position d'origine. Utilisée
+     * pour annuler une suppression.
+     * 
+     * @param layer La couche à replacer
+     * @param next  La couche qui la suivait, ou null si elle était la dernière
+     */
+    void insertLayer(Layer layer, Layer next) {
+        if (next != null && containsLayer(next)) {
+            layers.putBefore(layer.getId(), layer, next.getId());
+        } else {
+            layers.put(layer.getId(), layer);
+        }
+        layer.setArea(this);
+        if (layer.isVisible()) {
+            invalidate(layer.getBounds());
+        }
+    }
+
+    /**
+     * @param layer Une couche de la zone
+     * @return La couche qui la suit dans l'ordre de rendu, ou null
+     */
+    Layer nextLayer(Layer layer) {
+        return layers.nextValue(layer.getId());
     }
 
     /**
@@ -172,7 +304,11 @@ public class Area {
      * @return true si la couche a été trouvée et supprimée, false sinon
      */
     public boolean removeLayer(Layer layer) {
-        return layers.remove(layer);
+        if (!containsLayer(layer))
+            return false;
+        layers.remove(layer.getId());
+        detachLayer(layer);
+        return true;
     }
 
     /**
@@ -182,13 +318,23 @@ public class Area {
      * @return true si une couche a été trouvée et supprimée, false sinon
      */
     public boolean removeLayerById(int layerId) {
-        for (int i = 0; i < layers.size(); i++) {
-            if (layers.get(i).getId() == layerId) {
-                layers.remove(i);
-                return true;
-            }
+        Layer layer = layers.remove(layerId);
+        if (layer == null)
+            return false;
+        detachLayer(layer);
+        return true;
+    }
+
+    /**
+     * Détache une couche retirée de la zone et marque ses pixels à effacer.
+     * 
+     * @param layer La couche retirée
+     */
+    private void detachLayer(Layer layer) {
+        if (layer.isVisible()) {
+            invalidate(layer.getBounds());
         }
-        return false;
+        layer.setArea(null);
     }
 
     /**
@@ -198,12 +344,104 @@ public class Area {
      * @return La couche correspondant à l'ID, ou null si aucune ne correspond
      */
     public Layer findLayerById(int layerId) {
-        for (Layer layer : layers) {
-            if (layer.getId() == layerId) {
-                return layer;
+        return layers.get(layerId);
+    }
+
+    /**
+     * @param layer La couche recherchée
+     * @return true si la couche appartient à cette zone
+     */
+    public boolean containsLayer(Layer layer) {
+        return layer != null && layers.get(layer.getId()) == layer;
+    }
+
+    /**
+     * @return La vue affichée, ou null si toute la zone est affichée
+     */
+    public Viewport getViewport() {
+        return viewport;
+    }
+
+    /**
+     * Change la vue affichée. Tant qu'une vue est active, seules les formes
+     * qui la touchent sont dessinées et la grille n'est plus tenue à jour : elle
+     * est entièrement redessinée lorsque la vue est retirée.
+     * 
+     * @param viewport La nouvelle vue, ou null pour afficher toute la zone
+     */
+    public void setViewport(Viewport viewport) {
+        if (viewport == null && this.viewport != null) {
+            for (Layer layer : layers.values()) {
+                layer.invalidateCoverage();
             }
+            invalidateAll();
+            view = null;
+        }
+        this.viewport = viewport;
+        viewStale = viewport != null;
+    }
+
+    /**
+     * @return true si la vue a changé depuis son dernier rendu
+     */
+    boolean isViewStale() {
+        return viewStale;
+    }
+
+    /**
+     * Renvoie le tampon des caractères de la vue, alloué à sa taille, et le
+     * marque comme à jour. Appelée par {@link ViewportRenderer}.
+     * 
+     * @return Les caractères de la vue, rangés ligne par ligne
+     */
+    char[] takeViewBuffer() {
+        int length = viewport.getWidth() * viewport.getHeight();
+        if (view == null || view.length != length) {
+            view = new char[length];
+        }
+        viewStale = false;
+        return view;
+    }
+
+    /**
+     * @return La largeur affichée : celle de la vue, ou celle de la zone
+     */
+    public int getDisplayWidth() {
+        return viewport != null ? viewport.getWidth() : width;
+    }
+
+    /**
+     * @return La hauteur affichée : celle de la vue, ou celle de la zone
+     */
+    public int getDisplayHeight() {
+        return viewport != null ? viewport.getHeight() : height;
+    }
+
+    /**
+     * Copie une ligne affichée dans un tableau : une ligne de la vue si elle
+     * est active, sinon une ligne de la grille.
+     * 
+     * @param y      Ligne à copier
+     * @param dest   Tableau de destination, d'au moins
+     *               {@link #getDisplayWidth()} cases à partir de offset
+     * @param offset Indice de départ dans le tableau de destination
+     * @throws IndexOutOfBoundsException si la ligne est hors limites
+     */
+    public void copyDisplayRow(int y, char[] dest, int offset) {
+        if (viewport == null) {
+            copyRow(y, dest, offset);
+            return;
+        }
+        int viewWidth = viewport.getWidth();
+        if (y < 0 || y >= viewport.getHeight()) {
+            throw new IndexOutOfBoundsException("Ligne hors limites: " + y);
+        }
+        if (view == null) {
+            // Vue pas encore rendue
+            Arrays.fill(dest, offset, offset + viewWidth, ' ');
+            return;
         }
-        return null;
+        System.arraycopy(view, y * viewWidth, dest, offset, viewWidth);
     }
 
     /**
@@ -218,7 +456,7 @@ public class Area {
         if (x < 0 || x >= width || y < 0 || y >= height) {
             throw new IndexOutOfBoundsException("Coordonnées hors limites: (" + x + ", " + y + ")");
         }
-        return grid[y][x];
+        return grid.get(x, y);
     }
 
     /**
@@ -233,25 +471,128 @@ public class Area {
         if (x < 0 || x >= width || y < 0 || y >= height) {
             throw new IndexOutOfBoundsException("Coordonnées hors limites: (" + x + ", " + y + ")");
         }
-        grid[y][x] = value;
+        grid.set(x, y, value);
     }
 
     /**
-     * Affiche la grille dans la console.
+     * Définit le caractère d'une cellule sans vérifier les limites. Réservée aux
+     * routines de tracé qui ont déjà découpé leurs coordonnées à la zone.
+     * 
+     * @param x     Coordonnée X, entre 0 et width - 1
+     * @param y     Coordonnée Y, entre 0 et height - 1
+     * @param value Le caractère à placer
      */
-    public void draw() {
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                System.out.print(grid[y][x]);
+    public void setCellUnchecked(int x, int y, char value) {
+        grid.set(x, y, value);
+    }
+
+    /**
+     * Remplit un segment horizontal d'une ligne sans vérifier les limites.
+     * 
+     * @param y     Ligne, entre 0 et height - 1
+     * @param x0    Première colonne incluse, entre 0 et width - 1
+     * @param x1    Dernière colonne incluse, entre x0 et width - 1
+     * @param value Le caractère à placer
+     */
+    public void fillRow(int y, int x0, int x1, char value) {
+        grid.fillRow(y, x0, x1, value);
+    }
+
+    /**
+     * Recompose une région de la grille à partir des masques des couches
+     * visibles : les cellules couvertes par au moins une couche reçoivent le
+     * caractère de remplissage, les autres le caractère vide. Les masques des
+     * couches visibles doivent être à jour dans cette région.
+     * <p>
+     * Chaque ligne est composée dans un tampon puis écrite d'un bloc dans la
+     * grille. Des régions disjointes peuvent être recomposées en parallèle si
+     * elles ne partagent aucune tuile de {@link TileRenderer}.
+     * 
+     * @param region La région à recomposer, incluse dans la zone
+     */
+    public void composite(BoundingBox region) {
+        if (region.isEmpty())
+            return;
+        int minX = region.getMinX();
+        int maxX = region.getMaxX();
+        List<Layer> all = layers.values();
+        char[] row = new char[maxX - minX + 1];
+        for (int y = region.getMinY(); y <= region.getMaxY(); y++) {
+            Arrays.fill(row, emptyChar);
+            for (int i = 0; i < all.size(); i++) {
+                Layer layer = all.get(i);
+                CoverageMask coverage = layer.getCoverage();
+                if (layer.isVisible() && coverage != null) {
+                    coverage.paintRow(y, minX, maxX, row, -minX, fillChar);
+                }
             }
-            System.out.println();
+            grid.writeRow(y, minX, maxX, row, 0);
+        }
+    }
+
+    /**
+     * Copie une ligne de la grille dans un tableau.
+     * 
+     * @param y      Ligne à copier
+     * @param dest   Tableau de destination, d'au moins width cases à partir de
+     *               offset
+     * @param offset Indice de départ dans le tableau de destination
+     * @throws IndexOutOfBoundsException si la ligne est hors limites
+     */
+    public void copyRow(int y, char[] dest, int offset) {
+        if (y < 0 || y >= height) {
+            throw new IndexOutOfBoundsException("Ligne hors limites: " + y);
+        }
+        grid.readRow(y, 0, width - 1, dest, offset);
+    }
+
+    /**
+     * Affiche la zone, ou sa vue, dans la console, en une seule écriture.
+     */
+    public void draw() {
+        try {
+            draw((OutputStream) System.out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Écrit la grille dans un flux, en une seule écriture.
+     * 
+     * @param out Le flux de sortie
+     * @throws IOException si l'écriture échoue
+     */
+    public void draw(OutputStream out) throws IOException {
+        getEncoder().write(this, out);
+    }
+
+    /**
+     * Ajoute la grille, ligne par ligne, à une destination de caractères.
+     * 
+     * @param out La destination
+     * @throws IOException si l'ajout échoue
+     */
+    public void draw(Appendable out) throws IOException {
+        getEncoder().append(this, out);
+    }
+
+    /**
+     * @return L'encodeur de trames de la zone, dont les tampons sont réutilisés
+     *         d'un affichage à l'autre
+     */
+    public FrameEncoder getEncoder() {
+        if (encoder == null) {
+            encoder = new FrameEncoder();
         }
+        return encoder;
     }
 
     @Override
     public String toString() {
         return "Area[id=" + id + ", name=" + name +
                 ", size=" + width + "x" + height +
-                ", layers=" + layers.size() + "]";
+                ", layers=" + layers.size() +
+                (viewport != null ? ", " + viewport : "") + "]";
     }
 }
\ No newline at end of file
@@ -0,0 +1,146 @@
+package pixel_tracer;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Rendu d'une zone quelconque, indépendamment de la zone active de
+ * l'application.
+ * <p>
+ * Chaque couche garde ses pixels en cache : seules les régions modifiées par
+ * ses formes sont redessinées, puis la grille est recomposée à partir des
+ * couches visibles. En mode incrémental, seule la région endommagée depuis le
+ * dernier rendu est recomposée ; en mode complet, toutes les couches sont
+ * redessinées entièrement. Lorsqu'une vue est active, seules les formes
+ * visibles dans sa fenêtre sont dessinées, et seulement si la vue a changé ou
+ * si la région endommagée la touche.
+ * <p>
+ * Un moteur garde ses tampons d'un rendu à l'autre et ne sert qu'à un fil à
+ * la fois. Toutes les données d'une zone lui sont propres : des zones
+ * différentes peuvent être rendues en même temps par des moteurs différents,
+ * ce que fait {@link #renderAll(List, boolean, boolean, ForkJoinPool)}.
+ */
+public class AreaRenderer {
+    private final TileRenderer tileRenderer;
+    private final ViewportRenderer viewportRenderer;
+
+    /**
+     * Crée un moteur de rendu dont les tuiles sont dessinées par le pool
+     * commun.
+     */
+    public AreaRenderer() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Crée un moteur de rendu dont les tuiles sont dessinées par le pool
+     * spécifié.
+     *
+     * @param pool Le pool exécutant les tuiles
+     */
+    public AreaRenderer(ForkJoinPool pool) {
+        this.tileRenderer = new TileRenderer(pool);
+        this.viewportRenderer = new ViewportRenderer();
+    }
+
+    /**
+     * Effectue le rendu d'une zone, ou de sa vue active, puis efface sa région
+     * endommagée.
+     *
+     * @param area        La zone
+     * @param incremental true pour ne redessiner que la région endommagée
+     * @param parallel    true pour découper les grandes régions en tuiles
+     *                    dessinées en parallèle
+     */
+    public void render(Area area, boolean incremental, boolean parallel) {
+        Viewport viewport = area.getViewport();
+        if (viewport != null) {
+            if (!incremental || area.isViewStale() || area.getDamage().intersects(viewport.getWindow())) {
+                viewportRenderer.render(area);
+            }
+            area.clearDamage();
+            return;
+        }
+
+        BoundingBox clip;
+        if (!incremental) {
+            for (Layer layer : area.getLayers()) {
+                layer.invalidateCoverage();
+            }
+            clip = area.getBounds();
+        } else {
+            clip = area.getDamage();
+            if (clip.isEmpty()) {
+                area.clearDamage();
+                return;
+            }
+        }
+
+        tileRenderer.render(area, clip, parallel);
+        area.clearDamage();
+    }
+
+    /**
+     * Effectue le rendu de plusieurs zones en même temps, chacune par son
+     * propre moteur sur un fil du pool. Les grandes régions d'une zone sont en
+     * outre découpées en tuiles lorsque le rendu parallèle est demandé. Les
+     * zones ne doivent pas être modifiées pendant le rendu. Avec un pool d'un
+     * seul fil, ou une seule zone, elles sont rendues l'une après l'autre par
+     * un même moteur.
+     *
+     * @param areas       Les zones, toutes différentes
+     * @param incremental true pour ne redessiner que les régions endommagées
+     * @param parallel    true pour découper aussi les grandes régions en
+     *                    tuiles
+     * @param pool        Le pool exécutant les rendus
+     */
+    public static void renderAll(List<Area> areas, boolean incremental, boolean parallel, ForkJoinPool pool) {
+        if (areas.size() < 2 || pool.getParallelism() < 2) {
+            AreaRenderer renderer = new AreaRenderer(pool);
+            for (Area area : areas) {
+                renderer.render(area, incremental, parallel);
+            }
+            return;
+        }
+        Area[] array = areas.toArray(new Area[0]);
+        // Avec assez de zones pour occuper tous les fils, découper chacune en
+        // tuiles ne ferait qu'ajouter des tâches
+        boolean tiles = parallel && array.length < pool.getParallelism();
+        pool.invoke(new AreaTask(array, 0, array.length, incremental, tiles, pool));
+    }
+
+    /**
+     * Tâche rendant un intervalle de zones, divisé récursivement.
+     */
+    private static final class AreaTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Area[] areas;
+        private final int from;
+        private final int to;
+        private final boolean incremental;
+        private final boolean parallel;
+        private final transient ForkJoinPool pool;
+
+        AreaTask(Area[] areas, int from, int to, boolean incremental, boolean parallel, ForkJoinPool pool) {
+            this.areas = areas;
+            this.from = from;
+            this.to = to;
+            this.incremental = incremental;
+            this.parallel = parallel;
+            this.pool = pool;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                new AreaRenderer(pool).render(areas[from], incremental, parallel);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new AreaTask(areas, from, middle, incremental, parallel, pool),
+                    new AreaTask(areas, middle, to, incremental, parallel, pool));
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,182 @@
+package pixel_tracer;
+
+/**
+ * Rectangle englobant aligné sur les axes, exprimé en cellules de la grille.
+ * Les bornes sont inclusives : une boîte (2, 3, 2, 3) couvre exactement la
+ * cellule (2, 3).
+ */
+public final class BoundingBox {
+    /**
+     * Boîte vide, qui n'intersecte aucune autre boîte.
+     */
+    public static final BoundingBox EMPTY = new BoundingBox(0, 0, -1, -1);
+
+    private final int minX;
+    private final int minY;
+    private final int maxX;
+    private final int maxY;
+
+    /**
+     * Crée une boîte à partir de ses bornes inclusives.
+     *
+     * @param minX Abscisse minimale
+     * @param minY Ordonnée minimale
+     * @param maxX Abscisse maximale
+     * @param maxY Ordonnée maximale
+     */
+    public BoundingBox(int minX, int minY, int maxX, int maxY) {
+        this.minX = minX;
+        this.minY = minY;
+        this.maxX = maxX;
+        this.maxY = maxY;
+    }
+
+    /**
+     * Crée la plus petite boîte contenant les deux coins spécifiés, quel que
+     * soit leur ordre.
+     *
+     * @param x1 Abscisse du premier coin
+     * @param y1 Ordonnée du premier coin
+     * @param x2 Abscisse du second coin
+     * @param y2 Ordonnée du second coin
+     * @return La boîte englobant les deux coins
+     */
+    public static BoundingBox ofCorners(int x1, int y1, int x2, int y2) {
+        return new BoundingBox(Math.min(x1, x2), Math.min(y1, y2), Math.max(x1, x2), Math.max(y1, y2));
+    }
+
+    /**
+     * @return L'abscisse minimale
+     */
+    public int getMinX() {
+        return minX;
+    }
+
+    /**
+     * @return L'ordonnée minimale
+     */
+    public int getMinY() {
+        return minY;
+    }
+
+    /**
+     * @return L'abscisse maximale
+     */
+    public int getMaxX() {
+        return maxX;
+    }
+
+    /**
+     * @return L'ordonnée maximale
+     */
+    public int getMaxY() {
+        return maxY;
+    }
+
+    /**
+     * @return Le nombre de colonnes couvertes, 0 pour une boîte vide
+     */
+    public int getWidth() {
+        return isEmpty() ? 0 : maxX - minX + 1;
+    }
+
+    /**
+     * @return Le nombre de lignes couvertes, 0 pour une boîte vide
+     */
+    public int getHeight() {
+        return isEmpty() ? 0 : maxY - minY + 1;
+    }
+
+    /**
+     * @return true si la boîte ne couvre aucune cellule
+     */
+    public boolean isEmpty() {
+        return minX > maxX || minY > maxY;
+    }
+
+    /**
+     * @param x Coordonnée X
+     * @param y Coordonnée Y
+     * @return true si la cellule (x, y) est dans la boîte
+     */
+    public boolean contains(int x, int y) {
+        return x >= minX && x <= maxX && y >= minY && y <= maxY;
+    }
+
+    /**
+     * @param other L'autre boîte
+     * @return true si les deux boîtes ont au moins une cellule en commun
+     */
+    public boolean intersects(BoundingBox other) {
+        return !isEmpty() && !other.isEmpty() &&
+                minX <= other.maxX && other.minX <= maxX &&
+                minY <= other.maxY && other.minY <= maxY;
+    }
+
+    /**
+     * @param other L'autre boîte
+     * @return La plus petite boîte contenant les deux boîtes
+     */
+    public BoundingBox union(BoundingBox other) {
+        if (other == null || other.isEmpty())
+            return this;
+        if (isEmpty())
+            return other;
+        return new BoundingBox(Math.min(minX, other.minX), Math.min(minY, other.minY),
+                Math.max(maxX, other.maxX), Math.max(maxY, other.maxY));
+    }
+
+    /**
+     * @param margin Nombre de cellules ajoutées de chaque côté
+     * @return La boîte agrandie, bornée aux entiers représentables, vide si
+     *         cette boîte est vide
+     */
+    public BoundingBox expand(int margin) {
+        if (isEmpty() || margin == 0)
+            return this;
+        return new BoundingBox(clamp((long) minX - margin), clamp((long) minY - margin),
+                clamp((long) maxX + margin), clamp((long) maxY + margin));
+    }
+
+    /**
+     * @param value Une coordonnée
+     * @return La coordonnée ramenée dans les entiers représentables
+     */
+    static int clamp(long value) {
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, value));
+    }
+
+    /**
+     * @param other L'autre boîte
+     * @return L'intersection des deux boîtes, éventuellement vide
+     */
+    public BoundingBox intersection(BoundingBox other) {
+        BoundingBox result = new BoundingBox(Math.max(minX, other.minX), Math.max(minY, other.minY),
+                Math.min(maxX, other.maxX), Math.min(maxY, other.maxY));
+        return result.isEmpty() ? EMPTY : result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (!(obj instanceof BoundingBox))
+            return false;
+        BoundingBox other = (BoundingBox) obj;
+        if (isEmpty() && other.isEmpty())
+            return true;
+        return minX == other.minX && minY == other.minY && maxX == other.maxX && maxY == other.maxY;
+    }
+
+    @Override
+    public int hashCode() {
+        if (isEmpty())
+            return 0;
+        return ((minX * 31 + minY) * 31 + maxX) * 31 + maxY;
+    }
+
+    @Override
+    public String toString() {
+        return isEmpty() ? "[]" : "[" + minX + "," + minY + " - " + maxX + "," + maxY + "]";
+    }
+}
\ No newline at end of file
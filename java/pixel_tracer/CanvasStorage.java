@@ -0,0 +1,88 @@
+package pixel_tracer;
+
+/**
+ * Stockage des caractères de la grille d'une zone.
+ * <p>
+ * Les coordonnées ne sont pas vérifiées : la zone ne transmet que des cellules
+ * comprises dans ses limites. Les cellules jamais écrites, ou effacées,
+ * contiennent le caractère de fond.
+ */
+public interface CanvasStorage {
+    /**
+     * @return La largeur de la grille
+     */
+    int getWidth();
+
+    /**
+     * @return La hauteur de la grille
+     */
+    int getHeight();
+
+    /**
+     * @return Le caractère des cellules effacées
+     */
+    char getBackground();
+
+    /**
+     * @param x Colonne, entre 0 et width - 1
+     * @param y Ligne, entre 0 et height - 1
+     * @return Le caractère de la cellule
+     */
+    char get(int x, int y);
+
+    /**
+     * @param x     Colonne, entre 0 et width - 1
+     * @param y     Ligne, entre 0 et height - 1
+     * @param value Le caractère à placer
+     */
+    void set(int x, int y, char value);
+
+    /**
+     * Remplit un segment horizontal d'une ligne.
+     *
+     * @param y     Ligne, entre 0 et height - 1
+     * @param x0    Première colonne incluse, entre 0 et width - 1
+     * @param x1    Dernière colonne incluse, entre x0 et width - 1
+     * @param value Le caractère à placer
+     */
+    void fillRow(int y, int x0, int x1, char value);
+
+    /**
+     * Copie un segment horizontal d'une ligne dans un tableau.
+     *
+     * @param y      Ligne, entre 0 et height - 1
+     * @param x0     Première colonne incluse, entre 0 et width - 1
+     * @param x1     Dernière colonne incluse, entre x0 et width - 1
+     * @param dest   Tableau de destination
+     * @param offset Indice dans dest de la colonne x0
+     */
+    void readRow(int y, int x0, int x1, char[] dest, int offset);
+
+    /**
+     * Écrit un segment horizontal d'une ligne à partir d'un tableau.
+     *
+     * @param y      Ligne, entre 0 et height - 1
+     * @param x0     Première colonne incluse, entre 0 et width - 1
+     * @param x1     Dernière colonne incluse, entre x0 et width - 1
+     * @param src    Tableau source
+     * @param offset Indice dans src de la colonne x0
+     */
+    void writeRow(int y, int x0, int x1, char[] src, int offset);
+
+    /**
+     * Remplit toute la grille avec un caractère, qui devient le caractère de
+     * fond.
+     *
+     * @param background Le nouveau caractère de fond
+     */
+    void clear(char background);
+
+    /**
+     * Redimensionne la grille. Les cellules conservées gardent leur caractère,
+     * les nouvelles reçoivent le caractère de fond.
+     *
+     * @param width  Nouvelle largeur
+     * @param height Nouvelle hauteur
+     */
+    void resize(int width, int height);
+}
\ No newline at end of file
@@ -4,6 +4,11 @@ package pixel_tracer;
  * Représente un cercle dans un espace 2D.
  */
 public class CircleShape extends Shape {
+    // Écart maximal, en cellules, entre le cercle transformé et son polygone
+    private static final double FLATNESS = 0.25;
+    private static final int MIN_SIDES = 8;
+    private static final int MAX_SIDES = 4096;
+
     private Point center;
     private int radius;
 
@@ -32,6 +37,7 @@ public class CircleShape extends Shape {
      */
     public void setCenter(Point center) {
         this.center = center;
+        geometryChanged();
     }
 
     /**
@@ -46,6 +52,45 @@ public class CircleShape extends Shape {
      */
     public void setRadius(int radius) {
         this.radius = radius;
+        geometryChanged();
+    }
+
+    @Override
+    protected BoundingBox computeBounds() {
+        // Le tracé de Bresenham déborde d'une cellule pour un rayon nul. Les
+        // bornes sont calculées en long puis ramenées aux int : un rayon
+        // extrême ne doit pas donner une boîte retournée, écartée du rendu
+        long r = Math.max(Math.abs((long) radius), 1);
+        return new BoundingBox(BoundingBox.clamp(center.getPosX() - r), BoundingBox.clamp(center.getPosY() - r),
+                BoundingBox.clamp(center.getPosX() + r), BoundingBox.clamp(center.getPosY() + r));
+    }
+
+    /**
+     * Le cercle transformé est approché par un polygone régulier dont le
+     * nombre de côtés dépend du rayon une fois transformé : chaque côté
+     * s'écarte du cercle d'au plus un quart de cellule.
+     */
+    @Override
+    protected int[] computePath(Transform transform) {
+        double r = Math.abs((double) radius);
+        double scaled = r * transform.getScale();
+        int sides = 1;
+        if (scaled > FLATNESS) {
+            sides = (int) Math.ceil(Math.PI / Math.acos(1 - FLATNESS / scaled));
+            sides = Math.max(MIN_SIDES, Math.min(sides, MAX_SIDES));
+        }
+        int[] points = new int[sides * 2];
+        for (int i = 0; i < sides; i++) {
+            double angle = 2 * Math.PI * i / sides;
+            putTransformed(transform, center.getPosX() + r * Math.cos(angle),
+                    center.getPosY() + r * Math.sin(angle), points, i);
+        }
+        return points;
+    }
+
+    @Override
+    public boolean isClosed() {
+        return true;
     }
 
     @Override
@@ -0,0 +1,388 @@
+package pixel_tracer;
+
+import java.util.Arrays;
+
+/**
+ * Analyseur lexical des lignes de commande. Une ligne est parcourue une seule
+ * fois : le premier mot est le nom de la commande, les suivants sont classés
+ * en entiers, flottants ou mots, dans des tableaux réutilisés d'une ligne à
+ * l'autre. L'analyse n'alloue aucun objet ; seul {@link #word(int)} crée une
+ * chaîne, à la demande.
+ * <p>
+ * Un entier est une suite de chiffres éventuellement signée qui tient dans un
+ * {@code int}. Un flottant accepte en plus une partie décimale, un exposant et
+ * un suffixe {@code f} ou {@code d}, ou dépasse la capacité d'un {@code int}.
+ * Tout le reste est un mot. Les entiers et les flottants sont aussi
+ * accessibles ensemble, dans l'ordre de la ligne, par {@link #numberAt(int)}.
+ */
+public class CommandLexer {
+    private static final int INITIAL_CAPACITY = 16;
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private String line;
+    private int commandStart;
+    private int commandEnd;
+
+    private int[] ints;
+    private int intCount;
+    private float[] floats;
+    private int floatCount;
+    // Entiers et flottants dans l'ordre de la ligne
+    private double[] numbers;
+    private int numberCount;
+    // Bornes des mots : début en 2*i, fin exclue en 2*i + 1
+    private int[] words;
+    private int wordCount;
+
+    // Résultat de la dernière conversion numérique
+    private int parsedInt;
+    private float parsedFloat;
+
+    /**
+     * Crée un analyseur vide.
+     */
+    public CommandLexer() {
+        this.ints = new int[INITIAL_CAPACITY];
+        this.floats = new float[INITIAL_CAPACITY];
+        this.numbers = new double[INITIAL_CAPACITY];
+        this.words = new int[INITIAL_CAPACITY * 2];
+    }
+
+    /**
+     * Découpe une ligne de commande. Les résultats précédents sont remplacés.
+     *
+     * @param commandLine La ligne à analyser
+     * @return false si la ligne ne contient aucun mot
+     */
+    public boolean tokenize(String commandLine) {
+        line = commandLine;
+        intCount = 0;
+        floatCount = 0;
+        numberCount = 0;
+        wordCount = 0;
+        commandStart = 0;
+        commandEnd = 0;
+
+        int length = commandLine.length();
+        int pos = skipSpaces(0);
+        if (pos == length)
+            return false;
+
+        commandStart = pos;
+        commandEnd = skipToken(pos);
+        pos = skipSpaces(commandEnd);
+
+        while (pos < length) {
+            int end = skipToken(pos);
+            switch (classify(pos, end)) {
+                case 1:
+                    if (intCount == ints.length) {
+                        ints = Arrays.copyOf(ints, intCount * 2);
+                    }
+                    ints[intCount++] = parsedInt;
+                    addNumber(parsedInt);
+                    break;
+                case 2:
+                    if (floatCount == floats.length) {
+                        floats = Arrays.copyOf(floats, floatCount * 2);
+                    }
+                    floats[floatCount++] = parsedFloat;
+                    addNumber(parsedFloat);
+                    break;
+                default:
+                    if (wordCount * 2 == words.length) {
+                        words = Arrays.copyOf(words, wordCount * 4);
+                    }
+                    words[wordCount * 2] = pos;
+                    words[wordCount * 2 + 1] = end;
+                    wordCount++;
+                    break;
+            }
+            pos = skipSpaces(end);
+        }
+        return true;
+    }
+
+    /**
+     * Calcule le code de hachage du nom de la commande, sans tenir compte de la
+     * casse. Il est égal à {@code name.toLowerCase().hashCode()} pour un nom
+     * ASCII.
+     *
+     * @return Le code de hachage du nom de la commande
+     */
+    public int commandHash() {
+        int h = 0;
+        for (int i = commandStart; i < commandEnd; i++) {
+            h = 31 * h + Character.toLowerCase(line.charAt(i));
+        }
+        return h;
+    }
+
+    /**
+     * @param name Nom en minuscules
+     * @return true si le nom de la commande est égal au nom spécifié, sans tenir
+     *         compte de la casse
+     */
+    public boolean commandEquals(String name) {
+        return commandEnd - commandStart == name.length()
+                && line.regionMatches(true, commandStart, name, 0, name.length());
+    }
+
+    /**
+     * @return Le nombre de paramètres entiers
+     */
+    public int intCount() {
+        return intCount;
+    }
+
+    /**
+     * @param index Rang du paramètre parmi les entiers
+     * @return La valeur du paramètre
+     */
+    public int intAt(int index) {
+        if (index >= intCount)
+            throw new IndexOutOfBoundsException("Paramètre entier " + index + " absent");
+        return ints[index];
+    }
+
+    /**
+     * @return Le nombre de paramètres flottants
+     */
+    public int floatCount() {
+        return floatCount;
+    }
+
+    /**
+     * @param index Rang du paramètre parmi les flottants
+     * @return La valeur du paramètre
+     */
+    public float floatAt(int index) {
+        if (index >= floatCount)
+            throw new IndexOutOfBoundsException("Paramètre flottant " + index + " absent");
+        return floats[index];
+    }
+
+    /**
+     * @return Le nombre de paramètres numériques, entiers et flottants
+     */
+    public int numberCount() {
+        return numberCount;
+    }
+
+    /**
+     * @param index Rang du paramètre parmi les entiers et les flottants
+     * @return La valeur du paramètre
+     */
+    public double numberAt(int index) {
+        if (index >= numberCount)
+            throw new IndexOutOfBoundsException("Paramètre numérique " + index + " absent");
+        return numbers[index];
+    }
+
+    /**
+     * @return Le nombre de paramètres de type mot
+     */
+    public int wordCount() {
+        return wordCount;
+    }
+
+    /**
+     * @param index Rang du paramètre parmi les mots
+     * @param value Valeur attendue
+     * @return true si le mot est égal à la valeur, casse comprise
+     */
+    public boolean wordEquals(int index, String value) {
+        return wordMatches(index, value, false);
+    }
+
+    /**
+     * @param index Rang du paramètre parmi les mots
+     * @param value Valeur attendue
+     * @return true si le mot est égal à la valeur, sans tenir compte de la casse
+     */
+    public boolean wordEqualsIgnoreCase(int index, String value) {
+        return wordMatches(index, value, true);
+    }
+
+    /**
+     * @param index Rang du paramètre parmi les mots
+     * @return Le mot, sous forme d'une nouvelle chaîne
+     */
+    public String word(int index) {
+        if (index >= wordCount)
+            throw new IndexOutOfBoundsException("Paramètre " + index + " absent");
+        return line.substring(words[index * 2], words[index * 2 + 1]);
+    }
+
+    /**
+     * Copie les paramètres entiers dans un nouveau tableau.
+     *
+     * @return Les paramètres entiers, dans l'ordre de la ligne
+     */
+    public int[] copyInts() {
+        return Arrays.copyOf(ints, intCount);
+    }
+
+    private void addNumber(double value) {
+        if (numberCount == numbers.length) {
+            numbers = Arrays.copyOf(numbers, numberCount * 2);
+        }
+        numbers[numberCount++] = value;
+    }
+
+    private boolean wordMatches(int index, String value, boolean ignoreCase) {
+        if (index >= wordCount)
+            return false;
+        int start = words[index * 2];
+        int end = words[index * 2 + 1];
+        return end - start == value.length()
+                && line.regionMatches(ignoreCase, start, value, 0, value.length());
+    }
+
+    private int skipSpaces(int pos) {
+        int length = line.length();
+        while (pos < length && isSpace(line.charAt(pos))) {
+            pos++;
+        }
+        return pos;
+    }
+
+    private int skipToken(int pos) {
+        int length = line.length();
+        while (pos < length && !isSpace(line.charAt(pos))) {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static boolean isSpace(char c) {
+        // Même ensemble que \s dans les expressions régulières
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    /**
+     * Classe un mot et en convertit la valeur s'il est numérique.
+     *
+     * @return 1 pour un entier, 2 pour un flottant, 0 pour un mot
+     */
+    private int classify(int start, int end) {
+        int pos = start;
+        boolean negative = false;
+        char c = line.charAt(pos);
+        if (c == '+' || c == '-') {
+            negative = c == '-';
+            pos++;
+        }
+
+        // Partie entière
+        long mantissa = 0;
+        int significant = 0;
+        int exponent = 0;
+        int digits = 0;
+        boolean intOverflow = false;
+        long intValue = 0;
+        while (pos < end && isDigit(c = line.charAt(pos))) {
+            int d = c - '0';
+            if (!intOverflow) {
+                intValue = intValue * 10 + d;
+                if (intValue > (long) Integer.MAX_VALUE + 1) {
+                    intOverflow = true;
+                }
+            }
+            if (significant < 18) {
+                if (mantissa != 0 || d != 0) {
+                    significant++;
+                }
+                mantissa = mantissa * 10 + d;
+            } else {
+                exponent++;
+            }
+            digits++;
+            pos++;
+        }
+
+        if (pos == end) {
+            if (digits == 0)
+                return 0;
+            long signed = negative ? -intValue : intValue;
+            if (!intOverflow && signed >= Integer.MIN_VALUE && signed <= Integer.MAX_VALUE) {
+                parsedInt = (int) signed;
+                return 1;
+            }
+            parsedFloat = toFloat(negative, mantissa, exponent);
+            return 2;
+        }
+
+        // Partie décimale
+        if (c == '.') {
+            pos++;
+            while (pos < end && isDigit(c = line.charAt(pos))) {
+                int d = c - '0';
+                if (significant < 18) {
+                    if (mantissa != 0 || d != 0) {
+                        significant++;
+                    }
+                    mantissa = mantissa * 10 + d;
+                    exponent--;
+                }
+                digits++;
+                pos++;
+            }
+        }
+        if (digits == 0)
+            return 0;
+
+        // Exposant
+        if (pos < end && (c == 'e' || c == 'E')) {
+            pos++;
+            boolean negativeExponent = false;
+            if (pos < end && ((c = line.charAt(pos)) == '+' || c == '-')) {
+                negativeExponent = c == '-';
+                pos++;
+            }
+            int exponentDigits = 0;
+            int value = 0;
+            while (pos < end && isDigit(c = line.charAt(pos))) {
+                if (value < 10000) {
+                    value = value * 10 + (c - '0');
+                }
+                exponentDigits++;
+                pos++;
+            }
+            if (exponentDigits == 0)
+                return 0;
+            exponent += negativeExponent ? -value : value;
+        }
+
+        // Suffixe de type, accepté par Float.parseFloat
+        if (pos < end && ((c = line.charAt(pos)) == 'f' || c == 'F' || c == 'd' || c == 'D')) {
+            pos++;
+        }
+        if (pos != end)
+            return 0;
+
+        parsedFloat = toFloat(negative, mantissa, exponent);
+        return 2;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static float toFloat(boolean negative, long mantissa, int exponent) {
+        double value = mantissa;
+        if (mantissa != 0 && exponent != 0) {
+            if (exponent > 0 && exponent < POWERS_OF_TEN.length) {
+                value *= POWERS_OF_TEN[exponent];
+            } else if (exponent < 0 && -exponent < POWERS_OF_TEN.length) {
+                value /= POWERS_OF_TEN[-exponent];
+            } else {
+                value *= Math.pow(10, exponent);
+            }
+        }
+        return (float) (negative ? -value : value);
+    }
+}
\ No newline at end of file
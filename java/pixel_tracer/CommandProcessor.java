@@ -1,6 +1,16 @@
 package pixel_tracer;
 
-import java.util.ArrayList;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.List;
 import java.util.Scanner;
 
@@ -11,6 +21,28 @@ import java.util.Scanner;
 public class CommandProcessor {
     private PixelTracerApp app;
     private boolean running;
+    private TerminalRenderer terminal;
+    private int scriptDepth;
+    private final CommandLexer lexer;
+    private Journal journal;
+    private PrintStream out;
+    private PrintStream err;
+
+    // Table de dispatch des commandes, adressée par le code de hachage du nom
+    private final String[] commandNames;
+    private final Command[] commands;
+
+    // Profondeur maximale d'imbrication des commandes "source"
+    private static final int MAX_SCRIPT_DEPTH = 16;
+
+    // Épaisseur maximale du trait d'une forme
+    private static final float MAX_THICKNESS = 255;
+
+    // Facteur maximal d'une mise à l'échelle, et son inverse minimal
+    private static final double MAX_SCALE = 1000;
+
+    // Taille maximale d'une vue, en caractères
+    private static final int MAX_VIEW_SIZE = 4096;
 
     // Messages d'erreur
     private static final String[] ERROR_MESSAGES = {
@@ -34,6 +66,42 @@ public class CommandProcessor {
     public CommandProcessor(PixelTracerApp app) {
         this.app = app;
         this.running = true;
+        this.out = System.out;
+        this.err = System.err;
+        this.lexer = new CommandLexer();
+        this.commandNames = new String[64];
+        this.commands = new Command[64];
+        registerCommands();
+    }
+
+    /**
+     * Attache un journal, qui reçoit chaque commande exécutée avec succès.
+     * 
+     * @param journal Le journal, ou null pour ne plus journaliser
+     */
+    public void setJournal(Journal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Redirige les informations affichées par les commandes (listes, aide,
+     * confirmations, trames des scripts), écrites par défaut sur la sortie
+     * standard, et les erreurs, écrites par défaut sur la sortie d'erreur.
+     * 
+     * @param out Le flux recevant les informations
+     * @param err Le flux recevant les erreurs
+     */
+    public void setOutput(PrintStream out, PrintStream err) {
+        this.out = out;
+        this.err = err;
+    }
+
+    /**
+     * @param errorCode Un code d'erreur renvoyé par {@link #processCommand(String)}
+     * @return Le message associé au code
+     */
+    static String message(int errorCode) {
+        return ERROR_MESSAGES[errorCode];
     }
 
     /**
@@ -42,29 +110,256 @@ public class CommandProcessor {
     public void startInteractive() {
         Scanner scanner = new Scanner(System.in);
 
-        clearScreen();
-        app.renderCurrentArea();
-        app.getCurrentArea().draw();
+        // Dans un terminal ANSI, seules les cellules modifiées sont réaffichées
+        if (TerminalRenderer.isSupported()) {
+            terminal = new TerminalRenderer(out);
+        }
+        redraw();
 
         while (running) {
-            System.out.print("pixel_tracer> ");
+            out.print("pixel_tracer> ");
             String input = scanner.nextLine().trim();
 
             int errorCode = processCommand(input);
-            System.out.println(ERROR_MESSAGES[errorCode]);
+            out.println(ERROR_MESSAGES[errorCode]);
+            if (terminal != null) {
+                // Ligne de saisie et message
+                terminal.linesWritten(2);
+                if (errorCode == 7 || errorCode == 8) {
+                    // Aide ou listes : hauteur inconnue, la trame a pu défiler
+                    terminal.invalidate();
+                }
+            }
 
             if (errorCode == 4) { // Quitter
                 running = false;
             } else if (errorCode == 0 || errorCode == 6) { // Succès ou traçage
-                clearScreen();
-                app.renderCurrentArea();
-                app.getCurrentArea().draw();
+                redraw();
             } else if (errorCode == 5) { // Effacer écran
                 clearScreen();
+                if (terminal != null) {
+                    terminal.invalidate();
+                }
             }
         }
     }
 
+    /**
+     * Exécute un fichier de commandes sans affichage intermédiaire : la zone
+     * courante n'est rendue et écrite sur la sortie standard qu'aux commandes
+     * "plot" et à la fin du script. Les commandes en échec sont signalées sur la
+     * sortie d'erreur avec leur numéro de ligne.
+     * 
+     * @param path Chemin du fichier, ou "-" pour l'entrée standard
+     * @return Le nombre de commandes en échec
+     * @throws IOException si le fichier ne peut pas être lu
+     */
+    public int runBatch(String path) throws IOException {
+        BufferedReader reader = path.equals("-")
+                ? new BufferedReader(new InputStreamReader(System.in, Charset.defaultCharset()))
+                : Files.newBufferedReader(Paths.get(path), Charset.defaultCharset());
+        try {
+            Script script = new Script();
+            runScript(reader, path, script);
+            if (script.modified && app.getCurrentArea() != null) {
+                app.renderCurrentArea();
+                drawCurrentArea();
+            }
+            return script.errors;
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Exécute les commandes d'un script, une par ligne. Les lignes vides et
+     * celles qui commencent par '#' sont ignorées ; "exit" arrête le script,
+     * l'appelant décidant de ce qu'il termine.
+     * 
+     * @param reader Le script
+     * @param name   Nom du script, pour les messages d'erreur
+     * @param script État de l'exécution, mis à jour en place
+     * @throws IOException si le script ne peut pas être lu
+     */
+    private void runScript(BufferedReader reader, String name, Script script) throws IOException {
+        int lineNumber = 0;
+        String line;
+        while (!script.exited && (line = reader.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.charAt(0) == '#')
+                continue;
+
+            int errorCode = processCommand(line);
+            switch (errorCode) {
+                case 0: // Succès
+                    script.modified = true;
+                    break;
+                case 4: // Quitter
+                    script.exited = true;
+                    break;
+                case 6: // Tracer
+                    if (app.getCurrentArea() != null) {
+                        app.renderCurrentArea();
+                        drawCurrentArea();
+                    }
+                    script.modified = false;
+                    break;
+                case 1:
+                case 3:
+                case 9:
+                    script.errors++;
+                    err.println(name + ":" + lineNumber + ": " + ERROR_MESSAGES[errorCode] + " : " + line);
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Écrit la trame de la zone courante sur le flux des informations.
+     */
+    private void drawCurrentArea() {
+        try {
+            app.getCurrentArea().draw((OutputStream) out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * État d'un script en cours d'exécution.
+     */
+    private static final class Script {
+        /** Nombre de commandes en échec. */
+        int errors;
+        /** Scène modifiée depuis le dernier "plot". */
+        boolean modified;
+        /** "exit" rencontré. */
+        boolean exited;
+    }
+
+    /**
+     * Exécute un script depuis la commande "source", sans rendu intermédiaire.
+     * 
+     * @param path Chemin du script
+     * @return Un code d'erreur
+     */
+    private int sourceScript(String path) {
+        if (scriptDepth >= MAX_SCRIPT_DEPTH) {
+            err.println(path + ": imbrication des scripts trop profonde");
+            return 3;
+        }
+
+        scriptDepth++;
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(path), Charset.defaultCharset())) {
+            Script script = new Script();
+            runScript(reader, path, script);
+            return script.exited ? 4 : 0;
+        } catch (IOException e) {
+            err.println("Erreur lors de la lecture de " + path + ": " + e.getMessage());
+            return 9; // Fichier non trouvé
+        } finally {
+            scriptDepth--;
+        }
+    }
+
+    /**
+     * Effectue le rendu de la zone courante et l'affiche, en ne réécrivant que
+     * les cellules modifiées lorsque le terminal le permet.
+     */
+    private void redraw() {
+        if (app.getCurrentArea() == null)
+            return;
+
+        app.renderCurrentArea();
+        if (terminal != null) {
+            terminal.present(app.getCurrentArea());
+        } else {
+            clearScreen();
+            drawCurrentArea();
+        }
+    }
+
+    /**
+     * Action associée à un nom de commande.
+     */
+    private interface Command {
+        /**
+         * @param args La ligne analysée
+         * @return Un code d'erreur
+         */
+        int execute(CommandLexer args);
+    }
+
+    /**
+     * Enregistre les commandes dans la table de dispatch.
+     */
+    private void registerCommands() {
+        register("exit", args -> 4); // Quitter
+        register("clear", args -> 5); // Effacer écran
+        register("plot", args -> 6); // Tracer
+        register("help", this::help);
+        register("source", this::source);
+        register("save", this::save);
+        register("load", this::load);
+        register("point", this::point);
+        register("line", this::line);
+        register("square", this::square);
+        register("rectangle", this::rectangle);
+        register("circle", this::circle);
+        register("resize", this::resize);
+        register("polygon", this::polygon);
+        register("curve", this::curve);
+        register("rotate", this::rotate);
+        register("scale", this::scale);
+        register("translate", this::translate);
+        register("view", this::view);
+        register("pan", this::pan);
+        register("zoom", this::zoom);
+        register("list", this::list);
+        register("select", this::select);
+        register("new", this::create);
+        register("delete", this::delete);
+        register("set", this::set);
+        register("undo", this::undo);
+        register("redo", this::redo);
+    }
+
+    /**
+     * Ajoute une commande à la table de dispatch, adressée par le code de hachage
+     * de son nom avec sondage linéaire.
+     * 
+     * @param name    Nom de la commande, en minuscules
+     * @param command Action associée
+     */
+    private void register(String name, Command command) {
+        int index = name.hashCode() & (commandNames.length - 1);
+        while (commandNames[index] != null) {
+            index = (index + 1) & (commandNames.length - 1);
+        }
+        commandNames[index] = name;
+        commands[index] = command;
+    }
+
+    /**
+     * Recherche la commande correspondant au premier mot de la ligne analysée,
+     * sans allouer de chaîne.
+     * 
+     * @return La commande, ou null si elle est inconnue
+     */
+    private Command lookup(CommandLexer args) {
+        int index = args.commandHash() & (commandNames.length - 1);
+        while (commandNames[index] != null) {
+            if (args.commandEquals(commandNames[index])) {
+                return commands[index];
+            }
+            index = (index + 1) & (commandNames.length - 1);
+        }
+        return null;
+    }
+
     /**
      * Traite une commande textuelle.
      * 
@@ -72,338 +367,645 @@ public class CommandProcessor {
      * @return Un code d'erreur
      */
     public int processCommand(String commandLine) {
-        if (commandLine == null || commandLine.isEmpty()) {
+        if (commandLine == null || !lexer.tokenize(commandLine)) {
             return 2; // Commande vide
         }
 
-        String[] tokens = commandLine.split("\\s+");
-        String cmdName = tokens[0].toLowerCase();
-        List<String> strParams = new ArrayList<>();
-        List<Integer> intParams = new ArrayList<>();
-        List<Float> floatParams = new ArrayList<>();
-
-        // Analyser les paramètres
-        for (int i = 1; i < tokens.length; i++) {
-            String token = tokens[i];
-
-            try {
-                // Essayer de convertir en entier
-                int intValue = Integer.parseInt(token);
-                intParams.add(intValue);
-            } catch (NumberFormatException e1) {
-                try {
-                    // Essayer de convertir en flottant
-                    float floatValue = Float.parseFloat(token);
-                    floatParams.add(floatValue);
-                } catch (NumberFormatException e2) {
-                    // Considérer comme une chaîne
-                    strParams.add(token);
-                }
+        Command command = lookup(lexer);
+        if (command == null) {
+            return 1; // Commande inconnue
+        }
+        if (journal == null) {
+            return command.execute(lexer);
+        }
+
+        // Les lignes d'un script sont journalisées une à une ; un projet
+        // chargé ne peut l'être que par un instantané
+        boolean script = lexer.commandEquals("source");
+        boolean loaded = lexer.commandEquals("load");
+        if (script) {
+            return command.execute(lexer);
+        }
+
+        // Les identifiants distribués sont journalisés avec la commande, pour
+        // qu'elle les retrouve à la reprise
+        int errorCode;
+        long[] ids;
+        IdGenerator.beginRecording();
+        try {
+            errorCode = command.execute(lexer);
+        } finally {
+            ids = IdGenerator.endRecording();
+        }
+        if (errorCode == 0) {
+            if (loaded) {
+                journal.checkpoint();
+            } else {
+                journal.append(commandLine, ids);
             }
         }
+        return errorCode;
+    }
 
-        // Traiter la commande
-        switch (cmdName) {
-            case "exit":
-                return 4; // Quitter
+    private int help(CommandLexer args) {
+        printHelp();
+        return 7; // Aide affichée
+    }
 
-            case "clear":
-                return 5; // Effacer écran
+    private int source(CommandLexer args) {
+        if (args.wordCount() < 1)
+            return 3; // Paramètres insuffisants
+        return sourceScript(args.word(0));
+    }
 
-            case "plot":
-                return 6; // Tracer
+    private int save(CommandLexer args) {
+        if (args.wordCount() < 1)
+            return 3; // Paramètres insuffisants
+        String path = args.word(0);
+        try {
+            Path file = Paths.get(path);
+            ProjectFile.save(app, file);
+            out.println("Projet enregistré dans " + path + " (" + Files.size(file) + " octets)");
+            return 8; // Information affichée
+        } catch (IOException | InvalidPathException e) {
+            err.println("Erreur lors de l'enregistrement de " + path + ": " + e.getMessage());
+            return 9; // Fichier non accessible
+        }
+    }
 
-            case "help":
-                printHelp();
-                return 7; // Aide affichée
+    private int load(CommandLexer args) {
+        if (args.wordCount() < 1)
+            return 3; // Paramètres insuffisants
+        String path = args.word(0);
+        try {
+            ProjectFile.load(app, Paths.get(path));
+            return 0;
+        } catch (IOException | InvalidPathException e) {
+            err.println("Erreur lors du chargement de " + path + ": " + e.getMessage());
+            return 9; // Fichier non trouvé ou invalide
+        }
+    }
 
-            case "point":
-                if (intParams.size() < 2)
-                    return 3; // Paramètres insuffisants
+    private int undo(CommandLexer args) {
+        int count = args.intCount() > 0 ? args.intAt(0) : 1;
+        if (count < 1)
+            return 3; // Paramètres incorrects
+        int undone = 0;
+        while (undone < count && app.getHistory().undo(app)) {
+            undone++;
+        }
+        return undone > 0 ? 0 : 9; // Rien à annuler
+    }
 
-                if (app.getCurrentLayer() != null) {
-                    PointShape point = new PointShape(intParams.get(0), intParams.get(1));
-                    app.getCurrentLayer().addShape(point);
-                    return 0;
-                }
-                return 9; // Aucune couche active
+    private int redo(CommandLexer args) {
+        int count = args.intCount() > 0 ? args.intAt(0) : 1;
+        if (count < 1)
+            return 3; // Paramètres incorrects
+        int redone = 0;
+        while (redone < count && app.getHistory().redo(app)) {
+            redone++;
+        }
+        return redone > 0 ? 0 : 9; // Rien à rétablir
+    }
 
-            case "line":
-                if (intParams.size() < 4)
-                    return 3; // Paramètres insuffisants
+    /**
+     * Ajoute une forme à la couche active et enregistre l'ajout dans
+     * l'historique.
+     */
+    private void addShape(Shape shape) {
+        Layer layer = app.getCurrentLayer();
+        layer.addShape(shape);
+        app.getHistory().record(Edits.addShape(layer, shape));
+    }
 
-                if (app.getCurrentLayer() != null) {
-                    LineShape line = new LineShape(
-                            intParams.get(0), intParams.get(1),
-                            intParams.get(2), intParams.get(3));
-                    app.getCurrentLayer().addShape(line);
-                    return 0;
-                }
-                return 9; // Aucune couche active
+    /**
+     * Enregistre dans l'historique la modification de l'apparence d'une forme,
+     * si elle a changé.
+     * 
+     * @param before L'apparence de la forme avant la modification
+     * @return Le code de succès
+     */
+    private int styleChanged(Shape shape, Edits.Style before) {
+        Edit edit = Edits.style(shape, before);
+        if (edit != null) {
+            app.getHistory().record(edit);
+        }
+        return 0;
+    }
 
-            case "square":
-                if (intParams.size() < 3)
-                    return 3; // Paramètres insuffisants
+    private int point(CommandLexer args) {
+        if (args.intCount() < 2)
+            return 3; // Paramètres insuffisants
 
-                if (app.getCurrentLayer() != null) {
-                    SquareShape square = new SquareShape(
-                            intParams.get(0), intParams.get(1),
-                            intParams.get(2));
-                    app.getCurrentLayer().addShape(square);
-                    return 0;
-                }
-                return 9; // Aucune couche active
+        if (app.getCurrentLayer() != null) {
+            PointShape point = new PointShape(args.intAt(0), args.intAt(1));
+            addShape(point);
+            return 0;
+        }
+        return 9; // Aucune couche active
+    }
 
-            case "rectangle":
-                if (intParams.size() < 4)
-                    return 3; // Paramètres insuffisants
+    private int line(CommandLexer args) {
+        if (args.intCount() < 4)
+            return 3; // Paramètres insuffisants
 
-                if (app.getCurrentLayer() != null) {
-                    RectangleShape rectangle = new RectangleShape(
-                            intParams.get(0), intParams.get(1),
-                            intParams.get(2), intParams.get(3));
-                    app.getCurrentLayer().addShape(rectangle);
-                    return 0;
-                }
-                return 9; // Aucune couche active
+        if (app.getCurrentLayer() != null) {
+            LineShape line = new LineShape(
+                    args.intAt(0), args.intAt(1),
+                    args.intAt(2), args.intAt(3));
+            addShape(line);
+            return 0;
+        }
+        return 9; // Aucune couche active
+    }
 
-            case "circle":
-                if (intParams.size() < 3)
-                    return 3; // Paramètres insuffisants
+    private int square(CommandLexer args) {
+        if (args.intCount() < 3)
+            return 3; // Paramètres insuffisants
 
-                if (app.getCurrentLayer() != null) {
-                    CircleShape circle = new CircleShape(
-                            intParams.get(0), intParams.get(1),
-                            intParams.get(2));
-                    app.getCurrentLayer().addShape(circle);
-                    return 0;
-                }
-                return 9; // Aucune couche active
+        if (app.getCurrentLayer() != null) {
+            SquareShape square = new SquareShape(
+                    args.intAt(0), args.intAt(1),
+                    args.intAt(2));
+            addShape(square);
+            return 0;
+        }
+        return 9; // Aucune couche active
+    }
 
-            case "resize":
-                if (intParams.size() < 2)
-                    return 3; // Paramètres insuffisants
+    private int rectangle(CommandLexer args) {
+        if (args.intCount() < 4)
+            return 3; // Paramètres insuffisants
 
-                if (app.getCurrentArea() != null) {
-                    if (app.resizeCurrentArea(intParams.get(0), intParams.get(1))) {
-                        return 0;
-                    }
-                    return 8; // Erreur de redimensionnement
-                }
-                return 9; // Aucune zone active
+        if (app.getCurrentLayer() != null) {
+            RectangleShape rectangle = new RectangleShape(
+                    args.intAt(0), args.intAt(1),
+                    args.intAt(2), args.intAt(3));
+            addShape(rectangle);
+            return 0;
+        }
+        return 9; // Aucune couche active
+    }
 
-            case "polygon":
-                if (intParams.size() < 4 || intParams.size() % 2 != 0)
-                    return 3; // Paramètres insuffisants ou nombre impair
+    private int circle(CommandLexer args) {
+        if (args.intCount() < 3)
+            return 3; // Paramètres insuffisants
 
-                if (app.getCurrentLayer() != null) {
-                    int[] coordinates = new int[intParams.size()];
-                    for (int i = 0; i < intParams.size(); i++) {
-                        coordinates[i] = intParams.get(i);
-                    }
-                    PolygonShape polygon = new PolygonShape(coordinates);
-                    app.getCurrentLayer().addShape(polygon);
-                    return 0;
-                }
-                return 9; // Aucune couche active
-
-            case "curve":
-                if (intParams.size() < 8)
-                    return 3; // Paramètres insuffisants
-
-                if (app.getCurrentLayer() != null) {
-                    CurveShape curve = new CurveShape(
-                            intParams.get(0), intParams.get(1),
-                            intParams.get(2), intParams.get(3),
-                            intParams.get(4), intParams.get(5),
-                            intParams.get(6), intParams.get(7));
-                    app.getCurrentLayer().addShape(curve);
-                    return 0;
+        if (app.getCurrentLayer() != null) {
+            CircleShape circle = new CircleShape(
+                    args.intAt(0), args.intAt(1),
+                    args.intAt(2));
+            addShape(circle);
+            return 0;
+        }
+        return 9; // Aucune couche active
+    }
+
+    private int resize(CommandLexer args) {
+        if (args.intCount() < 2)
+            return 3; // Paramètres insuffisants
+
+        Area area = app.getCurrentArea();
+        if (area != null) {
+            int oldWidth = area.getWidth();
+            int oldHeight = area.getHeight();
+            if (app.resizeCurrentArea(args.intAt(0), args.intAt(1))) {
+                if (area.getWidth() != oldWidth || area.getHeight() != oldHeight) {
+                    app.getHistory().record(Edits.resize(area, oldWidth, oldHeight));
                 }
-                return 9; // Aucune couche active
+                return 0;
+            }
+            return 8; // Erreur de redimensionnement
+        }
+        return 9; // Aucune zone active
+    }
 
-            case "list":
-                if (strParams.size() < 1)
-                    return 3; // Paramètres insuffisants
+    private int polygon(CommandLexer args) {
+        if (args.intCount() < 4 || args.intCount() % 2 != 0)
+            return 3; // Paramètres insuffisants ou nombre impair
 
-                switch (strParams.get(0).toLowerCase()) {
-                    case "areas":
-                        listAreas();
-                        return 8;
+        if (app.getCurrentLayer() != null) {
+            PolygonShape polygon = new PolygonShape(args.copyInts());
+            addShape(polygon);
+            return 0;
+        }
+        return 9; // Aucune couche active
+    }
 
-                    case "layers":
-                        if (app.getCurrentArea() != null) {
-                            listLayers();
-                            return 8;
-                        }
-                        return 9; // Aucune zone active
+    private int curve(CommandLexer args) {
+        if (args.intCount() < 8)
+            return 3; // Paramètres insuffisants
+
+        if (app.getCurrentLayer() != null) {
+            CurveShape curve = new CurveShape(
+                    args.intAt(0), args.intAt(1),
+                    args.intAt(2), args.intAt(3),
+                    args.intAt(4), args.intAt(5),
+                    args.intAt(6), args.intAt(7));
+            addShape(curve);
+            return 0;
+        }
+        return 9; // Aucune couche active
+    }
 
-                    case "shapes":
-                        if (app.getCurrentLayer() != null) {
-                            listShapes();
-                            return 8;
-                        }
-                        return 9; // Aucune couche active
+    private int rotate(CommandLexer args) {
+        if (args.numberCount() < 2)
+            return 3; // Paramètres insuffisants
 
-                    default:
-                        return 3; // Paramètres incorrects
-                }
+        Shape shape = findShape(args);
+        if (shape == null)
+            return 9; // Forme non trouvée
 
-            case "select":
-                if (strParams.size() < 1 || intParams.size() < 1)
-                    return 3; // Paramètres insuffisants
-
-                switch (strParams.get(0).toLowerCase()) {
-                    case "area":
-                        for (Area area : app.getAreas()) {
-                            if (area.getId() == intParams.get(0)) {
-                                app.setCurrentArea(area);
-                                return 0;
-                            }
-                        }
-                        return 9; // Zone non trouvée
-
-                    case "layer":
-                        if (app.getCurrentArea() != null) {
-                            Layer layer = app.getCurrentArea().findLayerById(intParams.get(0));
-                            if (layer != null) {
-                                app.setCurrentLayer(layer);
-                                return 0;
-                            }
-                        }
-                        return 9; // Couche non trouvée
+        double angle = args.numberAt(1);
+        if (Double.isNaN(angle) || Double.isInfinite(angle))
+            return 3; // Paramètres incorrects
+        Edits.Style before = Edits.styleOf(shape);
+        shape.transform(Transform.rotation(angle, shape.getCenterX(), shape.getCenterY()));
+        return styleChanged(shape, before);
+    }
 
-                    case "shape":
-                        if (app.getCurrentLayer() != null) {
-                            Shape shape = app.getCurrentLayer().findShapeById(intParams.get(0));
-                            if (shape != null) {
-                                app.setCurrentShape(shape);
-                                return 0;
-                            }
-                        }
-                        return 9; // Forme non trouvée
+    private int scale(CommandLexer args) {
+        if (args.numberCount() < 2)
+            return 3; // Paramètres insuffisants
+
+        Shape shape = findShape(args);
+        if (shape == null)
+            return 9; // Forme non trouvée
+
+        double sx = args.numberAt(1);
+        double sy = args.numberCount() > 2 ? args.numberAt(2) : sx;
+        if (!isScaleFactor(sx) || !isScaleFactor(sy))
+            return 3; // Paramètres incorrects
+        Edits.Style before = Edits.styleOf(shape);
+        shape.transform(Transform.scaling(sx, sy, shape.getCenterX(), shape.getCenterY()));
+        return styleChanged(shape, before);
+    }
 
-                    default:
-                        return 3; // Paramètres incorrects
-                }
+    private int translate(CommandLexer args) {
+        if (args.numberCount() < 3)
+            return 3; // Paramètres insuffisants
+
+        Shape shape = findShape(args);
+        if (shape == null)
+            return 9; // Forme non trouvée
+
+        double dx = args.numberAt(1);
+        double dy = args.numberAt(2);
+        if (Math.abs(dx) > Integer.MAX_VALUE || Math.abs(dy) > Integer.MAX_VALUE)
+            return 3; // Paramètres incorrects
+        Edits.Style before = Edits.styleOf(shape);
+        shape.transform(Transform.translation(dx, dy));
+        return styleChanged(shape, before);
+    }
 
-            case "new":
-                if (strParams.size() < 1)
-                    return 3; // Paramètres insuffisants
-
-                switch (strParams.get(0).toLowerCase()) {
-                    case "area":
-                        String areaName = strParams.size() > 1 ? strParams.get(1) : "New Area";
-                        Area area = app.createArea(80, 40, areaName);
-                        app.setCurrentArea(area);
-
-                        // Ajouter une couche par défaut
-                        Layer layer = new Layer((int) IdGenerator.getNextId(), "Layer 1");
-                        area.addLayer(layer);
-                        app.setCurrentLayer(layer);
-                        return 0;
-
-                    case "layer":
-                        if (app.getCurrentArea() != null) {
-                            String layerName = strParams.size() > 1 ? strParams.get(1) : "New Layer";
-                            Layer newLayer = new Layer((int) IdGenerator.getNextId(), layerName);
-                            app.getCurrentArea().addLayer(newLayer);
-                            app.setCurrentLayer(newLayer);
-                            return 0;
-                        }
-                        return 9; // Aucune zone active
+    private int view(CommandLexer args) {
+        Area area = app.getCurrentArea();
+        if (area == null)
+            return 9; // Aucune zone active
 
-                    default:
-                        return 3; // Paramètres incorrects
-                }
+        if (args.wordCount() > 0 && args.wordEqualsIgnoreCase(0, "off")) {
+            area.setViewport(null);
+            return 0;
+        }
+        if (args.intCount() < 4)
+            return 3; // Paramètres insuffisants
+        int width = args.intAt(2);
+        int height = args.intAt(3);
+        if (width < 1 || height < 1 || width > MAX_VIEW_SIZE || height > MAX_VIEW_SIZE)
+            return 3; // Paramètres incorrects
+        Viewport current = area.getViewport();
+        int zoom = current != null ? current.getZoom() : 0;
+        area.setViewport(new Viewport(args.intAt(0), args.intAt(1), width, height, zoom));
+        return 0;
+    }
 
-            case "delete":
-                if (strParams.size() < 1 || intParams.size() < 1)
-                    return 3; // Paramètres insuffisants
-
-                switch (strParams.get(0).toLowerCase()) {
-                    case "area":
-                        for (Area area : new ArrayList<>(app.getAreas())) {
-                            if (area.getId() == intParams.get(0)) {
-                                app.removeArea(area);
-                                return 0;
-                            }
-                        }
-                        return 9; // Zone non trouvée
-
-                    case "layer":
-                        if (app.getCurrentArea() != null) {
-                            boolean removed = app.getCurrentArea().removeLayerById(intParams.get(0));
-                            if (removed) {
-                                // Si la couche supprimée était la couche active, sélectionner la première
-                                // couche
-                                if (!app.getCurrentArea().getLayers().isEmpty()) {
-                                    app.setCurrentLayer(app.getCurrentArea().getLayers().get(0));
-                                } else {
-                                    app.setCurrentLayer(null);
-                                }
-                                return 0;
-                            }
-                        }
-                        return 9; // Couche non trouvée ou aucune zone active
-
-                    case "shape":
-                        if (app.getCurrentLayer() != null) {
-                            boolean removed = app.getCurrentLayer().removeShapeById(intParams.get(0));
-                            if (removed) {
-                                app.setCurrentShape(null);
-                                return 0;
-                            }
-                        }
-                        return 9; // Forme non trouvée ou aucune couche active
+    private int pan(CommandLexer args) {
+        if (args.intCount() < 2)
+            return 3; // Paramètres insuffisants
+
+        Area area = app.getCurrentArea();
+        if (area == null || area.getViewport() == null)
+            return 9; // Aucune vue active
+        long x = (long) area.getViewport().getX() + args.intAt(0);
+        long y = (long) area.getViewport().getY() + args.intAt(1);
+        if (x != (int) x || y != (int) y)
+            return 3; // Paramètres incorrects
+        area.setViewport(area.getViewport().pan(args.intAt(0), args.intAt(1)));
+        return 0;
+    }
 
-                    default:
-                        return 3; // Paramètres incorrects
+    private int zoom(CommandLexer args) {
+        Area area = app.getCurrentArea();
+        if (area == null || area.getViewport() == null)
+            return 9; // Aucune vue active
+
+        Viewport viewport = area.getViewport();
+        int level;
+        if (args.wordCount() > 0 && args.wordEqualsIgnoreCase(0, "in")) {
+            level = viewport.getZoom() + 1;
+        } else if (args.wordCount() > 0 && args.wordEqualsIgnoreCase(0, "out")) {
+            level = viewport.getZoom() - 1;
+        } else if (args.intCount() > 0) {
+            level = args.intAt(0);
+            if (level < Viewport.MIN_ZOOM || level > Viewport.MAX_ZOOM)
+                return 3; // Paramètres incorrects
+        } else {
+            return 3; // Paramètres insuffisants
+        }
+        area.setViewport(viewport.zoom(level));
+        return 0;
+    }
+
+    /**
+     * Recherche dans la couche courante la forme dont l'identifiant est le
+     * premier paramètre numérique.
+     * 
+     * @return La forme, ou null si elle n'existe pas
+     */
+    private Shape findShape(CommandLexer args) {
+        if (app.getCurrentLayer() == null || args.intCount() == 0 || args.numberAt(0) != args.intAt(0))
+            return null;
+        return app.getCurrentLayer().findShapeById(args.intAt(0));
+    }
+
+    private static boolean isScaleFactor(double factor) {
+        double magnitude = Math.abs(factor);
+        return magnitude >= 1 / MAX_SCALE && magnitude <= MAX_SCALE;
+    }
+
+    private int list(CommandLexer args) {
+        if (args.wordCount() < 1)
+            return 3; // Paramètres insuffisants
+
+        if (args.wordEqualsIgnoreCase(0, "areas")) {
+            listAreas();
+            return 8;
+        } else if (args.wordEqualsIgnoreCase(0, "layers")) {
+            if (app.getCurrentArea() != null) {
+                listLayers();
+                return 8;
+            }
+            return 9; // Aucune zone active
+        } else if (args.wordEqualsIgnoreCase(0, "shapes")) {
+            if (app.getCurrentLayer() != null) {
+                listShapes();
+                return 8;
+            }
+            return 9; // Aucune couche active
+        }
+        return 3; // Paramètres incorrects
+    }
+
+    private int select(CommandLexer args) {
+        if (args.wordCount() < 1 || args.intCount() < 1)
+            return 3; // Paramètres insuffisants
+
+        if (args.wordEqualsIgnoreCase(0, "area")) {
+            Area selected = app.findAreaById(args.intAt(0));
+            if (selected != null) {
+                app.setCurrentArea(selected);
+                return 0;
+            }
+            return 9; // Zone non trouvée
+        } else if (args.wordEqualsIgnoreCase(0, "layer")) {
+            if (app.getCurrentArea() != null) {
+                Layer layer = app.getCurrentArea().findLayerById(args.intAt(0));
+                if (layer != null) {
+                    app.setCurrentLayer(layer);
+                    return 0;
+                }
+            }
+            return 9; // Couche non trouvée
+        } else if (args.wordEqualsIgnoreCase(0, "shape")) {
+            if (app.getCurrentLayer() != null) {
+                Shape shape = app.getCurrentLayer().findShapeById(args.intAt(0));
+                if (shape != null) {
+                    app.setCurrentShape(shape);
+                    return 0;
                 }
+            }
+            return 9; // Forme non trouvée
+        }
+        return 3; // Paramètres incorrects
+    }
+
+    private int create(CommandLexer args) {
+        if (args.wordCount() < 1)
+            return 3; // Paramètres insuffisants
+
+        if (args.wordEqualsIgnoreCase(0, "area")) {
+            String areaName = args.wordCount() > 1 ? args.word(1) : "New Area";
+            CanvasStorage grid;
+            if (args.wordCount() < 3 || args.wordEqualsIgnoreCase(2, "dense")) {
+                grid = new DenseCanvas(80, 40, '.');
+            } else if (args.wordEqualsIgnoreCase(2, "sparse")) {
+                grid = new TiledCanvas(80, 40, '.');
+            } else if (args.wordEqualsIgnoreCase(2, "mapped") && args.wordCount() > 3) {
+                grid = openMappedCanvas(args.word(3));
+                if (grid == null)
+                    return 9; // Fichier illisible
+            } else {
+                return 3; // Stockage inconnu
+            }
+            Area area = app.createArea(grid, areaName);
+            app.setCurrentArea(area);
+
+            // Ajouter une couche par défaut
+            Layer layer = new Layer((int) IdGenerator.getNextId(), "Layer 1");
+            area.addLayer(layer);
+            app.setCurrentLayer(layer);
+            app.getHistory().record(Edits.addArea(area));
+            return 0;
+        } else if (args.wordEqualsIgnoreCase(0, "layer")) {
+            if (app.getCurrentArea() != null) {
+                String layerName = args.wordCount() > 1 ? args.word(1) : "New Layer";
+                Layer newLayer = new Layer((int) IdGenerator.getNextId(), layerName);
+                app.getCurrentArea().addLayer(newLayer);
+                app.setCurrentLayer(newLayer);
+                app.getHistory().record(Edits.addLayer(app.getCurrentArea(), newLayer));
+                return 0;
+            }
+            return 9; // Aucune zone active
+        }
+        return 3; // Paramètres incorrects
+    }
 
-            case "set":
-                if (strParams.size() < 2)
-                    return 3; // Paramètres insuffisants
+    /**
+     * Ouvre la grille projetée d'un fichier, ou la crée si le fichier n'existe
+     * pas.
+     * 
+     * @return La grille, ou null si le fichier ne peut pas être utilisé
+     */
+    private MappedCanvas openMappedCanvas(String path) {
+        try {
+            Path file = Paths.get(path);
+            return Files.exists(file) ? MappedCanvas.open(file) : MappedCanvas.create(file, 80, 40, '.');
+        } catch (IOException | InvalidPathException e) {
+            err.println("Erreur lors de l'ouverture de " + path + ": " + e.getMessage());
+            return null;
+        }
+    }
 
-                if (strParams.get(0).equals("char")) {
-                    if (intParams.isEmpty())
-                        return 3; // Paramètres insuffisants
+    private int delete(CommandLexer args) {
+        if (args.wordCount() < 1 || args.intCount() < 1)
+            return 3; // Paramètres insuffisants
+
+        if (args.wordEqualsIgnoreCase(0, "area")) {
+            Area area = app.findAreaById(args.intAt(0));
+            if (area != null) {
+                // La grille reste ouverte tant que la suppression peut être annulée
+                Edit edit = Edits.removeArea(app, area);
+                app.detachArea(area);
+                app.getHistory().record(edit);
+                return 0;
+            }
+            return 9; // Zone non trouvée
+        } else if (args.wordEqualsIgnoreCase(0, "layer")) {
+            Area area = app.getCurrentArea();
+            Layer layer = area != null ? area.findLayerById(args.intAt(0)) : null;
+            if (layer != null) {
+                Edit edit = Edits.removeLayer(area, layer);
+                area.removeLayer(layer);
+                app.getHistory().record(edit);
+                // Si la couche supprimée était la couche active, sélectionner la première
+                // couche
+                if (!area.getLayers().isEmpty()) {
+                    app.setCurrentLayer(area.getLayers().get(0));
+                } else {
+                    app.setCurrentLayer(null);
+                }
+                return 0;
+            }
+            return 9; // Couche non trouvée ou aucune zone active
+        } else if (args.wordEqualsIgnoreCase(0, "shape")) {
+            Layer layer = app.getCurrentLayer();
+            Shape shape = layer != null ? layer.findShapeById(args.intAt(0)) : null;
+            if (shape != null) {
+                Edit edit = Edits.removeShape(layer, shape);
+                layer.removeShape(shape);
+                app.getHistory().record(edit);
+                app.setCurrentShape(null);
+                return 0;
+            }
+            return 9; // Forme non trouvée ou aucune couche active
+        }
+        return 3; // Paramètres incorrects
+    }
 
-                    if (app.getCurrentArea() != null) {
-                        char charValue = (char) intParams.get(0).intValue();
-
-                        if (strParams.get(1).equals("border")) {
-                            app.getCurrentArea().setFillChar(charValue);
-                            return 0;
-                        } else if (strParams.get(1).equals("background")) {
-                            app.getCurrentArea().setEmptyChar(charValue);
-                            return 0;
-                        }
+    private int set(CommandLexer args) {
+        // "set history n" est la seule forme à un seul mot
+        if (args.wordCount() < 2 && !args.wordEquals(0, "history"))
+            return 3; // Paramètres insuffisants
+
+        if (args.wordEquals(0, "char")) {
+            if (args.intCount() == 0)
+                return 3; // Paramètres insuffisants
+
+            Area area = app.getCurrentArea();
+            if (area != null) {
+                char charValue = (char) args.intAt(0);
+                char oldEmptyChar = area.getEmptyChar();
+                char oldFillChar = area.getFillChar();
+
+                if (args.wordEquals(1, "border")) {
+                    area.setFillChar(charValue);
+                } else if (args.wordEquals(1, "background")) {
+                    area.setEmptyChar(charValue);
+                } else {
+                    return 3; // Paramètres incorrects
+                }
+                if (area.getEmptyChar() != oldEmptyChar || area.getFillChar() != oldFillChar) {
+                    app.getHistory().record(Edits.chars(area, oldEmptyChar, oldFillChar));
+                }
+                return 0;
+            }
+        } else if (args.wordEquals(0, "layer")) {
+            if (args.intCount() == 0)
+                return 3; // Paramètres insuffisants
+
+            if (app.getCurrentArea() != null) {
+                Layer layer = app.getCurrentArea().findLayerById(args.intAt(0));
+
+                if (layer != null) {
+                    boolean visible;
+                    if (args.wordEquals(1, "visible")) {
+                        visible = true;
+                    } else if (args.wordEquals(1, "invisible") || args.wordEquals(1, "hidden")) {
+                        visible = false;
+                    } else {
+                        return 9; // Couche non trouvée
                     }
-                } else if (strParams.get(0).equals("layer")) {
-                    if (intParams.isEmpty())
-                        return 3; // Paramètres insuffisants
-
-                    if (app.getCurrentArea() != null) {
-                        Layer layer = app.getCurrentArea().findLayerById(intParams.get(0));
-
-                        if (layer != null) {
-                            if (strParams.get(1).equals("visible")) {
-                                layer.setVisible(true);
-                                return 0;
-                            } else if (strParams.get(1).equals("invisible") || strParams.get(1).equals("hidden")) {
-                                layer.setVisible(false);
-                                return 0;
-                            }
+                    if (layer.isVisible() != visible) {
+                        layer.setVisible(visible);
+                        app.getHistory().record(Edits.visibility(layer));
+                    }
+                    return 0;
+                }
+                return 9; // Couche non trouvée
+            }
+        } else if (args.wordEquals(0, "shape")) {
+            if (args.intCount() == 0)
+                return 3; // Paramètres insuffisants
+
+            if (app.getCurrentLayer() != null) {
+                Shape shape = app.getCurrentLayer().findShapeById(args.intAt(0));
+
+                if (shape != null) {
+                    Edits.Style before = Edits.styleOf(shape);
+                    if (args.wordEquals(1, "filled")) {
+                        shape.setFill(true);
+                        return styleChanged(shape, before);
+                    } else if (args.wordEquals(1, "outline")) {
+                        shape.setFill(false);
+                        return styleChanged(shape, before);
+                    } else if (args.wordEquals(1, "evenodd")) {
+                        shape.setFillRule(Shape.FillRule.EVEN_ODD);
+                        return styleChanged(shape, before);
+                    } else if (args.wordEquals(1, "nonzero")) {
+                        shape.setFillRule(Shape.FillRule.NON_ZERO);
+                        return styleChanged(shape, before);
+                    } else if (args.wordEquals(1, "identity")) {
+                        shape.setTransform(Transform.IDENTITY);
+                        return styleChanged(shape, before);
+                    } else if (args.wordEquals(1, "thickness")) {
+                        float thickness;
+                        if (args.floatCount() > 0) {
+                            thickness = args.floatAt(0);
+                        } else if (args.intCount() > 1) {
+                            thickness = args.intAt(1);
+                        } else {
+                            return 3; // Paramètres insuffisants
                         }
-                        return 9; // Couche non trouvée
+                        if (!(thickness >= 0 && thickness <= MAX_THICKNESS))
+                            return 3; // Paramètres incorrects
+                        shape.setThickness(thickness);
+                        return styleChanged(shape, before);
                     }
+                    return 3; // Paramètres incorrects
                 }
+            }
+            return 9; // Forme non trouvée
+        } else if (args.wordEquals(0, "history")) {
+            if (args.intCount() == 0 || args.intAt(0) < 0)
                 return 3; // Paramètres incorrects
-
-            default:
-                return 1; // Commande inconnue
+            app.getHistory().setLimit(args.intAt(0));
+            return 0;
+        } else if (args.wordEquals(0, "render")) {
+            if (args.wordEquals(1, "incremental")) {
+                app.setIncrementalRendering(true);
+                return 0;
+            } else if (args.wordEquals(1, "full")) {
+                app.setIncrementalRendering(false);
+                return 0;
+            } else if (args.wordEquals(1, "parallel")) {
+                app.setParallelRendering(true);
+                return 0;
+            } else if (args.wordEquals(1, "sequential")) {
+                app.setParallelRendering(false);
+                return 0;
+            }
         }
+        return 3; // Paramètres incorrects
     }
 
     /**
@@ -412,14 +1014,14 @@ public class CommandProcessor {
     private void listAreas() {
         List<Area> areas = app.getAreas();
 
-        System.out.println("Liste des zones :");
+        out.println("Liste des zones :");
         for (Area area : areas) {
             if (area == app.getCurrentArea()) {
-                System.out.print(" * ");
+                out.print(" * ");
             } else {
-                System.out.print(" - ");
+                out.print(" - ");
             }
-            System.out.printf("%3d %s %n", area.getId(), area.getName());
+            out.printf("%3d %s %n", area.getId(), area.getName());
         }
     }
 
@@ -433,15 +1035,15 @@ public class CommandProcessor {
 
         List<Layer> layers = area.getLayers();
 
-        System.out.println("Liste des couches de la zone " + area.getId() + " :");
+        out.println("Liste des couches de la zone " + area.getId() + " :");
         for (Layer layer : layers) {
             if (layer == app.getCurrentLayer()) {
-                System.out.print(" * ");
+                out.print(" * ");
             } else {
-                System.out.print(" - ");
+                out.print(" - ");
             }
             char visibility = layer.isVisible() ? 'V' : 'H';
-            System.out.printf("%3d (%c) %s %n", layer.getId(), visibility, layer.getName());
+            out.printf("%3d (%c) %s %n", layer.getId(), visibility, layer.getName());
         }
     }
 
@@ -457,17 +1059,18 @@ public class CommandProcessor {
 
         String[] shapeTypes = { "POINT", "LINE", "SQUARE", "RECTANGLE", "CIRCLE", "POLYGON", "CURVE" };
 
-        System.out.println("Liste des formes de la couche " + layer.getId() + " :");
+        out.println("Liste des formes de la couche " + layer.getId() + " :");
         for (Shape shape : shapes) {
             if (shape == app.getCurrentShape()) {
-                System.out.print(" * ");
+                out.print(" * ");
             } else {
-                System.out.print(" - ");
+                out.print(" - ");
             }
-            System.out.printf("%3d : %s %s%n",
+            out.printf("%3d : %s %s%n",
                     shape.getId(),
                     shapeTypes[shape.getShapeType().ordinal()],
-                    shape.toString());
+                    shape.getTransform().isIdentity() ? shape.toString()
+                            : shape.toString() + ", transform=" + shape.getTransform());
         }
     }
 
@@ -475,37 +1078,62 @@ public class CommandProcessor {
      * Affiche l'aide de l'application.
      */
     private void printHelp() {
-        System.out.println("\t**************************************************");
-        System.out.println("\t****         VECTOR TEXT-BASED EDITOR         ****");
-        System.out.println("\t**************************************************");
-
-        System.out.println("\t==== Contrôles ====");
-        System.out.println("\tclear : efface l'écran");
-        System.out.println("\texit : quitte l'application");
-        System.out.println("\thelp : affiche cette aide");
-        System.out.println("\tplot : dessine l'écran");
-
-        System.out.println("\t==== Dessiner des formes ====");
-        System.out.println("\tpoint px py : crée un point à la position (px, py)");
-        System.out.println("\tline x1 y1 x2 y2 : trace une ligne de (x1, y1) à (x2, y2)");
-        System.out.println("\tsquare x1 y1 l : dessine un carré à (x1, y1) de longueur l");
-        System.out.println("\trectangle x1 y1 w h : dessine un rectangle à (x1, y1) de largeur w et hauteur h");
-        System.out.println("\tcircle x y r : dessine un cercle de centre (x, y) et de rayon r");
-        System.out.println("\tpolygon x1 y1 x2 y2 ... : dessine un polygone");
-        System.out.println("\tcurve x1 y1 x2 y2 x3 y3 x4 y4 : dessine une courbe de Bézier");
-
-        System.out.println("\t==== Gestion des éléments ====");
-        System.out.println("\tlist {areas, layers, shapes} : liste les éléments");
-        System.out.println("\tselect {area, layer, shape} {id} : sélectionne un élément par son id");
-        System.out.println("\tdelete {area, layer, shape} {id} : supprime un élément par son id");
-        System.out.println("\tnew {area, layer} : crée un nouvel élément");
-
-        System.out.println("\t==== Configuration ====");
-        System.out.println("\tset char {border, background} ascii_code : change le caractère utilisé");
-        System.out.println("\tset layer {visible, invisible} {id} : change la visibilité d'une couche");
-
-        System.out.println("\t==== Autres commandes ====");
-        System.out.println("\tresize {width} {height} : redimensionne la zone courante");
+        out.println("\t**************************************************");
+        out.println("\t****         VECTOR TEXT-BASED EDITOR         ****");
+        out.println("\t**************************************************");
+
+        out.println("\t==== Contrôles ====");
+        out.println("\tclear : efface l'écran");
+        out.println("\texit : quitte l'application");
+        out.println("\thelp : affiche cette aide");
+        out.println("\tplot : dessine l'écran");
+        out.println("\tsource fichier : exécute les commandes d'un fichier sans redessiner");
+        out.println("\tsave fichier : enregistre toutes les zones, couches et formes dans un fichier binaire");
+        out.println("\tload fichier : remplace le projet courant par celui d'un fichier");
+        out.println("\tundo [n] : annule la dernière modification, ou les n dernières");
+        out.println("\tredo [n] : rétablit la dernière modification annulée, ou les n dernières");
+
+        out.println("\t==== Dessiner des formes ====");
+        out.println("\tpoint px py : crée un point à la position (px, py)");
+        out.println("\tline x1 y1 x2 y2 : trace une ligne de (x1, y1) à (x2, y2)");
+        out.println("\tsquare x1 y1 l : dessine un carré à (x1, y1) de longueur l");
+        out.println("\trectangle x1 y1 w h : dessine un rectangle à (x1, y1) de largeur w et hauteur h");
+        out.println("\tcircle x y r : dessine un cercle de centre (x, y) et de rayon r");
+        out.println("\tpolygon x1 y1 x2 y2 ... : dessine un polygone");
+        out.println("\tcurve x1 y1 x2 y2 x3 y3 x4 y4 : dessine une courbe de Bézier");
+
+        out.println("\t==== Transformer des formes ====");
+        out.println("\trotate {id} {angle} : tourne une forme autour de son centre, en degrés");
+        out.println("\tscale {id} {facteur} [facteur_y] : agrandit ou réduit une forme autour de son centre");
+        out.println("\ttranslate {id} {dx} {dy} : déplace une forme");
+
+        out.println("\t==== Naviguer dans la zone ====");
+        out.println("\tview x y w h : affiche une vue de w x h caractères dont le coin est la cellule (x, y)");
+        out.println("\tview off : affiche de nouveau toute la zone");
+        out.println("\tpan dx dy : déplace la vue");
+        out.println("\tzoom {in, out, niveau} : agrandit ou réduit la vue, niveau entre -3 et 3");
+
+        out.println("\t==== Gestion des éléments ====");
+        out.println("\tlist {areas, layers, shapes} : liste les éléments");
+        out.println("\tselect {area, layer, shape} {id} : sélectionne un élément par son id");
+        out.println("\tdelete {area, layer, shape} {id} : supprime un élément par son id");
+        out.println("\tnew {area, layer} : crée un nouvel élément");
+        out.println("\tnew area nom {dense, sparse} : crée une zone dont la grille est pleine ou allouée par tuiles");
+        out.println("\tnew area nom mapped fichier : crée une zone dont la grille est projetée depuis un fichier, rouvert s'il existe");
+
+        out.println("\t==== Configuration ====");
+        out.println("\tset char {border, background} ascii_code : change le caractère utilisé");
+        out.println("\tset layer {visible, invisible} {id} : change la visibilité d'une couche");
+        out.println("\tset shape {filled, outline} {id} : remplit une forme de la couche courante ou non");
+        out.println("\tset shape {evenodd, nonzero} {id} : change la règle de remplissage d'un polygone");
+        out.println("\tset shape thickness {id} {épaisseur} : change l'épaisseur du trait d'une forme");
+        out.println("\tset shape identity {id} : annule les transformations d'une forme");
+        out.println("\tset history n : garde au plus n modifications à annuler, 0 pour désactiver l'historique");
+        out.println("\tset render {incremental, full} : redessine seulement les régions modifiées ou tout");
+        out.println("\tset render {parallel, sequential} : dessine les grandes régions sur plusieurs cœurs ou non");
+
+        out.println("\t==== Autres commandes ====");
+        out.println("\tresize {width} {height} : redimensionne la zone courante");
     }
 
     /**
@@ -520,13 +1148,13 @@ public class CommandProcessor {
                 new ProcessBuilder("cmd", "/c", "cls").inheritIO().start().waitFor();
             } else {
                 // Pour Unix/Linux/MacOS
-                System.out.print("\033[H\033[2J");
-                System.out.flush();
+                out.print("\033[H\033[2J");
+                out.flush();
             }
         } catch (Exception e) {
             // Fallback si la commande échoue
             for (int i = 0; i < 50; i++) {
-                System.out.println();
+                out.println();
             }
         }
     }
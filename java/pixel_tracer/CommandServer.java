@@ -0,0 +1,327 @@
+package pixel_tracer;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.lang.reflect.InvocationTargetException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ProtocolFamily;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Serveur de commandes local, pour piloter l'application depuis d'autres
+ * programmes.
+ * <p>
+ * Le serveur écoute sur un port TCP de l'interface de bouclage, ou sur une
+ * socket Unix. Chaque client envoie des commandes, une par ligne en UTF-8, et
+ * reçoit pour chacune une ligne d'en-tête {@code code longueur message}, suivie
+ * de {@code longueur} octets : les informations et les erreurs affichées par
+ * la commande (listes, aide, échecs d'un script lancé par {@code source}...)
+ * et, pour {@code plot}, la trame de la zone courante. La commande
+ * {@code exit}, tapée ou lue dans un script, ne ferme que la connexion du
+ * client.
+ * <p>
+ * Chaque client est servi par son propre fil, virtuel lorsque Java le permet
+ * (Java 21 et suivants). Les commandes de tous les clients sont exécutées une
+ * à une sur le même projet : la zone, la couche et la forme courantes sont
+ * partagées, et chaque commande voit la scène laissée par la précédente. Les
+ * réponses sont envoyées hors du verrou, pour qu'un client lent ne retienne
+ * pas les autres.
+ */
+public class CommandServer implements Closeable {
+    /** Longueur maximale d'une ligne de commande, en octets. */
+    static final int MAX_LINE = 1 << 20;
+
+    // Connexions en attente d'acceptation
+    private static final int BACKLOG = 1024;
+
+    private final PixelTracerApp app;
+    private final CommandProcessor processor;
+    private final ServerSocketChannel server;
+    private final Path socketFile;
+    private final ExecutorService clients;
+    private final Set<SocketChannel> connections;
+    // Sérialise les commandes. Un bloc synchronized immobiliserait le fil
+    // porteur d'un fil virtuel en attente.
+    private final ReentrantLock lock;
+    private volatile boolean closed;
+
+    private CommandServer(PixelTracerApp app, CommandProcessor processor, ServerSocketChannel server,
+            Path socketFile) {
+        this.app = app;
+        this.processor = processor;
+        this.server = server;
+        this.socketFile = socketFile;
+        this.clients = newClientExecutor();
+        this.connections = ConcurrentHashMap.newKeySet();
+        this.lock = new ReentrantLock();
+    }
+
+    /**
+     * Ouvre un serveur de commandes. Une adresse numérique est un port TCP de
+     * l'interface de bouclage (0 pour un port libre quelconque) ; toute autre
+     * adresse est le chemin d'une socket Unix, qui ne doit pas exister.
+     *
+     * @param app       L'application
+     * @param processor Le processeur exécutant les commandes
+     * @param address   Le port ou le chemin de la socket
+     * @return Le serveur, prêt à accepter des clients par {@link #serve()}
+     * @throws IOException si l'adresse ne peut pas être réservée
+     */
+    public static CommandServer open(PixelTracerApp app, CommandProcessor processor, String address)
+            throws IOException {
+        int port;
+        try {
+            port = Integer.parseInt(address);
+        } catch (NumberFormatException e) {
+            port = -1;
+        }
+        if (port > 0xFFFF)
+            throw new IOException("port invalide");
+        if (port >= 0) {
+            ServerSocketChannel server = ServerSocketChannel.open();
+            try {
+                server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), BACKLOG);
+            } catch (IOException | RuntimeException e) {
+                server.close();
+                throw e;
+            }
+            return new CommandServer(app, processor, server, null);
+        }
+
+        Path path = Paths.get(address);
+        ServerSocketChannel server = openUnix();
+        try {
+            server.bind(unixAddress(path), BACKLOG);
+        } catch (IOException | RuntimeException e) {
+            server.close();
+            throw e;
+        }
+        return new CommandServer(app, processor, server, path);
+    }
+
+    /**
+     * Ouvre une socket Unix d'écoute. Les sockets Unix n'existent qu'à
+     * partir de Java 16 : elles sont obtenues par réflexion pour que
+     * l'application reste compilable en Java 8.
+     */
+    private static ServerSocketChannel openUnix() throws IOException {
+        try {
+            ProtocolFamily unix = StandardProtocolFamily.valueOf("UNIX");
+            return (ServerSocketChannel) ServerSocketChannel.class.getMethod("open", ProtocolFamily.class)
+                    .invoke(null, unix);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof IOException)
+                throw (IOException) e.getCause();
+            throw new IOException(e.getCause());
+        } catch (ReflectiveOperationException | IllegalArgumentException e) {
+            throw new IOException("sockets Unix non prises en charge par cette version de Java");
+        }
+    }
+
+    private static SocketAddress unixAddress(Path path) throws IOException {
+        try {
+            return (SocketAddress) Class.forName("java.net.UnixDomainSocketAddress").getMethod("of", Path.class)
+                    .invoke(null, path);
+        } catch (ReflectiveOperationException e) {
+            throw new IOException("sockets Unix non prises en charge par cette version de Java");
+        }
+    }
+
+    /**
+     * Crée l'exécuteur des clients : un fil virtuel par client lorsque la
+     * version de Java le permet, un fil système par client sinon.
+     */
+    private static ExecutorService newClientExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(task -> {
+                Thread thread = new Thread(task, "pixel-tracer-client");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * @return L'adresse d'écoute, par exemple pour connaître le port choisi
+     *         lorsque le port 0 a été demandé
+     * @throws IOException si l'adresse ne peut pas être lue
+     */
+    public SocketAddress getAddress() throws IOException {
+        return server.getLocalAddress();
+    }
+
+    /**
+     * Accepte les clients jusqu'à la fermeture du serveur.
+     *
+     * @throws IOException si l'acceptation échoue
+     */
+    public void serve() throws IOException {
+        while (!closed) {
+            SocketChannel client;
+            try {
+                client = server.accept();
+            } catch (ClosedChannelException e) {
+                return;
+            }
+            connections.add(client);
+            try {
+                clients.execute(() -> handle(client));
+            } catch (RejectedExecutionException e) {
+                // Serveur fermé pendant l'acceptation
+                connections.remove(client);
+                client.close();
+            }
+        }
+    }
+
+    /**
+     * Sert un client jusqu'à sa déconnexion ou sa commande {@code exit}.
+     */
+    private void handle(SocketChannel client) {
+        try (SocketChannel channel = client) {
+            InputStream in = new BufferedInputStream(Channels.newInputStream(channel));
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            Response response = new Response();
+            String command;
+            while ((command = readLine(in, line)) != null) {
+                int errorCode = execute(command, response);
+                response.send(channel, errorCode);
+                if (errorCode == 4) // Quitter
+                    break;
+            }
+        } catch (IOException e) {
+            // Client déconnecté, ou serveur fermé
+        } finally {
+            connections.remove(client);
+        }
+    }
+
+    /**
+     * Exécute une commande sous le verrou du projet, en recueillant ce
+     * qu'elle affiche et, pour {@code plot}, la trame de la zone courante.
+     */
+    private int execute(String command, Response response) throws IOException {
+        response.reset();
+        lock.lock();
+        try {
+            processor.setOutput(response.text, response.text);
+            try {
+                int errorCode = processor.processCommand(command);
+                if (errorCode == 6 && app.getCurrentArea() != null) { // Tracer
+                    app.renderCurrentArea();
+                    response.encoder.write(app.getCurrentArea(), response.body);
+                }
+                return errorCode;
+            } finally {
+                processor.setOutput(System.out, System.err);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Lit une ligne terminée par '\n' (ou "\r\n"), sans sa fin de ligne.
+     *
+     * @return La ligne, ou null à la fin du flux
+     * @throws IOException si la lecture échoue ou si la ligne dépasse
+     *                     {@value #MAX_LINE} octets
+     */
+    private static String readLine(InputStream in, ByteArrayOutputStream line) throws IOException {
+        line.reset();
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b < 0) {
+                if (line.size() == 0)
+                    return null;
+                break;
+            }
+            if (line.size() >= MAX_LINE)
+                throw new IOException("ligne trop longue");
+            line.write(b);
+        }
+        String text = new String(line.toByteArray(), StandardCharsets.UTF_8);
+        return text.endsWith("\r") ? text.substring(0, text.length() - 1) : text;
+    }
+
+    /**
+     * Ferme le serveur et les connexions, puis attend la fin des commandes
+     * en cours. La socket Unix éventuelle est supprimée.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        server.close();
+        for (SocketChannel connection : connections) {
+            connection.close();
+        }
+        clients.shutdown();
+        try {
+            clients.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (socketFile != null) {
+            Files.deleteIfExists(socketFile);
+        }
+    }
+
+    /**
+     * Tampons de réponse d'un client, réutilisés d'une commande à l'autre.
+     */
+    private static final class Response {
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        final PrintStream text;
+        final FrameEncoder encoder = new FrameEncoder(StandardCharsets.UTF_8);
+
+        Response() {
+            try {
+                text = new PrintStream(body, false, "UTF-8");
+            } catch (UnsupportedEncodingException e) {
+                throw new AssertionError(e);
+            }
+        }
+
+        void reset() {
+            body.reset();
+        }
+
+        /**
+         * Envoie l'en-tête puis le contenu de la réponse.
+         */
+        void send(SocketChannel channel, int errorCode) throws IOException {
+            text.flush();
+            byte[] header = (errorCode + " " + body.size() + " " + CommandProcessor.message(errorCode) + "\n")
+                    .getBytes(StandardCharsets.UTF_8);
+            ByteBuffer[] buffers = { ByteBuffer.wrap(header), ByteBuffer.wrap(body.toByteArray()) };
+            while (buffers[0].hasRemaining() || buffers[1].hasRemaining()) {
+                channel.write(buffers);
+            }
+        }
+    }
+}
\ No newline at end of file
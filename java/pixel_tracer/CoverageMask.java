@@ -0,0 +1,146 @@
+package pixel_tracer;
+
+import java.util.Arrays;
+
+/**
+ * Masque de couverture d'une couche : un bit par cellule de la zone, à 1 si
+ * une forme de la couche dessine la cellule.
+ * <p>
+ * Chaque ligne occupe un nombre entier de mots de 64 bits. Deux régions qui ne
+ * partagent aucun bloc de 64 colonnes alignées n'écrivent donc jamais dans le
+ * même mot et peuvent être modifiées par des fils différents.
+ */
+public class CoverageMask {
+    private final int width;
+    private final int height;
+    private final int wordsPerRow;
+    private final long[] bits;
+
+    /**
+     * Crée un masque vide.
+     *
+     * @param width  Largeur en cellules
+     * @param height Hauteur en cellules
+     */
+    public CoverageMask(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.wordsPerRow = (width + 63) >>> 6;
+        this.bits = new long[wordsPerRow * height];
+    }
+
+    /**
+     * @return La largeur du masque
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @return La hauteur du masque
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @param x Coordonnée X
+     * @param y Coordonnée Y
+     * @return true si la cellule est couverte
+     */
+    public boolean get(int x, int y) {
+        return (bits[y * wordsPerRow + (x >>> 6)] & (1L << x)) != 0;
+    }
+
+    /**
+     * Marque une cellule sans vérifier les limites.
+     *
+     * @param x Coordonnée X, entre 0 et width - 1
+     * @param y Coordonnée Y, entre 0 et height - 1
+     */
+    public void set(int x, int y) {
+        bits[y * wordsPerRow + (x >>> 6)] |= 1L << x;
+    }
+
+    /**
+     * Marque un segment horizontal sans vérifier les limites.
+     *
+     * @param y  Ligne, entre 0 et height - 1
+     * @param x0 Première colonne incluse, entre 0 et width - 1
+     * @param x1 Dernière colonne incluse, entre x0 et width - 1
+     */
+    public void fillRow(int y, int x0, int x1) {
+        updateRow(y, x0, x1, true);
+    }
+
+    /**
+     * Efface une région rectangulaire, restreinte aux limites du masque.
+     *
+     * @param region La région à effacer
+     */
+    public void clear(BoundingBox region) {
+        BoundingBox clipped = region.intersection(new BoundingBox(0, 0, width - 1, height - 1));
+        for (int y = clipped.getMinY(); y <= clipped.getMaxY(); y++) {
+            updateRow(y, clipped.getMinX(), clipped.getMaxX(), false);
+        }
+    }
+
+    /**
+     * Efface tout le masque.
+     */
+    public void clearAll() {
+        Arrays.fill(bits, 0L);
+    }
+
+    /**
+     * Écrit un caractère dans les cellules couvertes d'un segment de ligne.
+     *
+     * @param y      Ligne
+     * @param x0     Première colonne incluse
+     * @param x1     Dernière colonne incluse
+     * @param grid   Grille de destination, rangée ligne par ligne
+     * @param offset Indice dans la grille de la colonne 0 de la ligne
+     * @param value  Le caractère à écrire
+     */
+    public void paintRow(int y, int x0, int x1, char[] grid, int offset, char value) {
+        int rowStart = y * wordsPerRow;
+        int firstWord = x0 >>> 6;
+        int lastWord = x1 >>> 6;
+        for (int w = firstWord; w <= lastWord; w++) {
+            long word = bits[rowStart + w] & rangeMask(w, x0, x1);
+            while (word != 0) {
+                int x = (w << 6) + Long.numberOfTrailingZeros(word);
+                grid[offset + x] = value;
+                word &= word - 1;
+            }
+        }
+    }
+
+    private void updateRow(int y, int x0, int x1, boolean value) {
+        int rowStart = y * wordsPerRow;
+        int firstWord = x0 >>> 6;
+        int lastWord = x1 >>> 6;
+        for (int w = firstWord; w <= lastWord; w++) {
+            long mask = rangeMask(w, x0, x1);
+            if (value) {
+                bits[rowStart + w] |= mask;
+            } else {
+                bits[rowStart + w] &= ~mask;
+            }
+        }
+    }
+
+    /**
+     * @return Les bits du mot w correspondant aux colonnes x0 à x1 incluses
+     */
+    private static long rangeMask(int w, int x0, int x1) {
+        long mask = -1L;
+        if (x0 > w << 6) {
+            mask &= -1L << x0;
+        }
+        if (x1 < (w << 6) + 63) {
+            mask &= -1L >>> (63 - (x1 & 63));
+        }
+        return mask;
+    }
+}
\ No newline at end of file
@@ -1,13 +1,29 @@
 package pixel_tracer;
 
+import java.util.Arrays;
+
 /**
  * Représente une courbe de Bézier dans un espace 2D.
+ * <p>
+ * La courbe est tracée sous forme d'une ligne brisée obtenue par subdivision
+ * adaptative : le nombre de segments dépend de la taille et de la courbure de
+ * la courbe et non d'un pas fixe. Cette ligne brisée est gardée en cache
+ * jusqu'à la prochaine modification des points de contrôle.
  */
 public class CurveShape extends Shape {
+    // Écart maximal, en cellules, entre la courbe et un segment de la ligne
+    // brisée, avant l'arrondi des sommets à la cellule la plus proche
+    private static final double FLATNESS = 0.25;
+    // Profondeur maximale de subdivision, soit au plus 2^16 segments
+    private static final int MAX_DEPTH = 16;
+
     private Point p1;
     private Point p2;
     private Point p3;
     private Point p4;
+    // Sommets de la ligne brisée, x et y alternés, ou null s'ils sont à
+    // recalculer
+    private int[] polyline;
 
     /**
      * Crée une courbe de Bézier avec les quatre points de contrôle spécifiés.
@@ -41,6 +57,7 @@ public class CurveShape extends Shape {
      */
     public void setP1(Point p1) {
         this.p1 = p1;
+        geometryChanged();
     }
 
     /**
@@ -55,6 +72,7 @@ public class CurveShape extends Shape {
      */
     public void setP2(Point p2) {
         this.p2 = p2;
+        geometryChanged();
     }
 
     /**
@@ -69,6 +87,7 @@ public class CurveShape extends Shape {
      */
     public void setP3(Point p3) {
         this.p3 = p3;
+        geometryChanged();
     }
 
     /**
@@ -83,6 +102,84 @@ public class CurveShape extends Shape {
      */
     public void setP4(Point p4) {
         this.p4 = p4;
+        geometryChanged();
+    }
+
+    /**
+     * Renvoie la ligne brisée qui approche la courbe, calculée au premier appel
+     * puis gardée en cache.
+     * 
+     * @return Les sommets de la ligne brisée, x et y alternés ; le tableau ne
+     *         doit pas être modifié
+     */
+    public int[] getPolyline() {
+        int[] result = polyline;
+        if (result == null) {
+            result = flatten(p1, p2, p3, p4);
+            polyline = result;
+        }
+        return result;
+    }
+
+    /**
+     * Les segments de la ligne brisée relient des cellules : la boîte de ses
+     * sommets contient tous les pixels tracés.
+     */
+    @Override
+    protected BoundingBox computeBounds() {
+        return boundsOf(getPolyline());
+    }
+
+    /**
+     * Une transformation affine d'une courbe de Bézier est la courbe de Bézier
+     * des points de contrôle transformés : seuls ces derniers sont transformés
+     * avant la subdivision.
+     */
+    @Override
+    protected int[] computePath(Transform transform) {
+        return flatten(
+                transform.transformX(p1.getPosX(), p1.getPosY()), transform.transformY(p1.getPosX(), p1.getPosY()),
+                transform.transformX(p2.getPosX(), p2.getPosY()), transform.transformY(p2.getPosX(), p2.getPosY()),
+                transform.transformX(p3.getPosX(), p3.getPosY()), transform.transformY(p3.getPosX(), p3.getPosY()),
+                transform.transformX(p4.getPosX(), p4.getPosY()), transform.transformY(p4.getPosX(), p4.getPosY()));
+    }
+
+    /**
+     * Invalide aussi la ligne brisée en cache, les points de contrôle pouvant
+     * avoir été modifiés directement.
+     */
+    @Override
+    protected void geometryChanged() {
+        polyline = null;
+        super.geometryChanged();
+    }
+
+    /**
+     * Approche une courbe de Bézier cubique par une ligne brisée. La courbe est
+     * coupée en deux par l'algorithme de de Casteljau jusqu'à ce que chaque
+     * morceau soit assez plat : ses points de contrôle intérieurs sont à au plus
+     * un quart de cellule de sa corde. Les sommets sont arrondis à la cellule
+     * la plus proche et les sommets consécutifs identiques sont fusionnés.
+     * 
+     * @param p1 Premier point de contrôle
+     * @param p2 Deuxième point de contrôle
+     * @param p3 Troisième point de contrôle
+     * @param p4 Quatrième point de contrôle
+     * @return Les sommets de la ligne brisée, x et y alternés, du premier au
+     *         dernier point de contrôle ; un seul sommet si la courbe tient
+     *         dans une cellule
+     */
+    public static int[] flatten(Point p1, Point p2, Point p3, Point p4) {
+        return flatten(p1.getPosX(), p1.getPosY(), p2.getPosX(), p2.getPosY(),
+                p3.getPosX(), p3.getPosY(), p4.getPosX(), p4.getPosY());
+    }
+
+    private static int[] flatten(double x1, double y1, double x2, double y2,
+            double x3, double y3, double x4, double y4) {
+        Flattener flattener = new Flattener();
+        flattener.add(x1, y1);
+        flattener.subdivide(x1, y1, x2, y2, x3, y3, x4, y4, 0);
+        return Arrays.copyOf(flattener.points, flattener.size);
     }
 
     @Override
@@ -90,4 +187,62 @@ public class CurveShape extends Shape {
         return "Curve: p1=" + p1.toString() + ", p2=" + p2.toString() +
                 ", p3=" + p3.toString() + ", p4=" + p4.toString();
     }
+
+    /**
+     * Accumule les sommets d'une ligne brisée pendant la subdivision.
+     */
+    private static final class Flattener {
+        private int[] points = new int[32];
+        private int size;
+
+        void subdivide(double x1, double y1, double x2, double y2,
+                double x3, double y3, double x4, double y4, int depth) {
+            if (depth == MAX_DEPTH || (isFlat(x2, y2, x1, y1, x4, y4) && isFlat(x3, y3, x1, y1, x4, y4))) {
+                add(x4, y4);
+                return;
+            }
+
+            // Points de de Casteljau pour t = 1/2
+            double x12 = (x1 + x2) / 2, y12 = (y1 + y2) / 2;
+            double x23 = (x2 + x3) / 2, y23 = (y2 + y3) / 2;
+            double x34 = (x3 + x4) / 2, y34 = (y3 + y4) / 2;
+            double x123 = (x12 + x23) / 2, y123 = (y12 + y23) / 2;
+            double x234 = (x23 + x34) / 2, y234 = (y23 + y34) / 2;
+            double xm = (x123 + x234) / 2, ym = (y123 + y234) / 2;
+
+            subdivide(x1, y1, x12, y12, x123, y123, xm, ym, depth + 1);
+            subdivide(xm, ym, x234, y234, x34, y34, x4, y4, depth + 1);
+        }
+
+        /**
+         * @return true si le point (px, py) est à au plus FLATNESS du segment
+         *         de (ax, ay) à (bx, by)
+         */
+        private static boolean isFlat(double px, double py, double ax, double ay, double bx, double by) {
+            double dx = bx - ax;
+            double dy = by - ay;
+            double lengthSquared = dx * dx + dy * dy;
+            double t = lengthSquared == 0 ? 0 : ((px - ax) * dx + (py - ay) * dy) / lengthSquared;
+            t = Math.max(0, Math.min(1, t));
+            double ex = px - (ax + t * dx);
+            double ey = py - (ay + t * dy);
+            return ex * ex + ey * ey <= FLATNESS * FLATNESS;
+        }
+
+        void add(double x, double y) {
+            int ix = toCell(x);
+            int iy = toCell(y);
+            if (size > 0 && points[size - 2] == ix && points[size - 1] == iy)
+                return;
+            append(ix, iy);
+        }
+
+        void append(int x, int y) {
+            if (size == points.length) {
+                points = Arrays.copyOf(points, size * 2);
+            }
+            points[size++] = x;
+            points[size++] = y;
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,97 @@
+package pixel_tracer;
+
+import java.util.Arrays;
+
+/**
+ * Grille stockée dans un seul tableau de caractères, rangé ligne par ligne :
+ * la cellule (x, y) est à l'indice y * width + x. C'est le stockage le plus
+ * rapide pour une zone de la taille d'un terminal ; sa mémoire et le coût d'un
+ * redimensionnement sont proportionnels à la surface.
+ */
+public class DenseCanvas implements CanvasStorage {
+    private int width;
+    private int height;
+    private char background;
+    private char[] grid;
+
+    /**
+     * Crée une grille remplie du caractère de fond.
+     *
+     * @param width      Largeur de la grille
+     * @param height     Hauteur de la grille
+     * @param background Caractère de fond
+     */
+    public DenseCanvas(int width, int height, char background) {
+        this.width = width;
+        this.height = height;
+        this.grid = new char[width * height];
+        clear(background);
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public char getBackground() {
+        return background;
+    }
+
+    @Override
+    public char get(int x, int y) {
+        return grid[y * width + x];
+    }
+
+    @Override
+    public void set(int x, int y, char value) {
+        grid[y * width + x] = value;
+    }
+
+    @Override
+    public void fillRow(int y, int x0, int x1, char value) {
+        int offset = y * width;
+        Arrays.fill(grid, offset + x0, offset + x1 + 1, value);
+    }
+
+    @Override
+    public void readRow(int y, int x0, int x1, char[] dest, int offset) {
+        System.arraycopy(grid, y * width + x0, dest, offset, x1 - x0 + 1);
+    }
+
+    @Override
+    public void writeRow(int y, int x0, int x1, char[] src, int offset) {
+        System.arraycopy(src, offset, grid, y * width + x0, x1 - x0 + 1);
+    }
+
+    @Override
+    public void clear(char background) {
+        this.background = background;
+        Arrays.fill(grid, background);
+    }
+
+    @Override
+    public void resize(int newWidth, int newHeight) {
+        char[] newGrid = new char[newWidth * newHeight];
+        int keptWidth = Math.min(width, newWidth);
+        int keptHeight = Math.min(height, newHeight);
+
+        // Copie des données existantes, ligne par ligne
+        for (int y = 0; y < keptHeight; y++) {
+            System.arraycopy(grid, y * width, newGrid, y * newWidth, keptWidth);
+            Arrays.fill(newGrid, y * newWidth + keptWidth, (y + 1) * newWidth, background);
+        }
+
+        // Initialisation des nouvelles lignes
+        Arrays.fill(newGrid, keptHeight * newWidth, newGrid.length, background);
+
+        this.grid = newGrid;
+        this.width = newWidth;
+        this.height = newHeight;
+    }
+}
\ No newline at end of file
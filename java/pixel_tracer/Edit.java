@@ -0,0 +1,34 @@
+package pixel_tracer;
+
+/**
+ * Modification annulable du projet, enregistrée dans l'{@link History}.
+ * <p>
+ * Une modification ne garde que ce qu'il faut pour passer d'un état à
+ * l'autre : l'élément ajouté ou supprimé et sa position, ou les anciennes et
+ * nouvelles valeurs d'une propriété. Sa taille ne dépend pas de celle du
+ * projet. Les modifications sont annulées dans l'ordre inverse de leur
+ * exécution : une modification s'applique toujours à l'état qui suivait (pour
+ * l'annuler) ou précédait (pour la rétablir) son exécution.
+ */
+public interface Edit {
+    /**
+     * Annule la modification.
+     *
+     * @param app L'application modifiée
+     */
+    void undo(PixelTracerApp app);
+
+    /**
+     * Rétablit la modification après son annulation.
+     *
+     * @param app L'application modifiée
+     */
+    void redo(PixelTracerApp app);
+
+    /**
+     * Appelée lorsque la modification sort de l'historique et ne sera plus ni
+     * annulée ni rétablie, pour libérer les ressources qu'elle retient.
+     */
+    default void discard() {
+    }
+}
\ No newline at end of file
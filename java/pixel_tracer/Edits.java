@@ -0,0 +1,401 @@
+package pixel_tracer;
+
+/**
+ * Modifications annulables produites par les commandes.
+ * <p>
+ * Un ajout et une suppression sont la même modification dans deux sens
+ * opposés : l'élément, son conteneur et l'élément qui le suit, pour le replacer
+ * exactement à sa position. Un changement de propriété garde l'ancienne et la
+ * nouvelle valeur. Après chaque annulation, la zone touchée devient la zone
+ * active, pour que le résultat soit affiché.
+ */
+public final class Edits {
+    private Edits() {
+    }
+
+    /**
+     * @param layer La couche à laquelle la forme vient d'être ajoutée
+     * @param shape La forme ajoutée
+     * @return La modification
+     */
+    public static Edit addShape(Layer layer, Shape shape) {
+        return new ShapeEdit(layer, shape, null, true);
+    }
+
+    /**
+     * @param layer La couche dont la forme va être retirée
+     * @param shape La forme, encore dans la couche
+     * @return La modification, à enregistrer une fois la forme retirée
+     */
+    public static Edit removeShape(Layer layer, Shape shape) {
+        return new ShapeEdit(layer, shape, layer.nextShape(shape), false);
+    }
+
+    /**
+     * @param area  La zone à laquelle la couche vient d'être ajoutée
+     * @param layer La couche ajoutée
+     * @return La modification
+     */
+    public static Edit addLayer(Area area, Layer layer) {
+        return new LayerEdit(area, layer, null, true);
+    }
+
+    /**
+     * @param area  La zone dont la couche va être retirée
+     * @param layer La couche, encore dans la zone
+     * @return La modification, à enregistrer une fois la couche retirée
+     */
+    public static Edit removeLayer(Area area, Layer layer) {
+        return new LayerEdit(area, layer, area.nextLayer(layer), false);
+    }
+
+    /**
+     * @param area La zone qui vient d'être ajoutée à l'application
+     * @return La modification
+     */
+    public static Edit addArea(Area area) {
+        return new AreaEdit(area, null, true);
+    }
+
+    /**
+     * La grille de la zone n'est libérée que lorsque la modification sort de
+     * l'historique : il faut donc retirer la zone avec
+     * {@link PixelTracerApp#detachArea(Area)}.
+     *
+     * @param app  L'application
+     * @param area La zone, encore dans l'application
+     * @return La modification, à enregistrer une fois la zone retirée
+     */
+    public static Edit removeArea(PixelTracerApp app, Area area) {
+        return new AreaEdit(area, app.nextArea(area), false);
+    }
+
+    /**
+     * @param area      La zone redimensionnée
+     * @param oldWidth  Largeur avant le redimensionnement
+     * @param oldHeight Hauteur avant le redimensionnement
+     * @return La modification
+     */
+    public static Edit resize(Area area, int oldWidth, int oldHeight) {
+        return new ResizeEdit(area, oldWidth, oldHeight);
+    }
+
+    /**
+     * @param area         La zone modifiée
+     * @param oldEmptyChar Caractère des cellules vides avant la modification
+     * @param oldFillChar  Caractère des cellules remplies avant la modification
+     * @return La modification
+     */
+    public static Edit chars(Area area, char oldEmptyChar, char oldFillChar) {
+        return new CharsEdit(area, oldEmptyChar, oldFillChar);
+    }
+
+    /**
+     * @param layer La couche dont la visibilité vient de changer
+     * @return La modification
+     */
+    public static Edit visibility(Layer layer) {
+        return new VisibilityEdit(layer);
+    }
+
+    /**
+     * Renvoie un état de l'apparence d'une forme, à passer à
+     * {@link #style(Shape, Style)} après l'avoir modifiée.
+     *
+     * @param shape La forme, avant sa modification
+     * @return Son remplissage, son épaisseur et sa transformation
+     */
+    public static Style styleOf(Shape shape) {
+        return new Style(shape);
+    }
+
+    /**
+     * @param shape  La forme modifiée
+     * @param before Son état avant la modification, donné par
+     *               {@link #styleOf(Shape)}
+     * @return La modification, ou null si l'apparence de la forme n'a pas
+     *         changé
+     */
+    public static Edit style(Shape shape, Style before) {
+        Style after = new Style(shape);
+        return after.equals(before) ? null : new StyleEdit(shape, before, after);
+    }
+
+    /**
+     * Ajout ou suppression d'une forme.
+     */
+    private static final class ShapeEdit implements Edit {
+        private final Layer layer;
+        private final Shape shape;
+        private final Shape next;
+        private final boolean added;
+
+        ShapeEdit(Layer layer, Shape shape, Shape next, boolean added) {
+            this.layer = layer;
+            this.shape = shape;
+            this.next = next;
+            this.added = added;
+        }
+
+        @Override
+        public void undo(PixelTracerApp app) {
+            apply(app, !added);
+        }
+
+        @Override
+        public void redo(PixelTracerApp app) {
+            apply(app, added);
+        }
+
+        private void apply(PixelTracerApp app, boolean present) {
+            if (present) {
+                layer.insertShape(shape, next);
+            } else {
+                layer.removeShape(shape);
+            }
+            app.focus(layer.getArea(), layer);
+        }
+    }
+
+    /**
+     * Ajout ou suppression d'une couche, avec ses formes.
+     */
+    private static final class LayerEdit implements Edit {
+        private final Area area;
+        private final Layer layer;
+        private final Layer next;
+        private final boolean added;
+
+        LayerEdit(Area area, Layer layer, Layer next, boolean added) {
+            this.area = area;
+            this.layer = layer;
+            this.next = next;
+            this.added = added;
+        }
+
+        @Override
+        public void undo(PixelTracerApp app) {
+            apply(app, !added);
+        }
+
+        @Override
+        public void redo(PixelTracerApp app) {
+            apply(app, added);
+        }
+
+        private void apply(PixelTracerApp app, boolean present) {
+            if (present) {
+                area.insertLayer(layer, next);
+            } else {
+                area.removeLayer(layer);
+            }
+            app.focus(area, present ? layer : null);
+        }
+    }
+
+    /**
+     * Ajout ou suppression d'une zone, avec ses couches. Tant que la zone est
+     * retirée, sa grille reste ouverte pour pouvoir la replacer.
+     */
+    private static final class AreaEdit implements Edit {
+        private final Area area;
+        private final Area next;
+        private final boolean added;
+        private boolean present;
+
+        AreaEdit(Area area, Area next, boolean added) {
+            this.area = area;
+            this.next = next;
+            this.added = added;
+            this.present = added;
+        }
+
+        @Override
+        public void undo(PixelTracerApp app) {
+            apply(app, !added);
+        }
+
+        @Override
+        public void redo(PixelTracerApp app) {
+            apply(app, added);
+        }
+
+        private void apply(PixelTracerApp app, boolean present) {
+            if (present) {
+                app.insertArea(area, next);
+            } else {
+                app.detachArea(area);
+            }
+            this.present = present;
+            app.focus(present ? area : null, null);
+        }
+
+        @Override
+        public void discard() {
+            if (!present) {
+                PixelTracerApp.releaseGrid(area);
+            }
+        }
+    }
+
+    /**
+     * Redimensionnement d'une zone. Les formes ne changent pas : la grille est
+     * redessinée à la taille rétablie.
+     */
+    private static final class ResizeEdit implements Edit {
+        private final Area area;
+        private final int oldWidth;
+        private final int oldHeight;
+        private final int newWidth;
+        private final int newHeight;
+
+        ResizeEdit(Area area, int oldWidth, int oldHeight) {
+            this.area = area;
+            this.oldWidth = oldWidth;
+            this.oldHeight = oldHeight;
+            this.newWidth = area.getWidth();
+            this.newHeight = area.getHeight();
+        }
+
+        @Override
+        public void undo(PixelTracerApp app) {
+            area.resize(oldWidth, oldHeight);
+            app.focus(area, null);
+        }
+
+        @Override
+        public void redo(PixelTracerApp app) {
+            area.resize(newWidth, newHeight);
+            app.focus(area, null);
+        }
+    }
+
+    /**
+     * Changement des caractères des cellules vides et remplies d'une zone.
+     */
+    private static final class CharsEdit implements Edit {
+        private final Area area;
+        private final char oldEmptyChar;
+        private final char oldFillChar;
+        private final char newEmptyChar;
+        private final char newFillChar;
+
+        CharsEdit(Area area, char oldEmptyChar, char oldFillChar) {
+            this.area = area;
+            this.oldEmptyChar = oldEmptyChar;
+            this.oldFillChar = oldFillChar;
+            this.newEmptyChar = area.getEmptyChar();
+            this.newFillChar = area.getFillChar();
+        }
+
+        @Override
+        public void undo(PixelTracerApp app) {
+            area.setEmptyChar(oldEmptyChar);
+            area.setFillChar(oldFillChar);
+            app.focus(area, null);
+        }
+
+        @Override
+        public void redo(PixelTracerApp app) {
+            area.setEmptyChar(newEmptyChar);
+            area.setFillChar(newFillChar);
+            app.focus(area, null);
+        }
+    }
+
+    /**
+     * Affichage ou masquage d'une couche.
+     */
+    private static final class VisibilityEdit implements Edit {
+        private final Layer layer;
+        private final boolean visible;
+
+        VisibilityEdit(Layer layer) {
+            this.layer = layer;
+            this.visible = layer.isVisible();
+        }
+
+        @Override
+        public void undo(PixelTracerApp app) {
+            layer.setVisible(!visible);
+            app.focus(layer.getArea(), null);
+        }
+
+        @Override
+        public void redo(PixelTracerApp app) {
+            layer.setVisible(visible);
+            app.focus(layer.getArea(), null);
+        }
+    }
+
+    /**
+     * Apparence d'une forme : remplissage, épaisseur et transformation.
+     */
+    public static final class Style {
+        private final boolean fill;
+        private final Shape.FillRule fillRule;
+        private final float thickness;
+        private final Transform transform;
+
+        private Style(Shape shape) {
+            this.fill = shape.isFill();
+            this.fillRule = shape.getFillRule();
+            this.thickness = shape.getThickness();
+            this.transform = shape.getTransform();
+        }
+
+        private void applyTo(Shape shape) {
+            shape.setFill(fill);
+            shape.setFillRule(fillRule);
+            shape.setThickness(thickness);
+            shape.setTransform(transform);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Style))
+                return false;
+            Style style = (Style) other;
+            return fill == style.fill && fillRule == style.fillRule
+                    && Float.compare(thickness, style.thickness) == 0 && transform.equals(style.transform);
+        }
+
+        @Override
+        public int hashCode() {
+            return transform.hashCode() * 31 + Float.floatToIntBits(thickness) * 4 + fillRule.ordinal() * 2
+                    + (fill ? 1 : 0);
+        }
+    }
+
+    /**
+     * Changement de l'apparence d'une forme.
+     */
+    private static final class StyleEdit implements Edit {
+        private final Shape shape;
+        private final Style before;
+        private final Style after;
+
+        StyleEdit(Shape shape, Style before, Style after) {
+            this.shape = shape;
+            this.before = before;
+            this.after = after;
+        }
+
+        @Override
+        public void undo(PixelTracerApp app) {
+            before.applyTo(shape);
+            focus(app);
+        }
+
+        @Override
+        public void redo(PixelTracerApp app) {
+            after.applyTo(shape);
+            focus(app);
+        }
+
+        private void focus(PixelTracerApp app) {
+            Layer layer = shape.getLayer();
+            app.focus(layer != null ? layer.getArea() : null, layer);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,162 @@
+package pixel_tracer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Encode la grille d'une zone en une trame complète, prête à être écrite en
+ * une seule opération. Les tampons sont réutilisés d'une trame à l'autre.
+ * <p>
+ * Les caractères ASCII sont copiés directement ; les autres sont encodés avec
+ * le jeu de caractères de l'encodeur, et le dernier encodage est gardé en
+ * cache puisqu'une grille ne contient en pratique que deux caractères.
+ */
+public class FrameEncoder {
+    private final Charset charset;
+    private final byte[] lineSeparator;
+    private byte[] bytes;
+    private char[] chars;
+    private char[] row;
+
+    // Dernier caractère non ASCII encodé et ses octets
+    private char cachedChar;
+    private byte[] cachedBytes;
+
+    /**
+     * Crée un encodeur utilisant le jeu de caractères par défaut, comme
+     * {@link System#out}.
+     */
+    public FrameEncoder() {
+        this(Charset.defaultCharset());
+    }
+
+    /**
+     * Crée un encodeur utilisant le jeu de caractères spécifié.
+     *
+     * @param charset Le jeu de caractères de la sortie
+     */
+    public FrameEncoder(Charset charset) {
+        this.charset = charset;
+        this.lineSeparator = System.lineSeparator().getBytes(charset);
+        this.bytes = new byte[0];
+        this.chars = new char[0];
+        this.row = new char[0];
+    }
+
+    /**
+     * Encode la grille, ou la vue active, dans le tampon d'octets interne.
+     *
+     * @param area La zone à encoder
+     * @return Le nombre d'octets de la trame
+     */
+    public int encode(Area area) {
+        int width = area.getDisplayWidth();
+        int height = area.getDisplayHeight();
+        ensureBytes(width * height + height * lineSeparator.length);
+        if (row.length < width) {
+            row = new char[width];
+        }
+
+        int length = 0;
+        for (int y = 0; y < height; y++) {
+            area.copyDisplayRow(y, row, 0);
+            for (int x = 0; x < width; x++) {
+                char c = row[x];
+                if (c < 0x80) {
+                    bytes[length++] = (byte) c;
+                } else {
+                    byte[] encoded = encodeChar(c);
+                    // Garde la place d'un octet par cellule restante
+                    int remainingCells = (width - x - 1) + (height - y - 1) * width;
+                    ensureBytes(length + encoded.length + remainingCells
+                            + (height - y) * lineSeparator.length);
+                    System.arraycopy(encoded, 0, bytes, length, encoded.length);
+                    length += encoded.length;
+                }
+            }
+            System.arraycopy(lineSeparator, 0, bytes, length, lineSeparator.length);
+            length += lineSeparator.length;
+        }
+        return length;
+    }
+
+    /**
+     * @return Le tampon contenant la dernière trame encodée
+     */
+    public byte[] getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Écrit la trame d'une zone dans un flux, en un seul appel d'écriture.
+     *
+     * @param area La zone à écrire
+     * @param out  Le flux de sortie
+     * @throws IOException si l'écriture échoue
+     */
+    public void write(Area area, OutputStream out) throws IOException {
+        int length = encode(area);
+        out.write(bytes, 0, length);
+        out.flush();
+    }
+
+    /**
+     * Écrit la trame d'une zone dans un canal, par exemple un
+     * {@link java.nio.channels.FileChannel}.
+     *
+     * @param area    La zone à écrire
+     * @param channel Le canal de sortie
+     * @throws IOException si l'écriture échoue
+     */
+    public void write(Area area, WritableByteChannel channel) throws IOException {
+        int length = encode(area);
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, length);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Ajoute la trame d'une zone, sous forme de caractères, à une destination
+     * quelconque (StringBuilder, Writer...).
+     *
+     * @param area La zone à écrire
+     * @param out  La destination
+     * @throws IOException si l'ajout échoue
+     */
+    public void append(Area area, Appendable out) throws IOException {
+        int width = area.getDisplayWidth();
+        int height = area.getDisplayHeight();
+        String separator = System.lineSeparator();
+        int rowLength = width + separator.length();
+        if (chars.length < rowLength * height) {
+            chars = new char[rowLength * height];
+        }
+
+        for (int y = 0; y < height; y++) {
+            int offset = y * rowLength;
+            area.copyDisplayRow(y, chars, offset);
+            separator.getChars(0, separator.length(), chars, offset + width);
+        }
+        out.append(CharBuffer.wrap(chars, 0, rowLength * height));
+    }
+
+    private byte[] encodeChar(char c) {
+        if (cachedBytes == null || cachedChar != c) {
+            cachedBytes = String.valueOf(c).getBytes(charset);
+            cachedChar = c;
+        }
+        return cachedBytes;
+    }
+
+    private void ensureBytes(int capacity) {
+        if (bytes.length < capacity) {
+            bytes = Arrays.copyOf(bytes, Math.max(capacity, bytes.length * 2));
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,173 @@
+package pixel_tracer;
+
+import java.util.ArrayDeque;
+
+/**
+ * Historique des modifications, pour les annuler et les rétablir.
+ * <p>
+ * Les modifications annulables sont gardées dans une pile bornée : au-delà de
+ * la limite, les plus anciennes sont oubliées. Annuler une modification la
+ * place dans la pile des modifications à rétablir, qui est vidée dès qu'une
+ * nouvelle modification est enregistrée.
+ */
+public class History {
+    /** Nombre de modifications gardées par défaut. */
+    public static final int DEFAULT_LIMIT = 10000;
+
+    // Modifications les plus récentes en tête
+    private final ArrayDeque<Edit> undoStack;
+    private final ArrayDeque<Edit> redoStack;
+    private int limit;
+    // Nombre de modifications de chaque pile déjà présentes lors de l'appel à
+    // mark(), toujours au fond des piles
+    private int markedUndo;
+    private int markedRedo;
+    private boolean crossedMark;
+
+    /**
+     * Crée un historique vide, limité à {@value #DEFAULT_LIMIT} modifications.
+     */
+    public History() {
+        this.undoStack = new ArrayDeque<>();
+        this.redoStack = new ArrayDeque<>();
+        this.limit = DEFAULT_LIMIT;
+    }
+
+    /**
+     * Enregistre une modification qui vient d'être effectuée.
+     *
+     * @param edit La modification
+     */
+    public void record(Edit edit) {
+        clearRedo();
+        undoStack.push(edit);
+        trim();
+    }
+
+    /**
+     * Annule la dernière modification.
+     *
+     * @param app L'application modifiée
+     * @return true si une modification a été annulée, false si l'historique
+     *         est vide
+     */
+    public boolean undo(PixelTracerApp app) {
+        Edit edit = undoStack.poll();
+        if (edit == null)
+            return false;
+        if (undoStack.size() < markedUndo) {
+            markedUndo = undoStack.size();
+            crossedMark = true;
+        }
+        edit.undo(app);
+        redoStack.push(edit);
+        return true;
+    }
+
+    /**
+     * Rétablit la dernière modification annulée.
+     *
+     * @param app L'application modifiée
+     * @return true si une modification a été rétablie, false s'il n'y en a
+     *         aucune
+     */
+    public boolean redo(PixelTracerApp app) {
+        Edit edit = redoStack.poll();
+        if (edit == null)
+            return false;
+        if (redoStack.size() < markedRedo) {
+            markedRedo = redoStack.size();
+            crossedMark = true;
+        }
+        edit.redo(app);
+        undoStack.push(edit);
+        return true;
+    }
+
+    /**
+     * @return Le nombre de modifications qui peuvent être annulées
+     */
+    public int getUndoCount() {
+        return undoStack.size();
+    }
+
+    /**
+     * @return Le nombre de modifications qui peuvent être rétablies
+     */
+    public int getRedoCount() {
+        return redoStack.size();
+    }
+
+    /**
+     * @return Le nombre maximal de modifications gardées
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Change le nombre maximal de modifications gardées ; les plus anciennes
+     * au-delà sont oubliées. Une limite de 0 désactive l'historique.
+     *
+     * @param limit Le nouveau nombre maximal, positif ou nul
+     */
+    public void setLimit(int limit) {
+        if (limit < 0)
+            throw new IllegalArgumentException("Limite négative : " + limit);
+        this.limit = limit;
+        trim();
+        while (redoStack.size() > limit) {
+            redoStack.removeLast().discard();
+        }
+        markedRedo = Math.min(markedRedo, redoStack.size());
+    }
+
+    /**
+     * Oublie toutes les modifications.
+     */
+    public void clear() {
+        clearRedo();
+        while (!undoStack.isEmpty()) {
+            undoStack.pop().discard();
+        }
+        markedUndo = 0;
+    }
+
+    /**
+     * Marque l'état courant des piles. Les modifications déjà présentes ne
+     * pourront plus être annulées ou rétablies sans que
+     * {@link #crossedMark()} le signale : le journal s'en sert pour savoir si
+     * une annulation dépend de modifications antérieures à son dernier
+     * instantané.
+     */
+    void mark() {
+        markedUndo = undoStack.size();
+        markedRedo = redoStack.size();
+        crossedMark = false;
+    }
+
+    /**
+     * @return true si une modification présente lors du dernier appel à
+     *         {@link #mark()} a été annulée ou rétablie depuis le dernier appel
+     *         à cette méthode
+     */
+    boolean crossedMark() {
+        boolean crossed = crossedMark;
+        crossedMark = false;
+        return crossed;
+    }
+
+    private void clearRedo() {
+        while (!redoStack.isEmpty()) {
+            redoStack.pop().discard();
+        }
+        markedRedo = 0;
+    }
+
+    private void trim() {
+        while (undoStack.size() > limit) {
+            undoStack.removeLast().discard();
+        }
+        markedUndo = Math.min(markedUndo, undoStack.size());
+    }
+}
\ No newline at end of file
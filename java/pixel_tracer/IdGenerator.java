@@ -1,56 +1,297 @@
 package pixel_tracer;
 
-import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Générateur d'identifiants uniques pour les objets.
+ * <p>
+ * Les identifiants sont distribués sans verrou, par un compteur atomique.
+ * Après {@link #loadId()}, le fichier {@value #ID_FILE} contient le plus grand
+ * identifiant réservé : le générateur y réserve des blocs d'au moins
+ * {@value #LEASE_SIZE} identifiants, sous le verrou du fichier
+ * {@value #LOCK_FILE}, pour que plusieurs processus partageant le même
+ * répertoire ne distribuent jamais le même identifiant. Le fichier est
+ * réécrit à côté puis renommé, et n'est donc jamais lu à moitié écrit.
  */
 public class IdGenerator {
-    private static long currentId = 0;
     private static final String ID_FILE = "id.txt";
+    private static final String LOCK_FILE = "id.lock";
+
+    /** Nombre d'identifiants réservés par le premier bloc. */
+    static final long LEASE_SIZE = 1024;
+    // Taille maximale d'un bloc : chaque bloc épuisé double la taille du
+    // suivant, pour que la création de nombreux objets n'écrive pas le fichier
+    // à chaque bloc
+    private static final long MAX_LEASE_SIZE = 1 << 16;
+
+    // Dernier identifiant distribué
+    private static final AtomicLong currentId = new AtomicLong();
+    // Dernier identifiant du bloc réservé ; au-delà, un nouveau bloc doit être
+    // réservé. Sans fichier, aucune limite.
+    private static volatile long leaseEnd = Long.MAX_VALUE;
+
+    // Réservations, protégées par LEASE
+    private static final Object LEASE = new Object();
+    private static boolean persistent;
+    private static long leaseStart;
+    private static long leaseSize = LEASE_SIZE;
+
+    // Identifiants notés ou imposés pour la commande journalisée du fil :
+    // chaque fil a les siens, quel que soit le verrouillage des appelants
+    private static final ThreadLocal<Trace> trace = new ThreadLocal<>();
 
     /**
      * Obtient le prochain identifiant disponible
      * 
      * @return Un nouvel identifiant unique
      */
-    public static synchronized long getNextId() {
-        return ++currentId;
+    public static long getNextId() {
+        Trace t = trace.get();
+        return t != null ? t.next() : issue();
+    }
+
+    /**
+     * Distribue l'identifiant qui suit le compteur, en réservant un nouveau
+     * bloc lorsque le bloc courant est épuisé.
+     */
+    private static long issue() {
+        while (true) {
+            long current = currentId.get();
+            if (current >= leaseEnd) {
+                renewLease();
+            } else if (currentId.compareAndSet(current, current + 1)) {
+                return current + 1;
+            }
+        }
+    }
+
+    /**
+     * @return Le dernier identifiant distribué
+     */
+    public static long getCurrentId() {
+        return currentId.get();
     }
 
     /**
-     * Définit l'identifiant courant
+     * Avance l'identifiant courant, par exemple après le chargement d'un
+     * projet dont les éléments portent déjà leurs identifiants. Les suivants
+     * sont distribués après celui-ci, quitte à réserver un nouveau bloc. Le
+     * compteur ne recule jamais : les identifiants déjà distribués, ou
+     * réservés par d'autres processus avant le bloc courant, ne sont pas
+     * repris.
      * 
-     * @param id La valeur à utiliser comme prochain id
+     * @param id Le plus grand identifiant déjà utilisé
      */
-    public static synchronized void setId(long id) {
-        currentId = id;
+    public static void setId(long id) {
+        currentId.accumulateAndGet(id, Math::max);
+    }
+
+    /**
+     * Commence à noter les identifiants distribués au fil appelant, pour
+     * qu'une commande journalisée puisse être rejouée avec les mêmes : un
+     * nouveau bloc, ou un autre processus, peut faire sauter le compteur.
+     */
+    static void beginRecording() {
+        trace.set(new Trace(null));
+    }
+
+    /**
+     * @return Les identifiants distribués au fil appelant depuis
+     *         {@link #beginRecording()}, dans l'ordre
+     */
+    static long[] endRecording() {
+        Trace t = trace.get();
+        trace.remove();
+        return t != null ? Arrays.copyOf(t.ids, t.size) : new long[0];
+    }
+
+    /**
+     * Impose au fil appelant les identifiants notés lors de l'exécution
+     * d'une commande, pour qu'elle soit rejouée à l'identique.
+     * 
+     * @param ids Les identifiants notés par {@link #endRecording()}
+     */
+    static void beginReplay(long[] ids) {
+        trace.set(new Trace(ids));
+    }
+
+    /**
+     * Termine la reprise d'une commande. Le compteur est avancé au-delà des
+     * identifiants imposés, qu'il ne distribuera donc plus.
+     */
+    static void endReplay() {
+        Trace t = trace.get();
+        trace.remove();
+        if (t != null) {
+            for (int i = 0; i < t.size; i++) {
+                setId(t.ids[i]);
+            }
+        }
     }
 
     /**
-     * Sauvegarde l'identifiant courant dans un fichier
+     * Rend au fichier les identifiants réservés mais non distribués, si aucun
+     * autre processus n'a réservé de bloc depuis. Un nouveau bloc sera réservé
+     * au prochain identifiant.
      */
     public static void saveId() {
-        try (FileWriter writer = new FileWriter(ID_FILE)) {
-            writer.write(Long.toString(currentId));
-        } catch (IOException e) {
-            System.err.println("Erreur lors de la sauvegarde de l'ID: " + e.getMessage());
+        synchronized (LEASE) {
+            try (FileChannel lockChannel = openLock()) {
+                FileLock lock = lockChannel.lock();
+                try {
+                    long mark = readMark();
+                    long current = currentId.get();
+                    long newMark;
+                    if (persistent && mark == leaseEnd) {
+                        // Les identifiants sous le bloc ont pu être réservés par
+                        // d'autres processus : ils ne sont pas rendus
+                        newMark = Math.max(current, leaseStart - 1);
+                    } else {
+                        newMark = Math.max(mark, current);
+                    }
+                    writeMark(newMark);
+                    if (persistent) {
+                        leaseEnd = current;
+                    }
+                } finally {
+                    lock.release();
+                }
+            } catch (IOException e) {
+                System.err.println("Erreur lors de la sauvegarde de l'ID: " + e.getMessage());
+            }
         }
     }
 
     /**
-     * Charge l'identifiant depuis un fichier
+     * Charge l'identifiant depuis un fichier, en y réservant un premier bloc.
+     * Sans fichier lisible, la numérotation commence à 0.
      */
     public static void loadId() {
+        synchronized (LEASE) {
+            if (!persistent || currentId.get() >= leaseEnd) {
+                persistent = true;
+                lease();
+            }
+        }
+    }
+
+    /**
+     * Réserve un nouveau bloc lorsque le bloc courant est épuisé.
+     */
+    private static void renewLease() {
+        synchronized (LEASE) {
+            // Un autre fil a pu réserver le bloc pendant l'attente
+            if (currentId.get() >= leaseEnd) {
+                leaseSize = Math.min(leaseSize * 2, MAX_LEASE_SIZE);
+                lease();
+            }
+        }
+    }
+
+    /**
+     * Réserve le bloc qui suit le plus grand identifiant réservé dans le
+     * fichier, ou le dernier distribué s'il est plus grand. Appelée sous
+     * LEASE.
+     */
+    private static void lease() {
+        try (FileChannel lockChannel = openLock()) {
+            FileLock lock = lockChannel.lock();
+            try {
+                long start = Math.max(readMark(), currentId.get());
+                writeMark(start + leaseSize);
+                leaseStart = start + 1;
+                currentId.accumulateAndGet(start, Math::max);
+                leaseEnd = start + leaseSize;
+            } finally {
+                lock.release();
+            }
+        } catch (IOException e) {
+            // Sans fichier, les identifiants restent uniques dans ce processus
+            System.err.println("Erreur lors de la réservation d'identifiants: " + e.getMessage());
+            persistent = false;
+            leaseEnd = Long.MAX_VALUE;
+        }
+    }
+
+    private static FileChannel openLock() throws IOException {
+        return FileChannel.open(Paths.get(LOCK_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * @return Le plus grand identifiant réservé, ou 0 si le fichier n'existe
+     *         pas ou est invalide
+     */
+    private static long readMark() throws IOException {
+        try {
+            String content = new String(Files.readAllBytes(Paths.get(ID_FILE)), StandardCharsets.US_ASCII);
+            return Long.parseLong(content.trim());
+        } catch (NoSuchFileException | NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static void writeMark(long mark) throws IOException {
+        Path file = Paths.get(ID_FILE).toAbsolutePath();
+        Path temporary = Files.createTempFile(file.getParent(), ID_FILE, ".tmp");
         try {
-            String content = new String(Files.readAllBytes(Paths.get(ID_FILE)));
-            currentId = Long.parseLong(content.trim());
-        } catch (IOException | NumberFormatException e) {
-            // Si le fichier n'existe pas ou est invalide, on commence à 0
-            currentId = 0;
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                ByteBuffer content = ByteBuffer.wrap(Long.toString(mark).getBytes(StandardCharsets.US_ASCII));
+                while (content.hasRemaining()) {
+                    channel.write(content);
+                }
+                channel.force(true);
+            }
+            try {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Identifiants d'une commande journalisée : notés à son exécution, ou
+     * imposés à sa reprise.
+     */
+    private static final class Trace {
+        final boolean replay;
+        long[] ids;
+        int size;
+        int next;
+
+        Trace(long[] replayed) {
+            this.replay = replayed != null;
+            this.ids = replay ? replayed : new long[4];
+            this.size = replay ? replayed.length : 0;
+        }
+
+        long next() {
+            if (replay) {
+                // Une commande rejouée qui en demande davantage reçoit des
+                // identifiants neufs
+                return next < size ? ids[next++] : issue();
+            }
+            long id = issue();
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+            return id;
         }
     }
 }
\ No newline at end of file
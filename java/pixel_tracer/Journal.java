@@ -0,0 +1,598 @@
+package pixel_tracer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.TreeSet;
+import java.util.zip.CRC32;
+
+/**
+ * Journal des commandes, pour retrouver le projet après un arrêt brutal.
+ * <p>
+ * Le journal est un répertoire d'instantanés du projet, au format de
+ * {@link ProjectFile}, et de segments numérotés par génération :
+ * {@code snapshot-g.ptp} est l'état du projet au début de la génération g et
+ * {@code journal-g.log} les commandes exécutées depuis. Chaque commande qui
+ * réussit est ajoutée au segment courant ; le fil appelant ne fait que la
+ * copier dans un tampon. Un fil d'écriture vide le tampon dans le fichier puis
+ * le force sur le disque : les commandes arrivées pendant une écriture partent
+ * ensemble à la suivante (validation groupée).
+ * <p>
+ * Lorsqu'un segment dépasse un seuil, le journal passe à la génération
+ * suivante : le projet est écrit en mémoire sur le fil de la commande, qui
+ * s'arrête le temps de parcourir toute la scène (environ 2 ms pour 10 000
+ * formes, 25 ms pour 100 000, voir {@code ProjectBenchmark.encode}). Seul
+ * l'enregistrement de l'instantané se fait sur un autre fil, après quoi les
+ * fichiers des générations précédentes sont supprimés. Tant que l'instantané
+ * n'est pas enregistré, les segments précédents restent et se rejouent à la
+ * suite l'un de l'autre.
+ * <p>
+ * À l'ouverture, le journal charge l'instantané le plus récent, puis rejoue
+ * les segments qui le suivent ; un enregistrement tronqué par l'arrêt termine
+ * la reprise. Un segment commence par un en-tête de {@value #HEADER_SIZE}
+ * octets : le nombre magique {@code PTJL}, la version, la génération et la
+ * limite de l'historique. Chaque enregistrement contient la longueur de son
+ * contenu, la somme de contrôle CRC-32 de ce contenu, puis le contenu : le
+ * nombre d'identifiants distribués par la commande, ces identifiants, et la
+ * commande en UTF-8. Les identifiants sont imposés à la commande rejouée, le
+ * compteur pouvant avoir sauté entre-temps ; les entiers sont en
+ * petit-boutiste.
+ * <p>
+ * Une commande qui ne se rejouerait pas à l'identique, comme le chargement
+ * d'un fichier ou l'annulation d'une modification antérieure au dernier
+ * instantané, n'est pas ajoutée : un instantané est enregistré aussitôt à sa
+ * place.
+ */
+public class Journal implements Closeable {
+    /** Les octets "PTJL", lus comme un entier petit-boutiste. */
+    static final int MAGIC = 0x4C4A5450;
+    static final int VERSION = 2;
+    static final int HEADER_SIZE = 24;
+
+    /** Taille d'un segment au-delà de laquelle un instantané est pris, par défaut. */
+    public static final long DEFAULT_COMPACTION_BYTES = 4L << 20;
+
+    // Longueur maximale du contenu d'un enregistrement ; au-delà, un
+    // enregistrement est considéré comme corrompu
+    private static final int MAX_RECORD = 1 << 20;
+    private static final int RECORD_OVERHEAD = 8;
+    private static final int INITIAL_BUFFER = 1 << 12;
+
+    private final PixelTracerApp app;
+    private final Path directory;
+    private final long compactionBytes;
+    private final Thread writer;
+
+    // État du fil appelant
+    private final CRC32 crc;
+    private long generation;
+    private long segmentBytes;
+    private Thread snapshotWriter;
+
+    // État partagé avec le fil d'écriture, protégé par lock. Les segments dont
+    // il reste des commandes à écrire sont dans l'ordre, le dernier recevant
+    // les nouvelles commandes.
+    private final Object lock = new Object();
+    private final ArrayDeque<Segment> segments;
+    private ByteBuffer spare;
+    private long appended;
+    private long durable;
+    private boolean closing;
+    private IOException failure;
+    private long snapshotGeneration;
+    private long writerGeneration;
+
+    private Journal(PixelTracerApp app, Path directory, long compactionBytes, long generation) throws IOException {
+        this.app = app;
+        this.directory = directory;
+        this.compactionBytes = compactionBytes;
+        this.crc = new CRC32();
+        this.segments = new ArrayDeque<>();
+
+        // Le projet tel qu'il est à l'ouverture est la base de la première
+        // génération : les commandes rejouées ne le sont plus jamais
+        this.generation = generation;
+        Path snapshot = snapshotPath(directory, generation);
+        ProjectFile.save(ProjectFile.encode(app, snapshot), snapshot);
+        this.snapshotGeneration = generation;
+        app.getHistory().mark();
+        segments.add(new Segment(generation, app.getHistory().getLimit()));
+
+        this.writer = new Thread(this::write, "pixel-tracer-journal");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Ouvre un journal avec le seuil de compaction par défaut.
+     *
+     * @see #open(PixelTracerApp, CommandProcessor, Path, long)
+     */
+    public static Journal open(PixelTracerApp app, CommandProcessor processor, Path directory) throws IOException {
+        return open(app, processor, directory, DEFAULT_COMPACTION_BYTES);
+    }
+
+    /**
+     * Ouvre un journal, créé s'il n'existe pas. Un journal existant remplace le
+     * projet de l'application par son dernier instantané, puis les commandes
+     * enregistrées depuis sont rejouées par le processeur.
+     *
+     * @param app             L'application
+     * @param processor       Le processeur qui rejoue les commandes, auquel le
+     *                        journal n'est pas encore attaché
+     * @param directory       Le répertoire du journal
+     * @param compactionBytes Taille d'un segment au-delà de laquelle un
+     *                        instantané est pris
+     * @return Le journal, prêt à recevoir des commandes
+     * @throws IOException si le journal ne peut pas être lu ou créé
+     */
+    public static Journal open(PixelTracerApp app, CommandProcessor processor, Path directory, long compactionBytes)
+            throws IOException {
+        if (compactionBytes <= 0)
+            throw new IllegalArgumentException("Seuil de compaction invalide : " + compactionBytes);
+        Files.createDirectories(directory);
+        long last = recover(app, processor, directory);
+        return new Journal(app, directory, compactionBytes, last + 1);
+    }
+
+    /**
+     * Ajoute une commande qui vient d'être exécutée avec succès. Si elle a
+     * annulé ou rétabli une modification antérieure au dernier instantané,
+     * elle ne peut pas être rejouée : un instantané est pris à la place.
+     *
+     * @param command La ligne de commande
+     * @param ids     Les identifiants distribués pendant son exécution, dans
+     *                l'ordre
+     */
+    public void append(String command, long[] ids) {
+        byte[] bytes = command.getBytes(StandardCharsets.UTF_8);
+        int length = 4 + 8 * ids.length + bytes.length;
+        if (app.getHistory().crossedMark() || length > MAX_RECORD) {
+            checkpoint();
+            return;
+        }
+        synchronized (lock) {
+            if (failure != null)
+                return;
+            Segment segment = segments.getLast();
+            segment.records = ensure(segment.records, RECORD_OVERHEAD + length);
+            ByteBuffer records = segment.records;
+            int start = records.position() + RECORD_OVERHEAD;
+            records.putInt(length).putInt(0).putInt(ids.length);
+            for (long id : ids) {
+                records.putLong(id);
+            }
+            records.put(bytes);
+            crc.reset();
+            crc.update(records.array(), start, length);
+            records.putInt(start - 4, (int) crc.getValue());
+            segment.lastSequence = ++appended;
+            lock.notifyAll();
+        }
+
+        segmentBytes += RECORD_OVERHEAD + length;
+        if (segmentBytes >= compactionBytes && (snapshotWriter == null || !snapshotWriter.isAlive())) {
+            snapshotAndRotate();
+        }
+    }
+
+    /**
+     * Enregistre immédiatement un instantané du projet et commence une
+     * nouvelle génération, pour une modification qui ne peut pas être rejouée
+     * à partir des commandes.
+     */
+    public void checkpoint() {
+        try {
+            Path snapshot = snapshotPath(directory, generation + 1);
+            ProjectFile.save(ProjectFile.encode(app, snapshot), snapshot);
+        } catch (IOException e) {
+            fail(e);
+            return;
+        }
+        snapshotSaved(rotate());
+    }
+
+    /**
+     * Attend que toutes les commandes ajoutées soient écrites sur le disque.
+     *
+     * @throws IOException si l'écriture du journal a échoué
+     */
+    public void sync() throws IOException {
+        synchronized (lock) {
+            long target = appended;
+            while (durable < target && failure == null) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Attente du journal interrompue");
+                }
+            }
+            if (failure != null)
+                throw failure;
+        }
+    }
+
+    /**
+     * Écrit les dernières commandes sur le disque et arrête les fils du
+     * journal.
+     *
+     * @throws IOException si l'écriture du journal a échoué
+     */
+    @Override
+    public void close() throws IOException {
+        boolean interrupted = false;
+        synchronized (lock) {
+            closing = true;
+            lock.notifyAll();
+        }
+        for (Thread thread : new Thread[] { snapshotWriter, writer }) {
+            while (thread != null && thread.isAlive()) {
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (lock) {
+            if (failure != null)
+                throw failure;
+        }
+    }
+
+    /**
+     * @return La génération courante, dont le segment reçoit les commandes
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Écrit le projet en mémoire et passe à la génération suivante ;
+     * l'instantané est enregistré par un autre fil. L'écriture en mémoire
+     * parcourt toute la scène sur le fil appelant : c'est la pause que coûte
+     * la compaction à la commande qui la déclenche.
+     */
+    private void snapshotAndRotate() {
+        ByteBuffer snapshot;
+        try {
+            snapshot = ProjectFile.encode(app, snapshotPath(directory, generation + 1));
+        } catch (IOException e) {
+            fail(e);
+            return;
+        }
+        long next = rotate();
+        snapshotWriter = new Thread(() -> {
+            try {
+                ProjectFile.save(snapshot, snapshotPath(directory, next));
+                snapshotSaved(next);
+            } catch (IOException e) {
+                // Les segments précédents restent et se rejouent à la suite
+                System.err.println("Erreur lors de l'enregistrement de l'instantané " + next + ": " + e.getMessage());
+            }
+        }, "pixel-tracer-snapshot");
+        snapshotWriter.setDaemon(true);
+        snapshotWriter.start();
+    }
+
+    /**
+     * Commence un nouveau segment, dont l'instantané est l'état courant du
+     * projet.
+     *
+     * @return La nouvelle génération
+     */
+    private long rotate() {
+        generation++;
+        segmentBytes = 0;
+        History history = app.getHistory();
+        history.mark();
+        synchronized (lock) {
+            segments.add(new Segment(generation, history.getLimit()));
+            lock.notifyAll();
+        }
+        return generation;
+    }
+
+    private void snapshotSaved(long saved) {
+        synchronized (lock) {
+            snapshotGeneration = Math.max(snapshotGeneration, saved);
+        }
+        purge();
+    }
+
+    /**
+     * Supprime les instantanés remplacés par un plus récent, et les segments
+     * qui les suivent une fois que le fil d'écriture les a fermés.
+     */
+    private void purge() {
+        long snapshots;
+        long logs;
+        synchronized (lock) {
+            snapshots = snapshotGeneration;
+            logs = Math.min(snapshotGeneration, writerGeneration);
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                long snapshot = generationOf(name, "snapshot-", ".ptp");
+                long log = generationOf(name, "journal-", ".log");
+                if ((snapshot > 0 && snapshot < snapshots) || (log > 0 && log < logs)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException e) {
+            // Les fichiers restants seront supprimés à la compaction suivante
+        }
+    }
+
+    /**
+     * Boucle du fil d'écriture : ouvre les segments dans l'ordre et y écrit
+     * les commandes par lots, chaque lot étant forcé sur le disque.
+     */
+    private void write() {
+        FileChannel channel = null;
+        long open = 0;
+        try {
+            while (true) {
+                Segment segment;
+                ByteBuffer batch = null;
+                long sequence = 0;
+                synchronized (lock) {
+                    while (!closing && segments.size() == 1 && segments.getFirst().generation == open
+                            && segments.getFirst().records.position() == 0) {
+                        lock.wait();
+                    }
+                    segment = segments.getFirst();
+                    if (segment.generation == open) {
+                        if (segment.records.position() > 0) {
+                            batch = segment.records;
+                            segment.records = spare != null ? spare
+                                    : ByteBuffer.allocate(INITIAL_BUFFER).order(ByteOrder.LITTLE_ENDIAN);
+                            spare = null;
+                            sequence = segment.lastSequence;
+                        } else if (segments.size() > 1) {
+                            segments.removeFirst();
+                            continue;
+                        } else {
+                            break; // Fermeture, tout est écrit
+                        }
+                    }
+                }
+
+                if (batch == null) {
+                    if (channel != null) {
+                        channel.close();
+                    }
+                    channel = openSegment(segment);
+                    open = segment.generation;
+                    synchronized (lock) {
+                        writerGeneration = open;
+                    }
+                    purge();
+                    continue;
+                }
+
+                batch.flip();
+                while (batch.hasRemaining()) {
+                    channel.write(batch);
+                }
+                channel.force(false);
+                synchronized (lock) {
+                    batch.clear();
+                    spare = batch;
+                    durable = sequence;
+                    lock.notifyAll();
+                }
+            }
+        } catch (IOException e) {
+            fail(e);
+        } catch (InterruptedException e) {
+            fail(new InterruptedIOException("Écriture du journal interrompue"));
+        } finally {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    fail(e);
+                }
+            }
+        }
+    }
+
+    private FileChannel openSegment(Segment segment) throws IOException {
+        FileChannel channel = FileChannel.open(logPath(directory, segment.generation), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putLong(segment.generation).putInt(segment.historyLimit);
+            header.clear();
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+            channel.force(false);
+            return channel;
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Arrête le journal après une erreur d'écriture : les commandes suivantes
+     * ne sont plus enregistrées.
+     */
+    private void fail(IOException e) {
+        synchronized (lock) {
+            if (failure != null)
+                return;
+            failure = e;
+            segments.getLast().records.clear();
+            lock.notifyAll();
+        }
+        System.err.println("Erreur du journal, les commandes suivantes ne sont plus enregistrées: " + e.getMessage());
+    }
+
+    /**
+     * Charge le dernier instantané du répertoire et rejoue les segments qui le
+     * suivent.
+     *
+     * @return La plus grande génération présente, 0 pour un nouveau journal
+     */
+    private static long recover(PixelTracerApp app, CommandProcessor processor, Path directory)
+            throws IOException {
+        TreeSet<Long> snapshots = new TreeSet<>();
+        TreeSet<Long> logs = new TreeSet<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                long snapshot = generationOf(name, "snapshot-", ".ptp");
+                long log = generationOf(name, "journal-", ".log");
+                if (snapshot > 0) {
+                    snapshots.add(snapshot);
+                } else if (log > 0) {
+                    logs.add(log);
+                } else if (name.startsWith("snapshot-") && name.endsWith(".tmp")) {
+                    // Instantané interrompu par l'arrêt
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+        if (snapshots.isEmpty()) {
+            if (!logs.isEmpty())
+                throw new IOException(directory + ": segments de journal sans instantané");
+            return 0;
+        }
+
+        long start = 0;
+        for (long snapshot : snapshots.descendingSet()) {
+            try {
+                ProjectFile.load(app, snapshotPath(directory, snapshot));
+                start = snapshot;
+                break;
+            } catch (IOException e) {
+                System.err.println("Instantané illisible, essai du précédent: " + e.getMessage());
+            }
+        }
+        if (start == 0)
+            throw new IOException(directory + ": aucun instantané lisible");
+
+        for (long log = start; logs.contains(log); log++) {
+            if (!replay(app, processor, logPath(directory, log), log))
+                break;
+        }
+        return Math.max(snapshots.last(), logs.isEmpty() ? 0 : logs.last());
+    }
+
+    /**
+     * Rejoue les commandes d'un segment.
+     *
+     * @return true si le segment est complet, false s'il se termine par un
+     *         enregistrement tronqué ou corrompu
+     */
+    private static boolean replay(PixelTracerApp app, CommandProcessor processor, Path path, long generation)
+            throws IOException {
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(path)).order(ByteOrder.LITTLE_ENDIAN);
+        if (data.remaining() < HEADER_SIZE || data.getInt() != MAGIC || data.getInt() != VERSION
+                || data.getLong() != generation) {
+            System.err.println(path + ": en-tête de segment invalide, reprise arrêtée");
+            return false;
+        }
+        app.getHistory().setLimit(data.getInt());
+        data.position(HEADER_SIZE);
+
+        CRC32 crc = new CRC32();
+        while (data.remaining() >= RECORD_OVERHEAD) {
+            int length = data.getInt();
+            int checksum = data.getInt();
+            if (length < 0 || length > MAX_RECORD || length > data.remaining())
+                return false;
+            crc.reset();
+            crc.update(data.array(), data.position(), length);
+            if ((int) crc.getValue() != checksum)
+                return false;
+            int end = data.position() + length;
+            int count = length >= 4 ? data.getInt() : -1;
+            if (count < 0 || count > (length - 4) / 8)
+                return false;
+            long[] ids = new long[count];
+            for (int i = 0; i < count; i++) {
+                ids[i] = data.getLong();
+            }
+            String command = new String(data.array(), data.position(), end - data.position(), StandardCharsets.UTF_8);
+            data.position(end);
+            int errorCode;
+            IdGenerator.beginReplay(ids);
+            try {
+                errorCode = processor.processCommand(command);
+            } finally {
+                IdGenerator.endReplay();
+            }
+            if (errorCode != 0) {
+                System.err.println(path + ": commande rejouée en échec (" + errorCode + ") : " + command);
+            }
+        }
+        return !data.hasRemaining();
+    }
+
+    private static ByteBuffer ensure(ByteBuffer buffer, int n) {
+        if (buffer.remaining() >= n)
+            return buffer;
+        ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + n))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.flip();
+        larger.put(buffer);
+        return larger;
+    }
+
+    private static Path snapshotPath(Path directory, long generation) {
+        return directory.resolve("snapshot-" + generation + ".ptp");
+    }
+
+    private static Path logPath(Path directory, long generation) {
+        return directory.resolve("journal-" + generation + ".log");
+    }
+
+    /**
+     * @return La génération d'un nom de fichier de la forme préfixe-g.suffixe,
+     *         ou 0 si le nom n'a pas cette forme
+     */
+    private static long generationOf(String name, String prefix, String suffix) {
+        if (!name.startsWith(prefix) || !name.endsWith(suffix)
+                || name.length() <= prefix.length() + suffix.length())
+            return 0;
+        try {
+            return Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Commandes d'une génération qui restent à écrire.
+     */
+    private static final class Segment {
+        final long generation;
+        final int historyLimit;
+        ByteBuffer records;
+        long lastSequence;
+
+        Segment(long generation, int historyLimit) {
+            this.generation = generation;
+            this.historyLimit = historyLimit;
+            this.records = ByteBuffer.allocate(INITIAL_BUFFER).order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+}
\ No newline at end of file
@@ -10,7 +10,15 @@ public class Layer {
     private int id;
     private String name;
     private boolean visible;
-    private List<Shape> shapes;
+    private LongOrderedMap<Shape> shapes;
+    private Area area;
+    private SpatialIndex index;
+    private long nextOrder;
+
+    // Pixels de la couche, mis en cache d'un rendu à l'autre
+    private CoverageMask coverage;
+    private BoundingBox coverageDamage;
+    private boolean coverageStale;
 
     /**
      * Crée une nouvelle couche avec l'ID et le nom spécifiés.
@@ -22,7 +30,10 @@ public class Layer {
         this.id = id;
         this.name = name;
         this.visible = true;
-        this.shapes = new ArrayList<>();
+        this.shapes = new LongOrderedMap<>();
+        this.index = new SpatialIndex();
+        this.nextOrder = 0;
+        this.coverageStale = true;
     }
 
     /**
@@ -64,14 +75,112 @@ public class Layer {
      * @param visible Nouvelle visibilité
      */
     public void setVisible(boolean visible) {
-        this.visible = visible;
+        if (this.visible != visible) {
+            this.visible = visible;
+            if (area != null) {
+                area.invalidate(getBounds());
+            }
+        }
+    }
+
+    /**
+     * @return La zone qui contient cette couche, ou null si elle n'est
+     *         rattachée à aucune zone
+     */
+    public Area getArea() {
+        return area;
+    }
+
+    /**
+     * Rattache la couche à une zone. Appelée par {@link Area#addLayer(Layer)}.
+     * 
+     * @param area La zone propriétaire, ou null pour détacher la couche
+     */
+    void setArea(Area area) {
+        if (this.area != area) {
+            // Le masque est dimensionné pour la zone propriétaire
+            invalidateCoverage();
+        }
+        this.area = area;
+    }
+
+    /**
+     * Calcule la boîte englobant toutes les formes de la couche.
+     * 
+     * @return La boîte englobante, vide si la couche ne contient aucune forme
+     */
+    public BoundingBox getBounds() {
+        BoundingBox bounds = BoundingBox.EMPTY;
+        for (Shape shape : shapes.values()) {
+            bounds = bounds.union(shape.getBounds());
+        }
+        return bounds;
+    }
+
+    /**
+     * Marque une région du masque de la couche à recalculer, et signale à la
+     * zone propriétaire qu'elle doit être redessinée. Une couche invisible ne
+     * produit aucun pixel, elle n'endommage donc pas la zone.
+     * 
+     * @param bounds La région modifiée
+     */
+    private void damage(BoundingBox bounds) {
+        if (!coverageStale && !bounds.isEmpty()) {
+            coverageDamage = coverageDamage == null ? bounds : coverageDamage.union(bounds);
+        }
+        if (area != null && visible) {
+            area.invalidate(bounds);
+        }
     }
 
     /**
-     * @return La liste des formes dans cette couche
+     * @return Le masque des pixels de la couche, ou null s'il n'a jamais été
+     *         calculé
+     */
+    CoverageMask getCoverage() {
+        return coverage;
+    }
+
+    /**
+     * Marque tout le masque de la couche à recalculer.
+     */
+    void invalidateCoverage() {
+        coverageStale = true;
+        coverageDamage = null;
+    }
+
+    /**
+     * Prépare le masque pour une zone de la taille spécifiée et renvoie la
+     * région à recalculer, qui est ensuite considérée comme à jour. L'appelant
+     * doit effacer puis redessiner cette région du masque.
+     * 
+     * @param width  Largeur de la zone
+     * @param height Hauteur de la zone
+     * @return La région du masque à recalculer, vide si le masque est à jour
+     */
+    BoundingBox takeCoverageDamage(int width, int height) {
+        if (coverage == null || coverage.getWidth() != width || coverage.getHeight() != height) {
+            coverage = new CoverageMask(width, height);
+            coverageStale = true;
+        }
+        BoundingBox bounds = new BoundingBox(0, 0, width - 1, height - 1);
+        BoundingBox region;
+        if (coverageStale) {
+            region = bounds;
+        } else {
+            region = coverageDamage == null ? BoundingBox.EMPTY : coverageDamage.intersection(bounds);
+        }
+        coverageStale = false;
+        coverageDamage = null;
+        return region;
+    }
+
+    /**
+     * @return La liste des formes dans cette couche, dans l'ordre de rendu (vue
+     *         en lecture seule)
      */
     public List<Shape> getShapes() {
-        return shapes;
+        return shapes.values();
     }
 
     /**
@@ -80,7 +189,42 @@ public class Layer {
      * @param shape La forme à ajouter
      */
     public void addShape(Shape shape) {
-        shapes.add(shape);
+        Shape previous = shapes.put(shape.getId(), shape);
+        if (previous == shape)
+            return;
+        if (previous != null) {
+            // Une autre forme portait le même identifiant : elle est remplacée
+            detachShape(previous);
+        }
+        shape.attach(this, nextOrder++);
+        index.insert(shape, shape.getBounds());
+        damage(shape.getBounds());
+    }
+
+    /**
+     * Replace une forme retirée de la couche à sa position d'origine, avec son
+     * rang de rendu d'origine. Utilisée pour annuler une suppression.
+     * 
+     * @param shape La forme à replacer
+     * @param next  La forme qui la suivait, ou null si elle était la dernière
+     */
+    void insertShape(Shape shape, Shape next) {
+        if (next != null && containsShape(next)) {
+            shapes.putBefore(shape.getId(), shape, next.getId());
+        } else {
+            shapes.put(shape.getId(), shape);
+        }
+        shape.attach(this, shape.getOrder());
+        index.insert(shape, shape.getBounds());
+        damage(shape.getBounds());
+    }
+
+    /**
+     * @param shape Une forme de la couche
+     * @return La forme qui la suit dans l'ordre de rendu, ou null
+     */
+    Shape nextShape(Shape shape) {
+        return shapes.nextValue(shape.getId());
     }
 
     /**
@@ -90,7 +234,11 @@ public class Layer {
      * @return true si la forme a été trouvée et supprimée, false sinon
      */
     public boolean removeShape(Shape shape) {
-        return shapes.remove(shape);
+        if (shapes.get(shape.getId()) != shape)
+            return false;
+        shapes.remove(shape.getId());
+        detachShape(shape);
+        return true;
     }
 
     /**
@@ -100,13 +248,85 @@ public class Layer {
      * @return true si une forme a été trouvée et supprimée, false sinon
      */
     public boolean removeShapeById(long shapeId) {
-        for (int i = 0; i < shapes.size(); i++) {
-            if (shapes.get(i).getId() == shapeId) {
-                shapes.remove(i);
-                return true;
+        Shape shape = shapes.remove(shapeId);
+        if (shape == null)
+            return false;
+        detachShape(shape);
+        return true;
+    }
+
+    /**
+     * Retire une forme de l'index et marque ses pixels à effacer.
+     * 
+     * @param shape La forme retirée de la couche
+     */
+    private void detachShape(Shape shape) {
+        index.remove(shape, shape.getBounds());
+        damage(shape.getBounds());
+        shape.attach(null, shape.getOrder());
+    }
+
+    /**
+     * Met à jour l'index après une modification de la géométrie d'une forme.
+     * Appelée par {@link Shape#geometryChanged()}.
+     * 
+     * @param shape     La forme modifiée
+     * @param oldBounds Sa boîte englobante avant la modification
+     */
+    void shapeChanged(Shape shape, BoundingBox oldBounds) {
+        if (oldBounds != null) {
+            index.remove(shape, oldBounds);
+            damage(oldBounds);
+        }
+        index.insert(shape, shape.getBounds());
+        damage(shape.getBounds());
+    }
+
+    /**
+     * Recherche les formes dont la boîte englobante intersecte une région.
+     * Pour une région couvrant une grande partie des cases occupées de l'index,
+     * un simple parcours de la liste est plus rapide.
+     * 
+     * @param region La région recherchée
+     * @return Les formes trouvées, dans l'ordre de rendu
+     */
+    public List<Shape> findShapesIn(BoundingBox region) {
+        List<Shape> result = new ArrayList<>();
+        findShapesIn(region, result);
+        return result;
+    }
+
+    /**
+     * Ajoute à une liste les formes dont la boîte englobante intersecte une
+     * région, pour permettre au rendu de réutiliser la même liste d'une trame à
+     * l'autre.
+     * 
+     * @param region La région recherchée
+     * @param result La liste recevant les formes trouvées, dans l'ordre de rendu
+     */
+    public void findShapesIn(BoundingBox region, List<Shape> result) {
+        if (index.cellCount(region) * 4 < index.occupiedCellCount()) {
+            index.query(region, result);
+        } else {
+            for (Shape shape : shapes.values()) {
+                if (shape.getBounds().intersects(region)) {
+                    result.add(shape);
+                }
             }
         }
-        return false;
+    }
+
+    /**
+     * Recherche les formes dont la boîte englobante contient une cellule.
+     * 
+     * @param x Coordonnée X
+     * @param y Coordonnée Y
+     * @return Les formes trouvées, dans l'ordre de rendu
+     */
+    public List<Shape> findShapesAt(int x, int y) {
+        List<Shape> result = new ArrayList<>();
+        index.query(new BoundingBox(x, y, x, y), result);
+        return result;
     }
 
     /**
@@ -116,12 +336,15 @@ public class Layer {
      * @return La forme correspondant à l'ID, ou null si aucune ne correspond
      */
     public Shape findShapeById(long shapeId) {
-        for (Shape shape : shapes) {
-            if (shape.getId() == shapeId) {
-                return shape;
-            }
-        }
-        return null;
+        return shapes.get(shapeId);
+    }
+
+    /**
+     * @param shape La forme recherchée
+     * @return true si la forme appartient à cette couche
+     */
+    public boolean containsShape(Shape shape) {
+        return shape != null && shapes.get(shape.getId()) == shape;
     }
 
     @Override
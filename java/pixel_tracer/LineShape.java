@@ -33,6 +33,7 @@ public class LineShape extends Shape {
      */
     public void setP1(Point p1) {
         this.p1 = p1;
+        geometryChanged();
     }
 
     /**
@@ -47,6 +48,20 @@ public class LineShape extends Shape {
      */
     public void setP2(Point p2) {
         this.p2 = p2;
+        geometryChanged();
+    }
+
+    @Override
+    protected BoundingBox computeBounds() {
+        return BoundingBox.ofCorners(p1.getPosX(), p1.getPosY(), p2.getPosX(), p2.getPosY());
+    }
+
+    @Override
+    protected int[] computePath(Transform transform) {
+        int[] points = new int[4];
+        putTransformed(transform, p1.getPosX(), p1.getPosY(), points, 0);
+        putTransformed(transform, p2.getPosX(), p2.getPosY(), points, 1);
+        return points;
     }
 
     @Override
@@ -0,0 +1,419 @@
+package pixel_tracer;
+
+import java.util.AbstractSequentialList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Table associative à clés primitives {@code long} qui conserve l'ordre
+ * d'insertion. La recherche, l'ajout et la suppression se font en temps
+ * constant, sans objet intermédiaire par entrée.
+ * <p>
+ * Les entrées sont rangées dans des tableaux parallèles et chaînées dans
+ * l'ordre d'insertion ; une table de hachage à adressage ouvert (sondage
+ * linéaire) associe chaque clé à son emplacement.
+ *
+ * @param <V> Type des valeurs
+ */
+public class LongOrderedMap<V> {
+    private static final int NONE = -1;
+    private static final int DEFAULT_CAPACITY = 8;
+
+    // Entrées : clé, valeur et chaînage dans l'ordre d'insertion
+    private long[] keys;
+    private Object[] values;
+    private int[] next;
+    private int[] prev;
+    private int head;
+    private int tail;
+    private int freeSlot;
+    private int usedSlots;
+    private int size;
+
+    // Table de hachage : emplacement de l'entrée + 1, 0 pour une case libre
+    private int[] table;
+    private int mask;
+
+    private int modCount;
+    private final List<V> valuesView;
+
+    /**
+     * Crée une table vide.
+     */
+    public LongOrderedMap() {
+        this.keys = new long[DEFAULT_CAPACITY];
+        this.values = new Object[DEFAULT_CAPACITY];
+        this.next = new int[DEFAULT_CAPACITY];
+        this.prev = new int[DEFAULT_CAPACITY];
+        this.table = new int[DEFAULT_CAPACITY * 2];
+        this.mask = table.length - 1;
+        this.head = NONE;
+        this.tail = NONE;
+        this.freeSlot = NONE;
+        this.valuesView = new ValuesView();
+    }
+
+    /**
+     * @return Le nombre d'entrées
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return true si la table ne contient aucune entrée
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @param key La clé recherchée
+     * @return true si la clé est présente
+     */
+    public boolean containsKey(long key) {
+        return findSlot(key) != NONE;
+    }
+
+    /**
+     * @param key La clé recherchée
+     * @return La valeur associée à la clé, ou null si elle est absente
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        int slot = findSlot(key);
+        return slot == NONE ? null : (V) values[slot];
+    }
+
+    /**
+     * Associe une valeur à une clé. Une nouvelle clé est placée en fin d'ordre ;
+     * une clé existante garde sa position.
+     *
+     * @param key   La clé
+     * @param value La valeur
+     * @return L'ancienne valeur associée à la clé, ou null
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        int slot = findSlot(key);
+        if (slot != NONE) {
+            V previous = (V) values[slot];
+            values[slot] = value;
+            return previous;
+        }
+
+        slot = allocateSlot();
+        keys[slot] = key;
+        values[slot] = value;
+        next[slot] = NONE;
+        prev[slot] = tail;
+        if (tail == NONE) {
+            head = slot;
+        } else {
+            next[tail] = slot;
+        }
+        tail = slot;
+        insertInTable(key, slot);
+        size++;
+        modCount++;
+        return null;
+    }
+
+    /**
+     * Associe une valeur à une nouvelle clé, placée juste avant une autre dans
+     * l'ordre. Une clé existante garde sa position.
+     *
+     * @param key     La clé
+     * @param value   La valeur
+     * @param nextKey La clé devant laquelle placer la nouvelle ; si elle est
+     *                absente, la nouvelle clé est placée en fin d'ordre
+     * @return L'ancienne valeur associée à la clé, ou null
+     */
+    @SuppressWarnings("unchecked")
+    public V putBefore(long key, V value, long nextKey) {
+        int nextSlot = findSlot(nextKey);
+        int slot = findSlot(key);
+        if (slot != NONE || nextSlot == NONE)
+            return put(key, value);
+
+        slot = allocateSlot();
+        // Un agrandissement des tableaux ne déplace pas les entrées : nextSlot reste valable
+        keys[slot] = key;
+        values[slot] = value;
+        next[slot] = nextSlot;
+        prev[slot] = prev[nextSlot];
+        if (prev[nextSlot] == NONE) {
+            head = slot;
+        } else {
+            next[prev[nextSlot]] = slot;
+        }
+        prev[nextSlot] = slot;
+        insertInTable(key, slot);
+        size++;
+        modCount++;
+        return null;
+    }
+
+    /**
+     * @param key Une clé
+     * @return La valeur de la clé qui la suit dans l'ordre, ou null si la clé
+     *         est absente ou en fin d'ordre
+     */
+    @SuppressWarnings("unchecked")
+    public V nextValue(long key) {
+        int slot = findSlot(key);
+        if (slot == NONE || next[slot] == NONE)
+            return null;
+        return (V) values[next[slot]];
+    }
+
+    /**
+     * Supprime une clé.
+     *
+     * @param key La clé à supprimer
+     * @return La valeur qui était associée à la clé, ou null si elle était
+     *         absente
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        int index = findIndex(key);
+        if (index == NONE)
+            return null;
+
+        int slot = table[index] - 1;
+        deleteFromTable(index);
+
+        // Retrait du chaînage d'ordre
+        if (prev[slot] == NONE) {
+            head = next[slot];
+        } else {
+            next[prev[slot]] = next[slot];
+        }
+        if (next[slot] == NONE) {
+            tail = prev[slot];
+        } else {
+            prev[next[slot]] = prev[slot];
+        }
+
+        V previous = (V) values[slot];
+        values[slot] = null;
+        next[slot] = freeSlot;
+        freeSlot = slot;
+        size--;
+        modCount++;
+        return previous;
+    }
+
+    /**
+     * Supprime toutes les entrées.
+     */
+    public void clear() {
+        Arrays.fill(values, 0, usedSlots, null);
+        Arrays.fill(table, 0);
+        head = NONE;
+        tail = NONE;
+        freeSlot = NONE;
+        usedSlots = 0;
+        size = 0;
+        modCount++;
+    }
+
+    /**
+     * Renvoie une vue en lecture seule des valeurs, dans l'ordre d'insertion.
+     * La vue reflète les modifications ultérieures de la table. L'accès par
+     * position parcourt le chaînage depuis l'extrémité la plus proche.
+     *
+     * @return La liste des valeurs
+     */
+    public List<V> values() {
+        return valuesView;
+    }
+
+    private int findSlot(long key) {
+        int index = findIndex(key);
+        return index == NONE ? NONE : table[index] - 1;
+    }
+
+    private int findIndex(long key) {
+        int index = hash(key) & mask;
+        while (true) {
+            int entry = table[index];
+            if (entry == 0)
+                return NONE;
+            if (keys[entry - 1] == key)
+                return index;
+            index = (index + 1) & mask;
+        }
+    }
+
+    private void insertInTable(long key, int slot) {
+        int index = hash(key) & mask;
+        while (table[index] != 0) {
+            index = (index + 1) & mask;
+        }
+        table[index] = slot + 1;
+    }
+
+    /**
+     * Libère une case de la table en décalant les entrées suivantes de la même
+     * séquence de sondage, pour ne laisser aucune marque de suppression.
+     */
+    private void deleteFromTable(int index) {
+        int hole = index;
+        int current = (index + 1) & mask;
+        while (table[current] != 0) {
+            int home = hash(keys[table[current] - 1]) & mask;
+            // L'entrée peut combler le trou si sa position d'origine ne se
+            // trouve pas entre le trou (exclu) et sa position actuelle
+            boolean movable = hole <= current
+                    ? home <= hole || home > current
+                    : home <= hole && home > current;
+            if (movable) {
+                table[hole] = table[current];
+                hole = current;
+            }
+            current = (current + 1) & mask;
+        }
+        table[hole] = 0;
+    }
+
+    private int allocateSlot() {
+        if (freeSlot != NONE) {
+            int slot = freeSlot;
+            freeSlot = next[slot];
+            return slot;
+        }
+        if (usedSlots == keys.length) {
+            grow();
+        }
+        return usedSlots++;
+    }
+
+    private void grow() {
+        int capacity = keys.length * 2;
+        keys = Arrays.copyOf(keys, capacity);
+        values = Arrays.copyOf(values, capacity);
+        next = Arrays.copyOf(next, capacity);
+        prev = Arrays.copyOf(prev, capacity);
+
+        // La table de hachage garde un taux de remplissage d'au plus 1/2
+        table = new int[capacity * 2];
+        mask = table.length - 1;
+        for (int slot = head; slot != NONE; slot = next[slot]) {
+            insertInTable(keys[slot], slot);
+        }
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * Vue des valeurs dans l'ordre d'insertion.
+     */
+    private class ValuesView extends AbstractSequentialList<V> {
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public ListIterator<V> listIterator(int index) {
+            if (index < 0 || index > size)
+                throw new IndexOutOfBoundsException("Index: " + index + ", taille: " + size);
+            return new ValuesIterator(index);
+        }
+    }
+
+    /**
+     * Itérateur en lecture seule sur le chaînage d'ordre.
+     */
+    private class ValuesIterator implements ListIterator<V> {
+        private int nextSlot;
+        private int nextIndex;
+        private final int expectedModCount;
+
+        ValuesIterator(int index) {
+            this.expectedModCount = modCount;
+            if (index <= size / 2) {
+                nextSlot = head;
+                for (int i = 0; i < index; i++) {
+                    nextSlot = next[nextSlot];
+                }
+            } else {
+                nextSlot = NONE;
+                for (int i = size; i > index; i--) {
+                    nextSlot = nextSlot == NONE ? tail : prev[nextSlot];
+                }
+            }
+            this.nextIndex = index;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextIndex < size;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V next() {
+            checkForComodification();
+            if (!hasNext())
+                throw new NoSuchElementException();
+            V value = (V) values[nextSlot];
+            nextSlot = next[nextSlot];
+            nextIndex++;
+            return value;
+        }
+
+        @Override
+        public boolean hasPrevious() {
+            return nextIndex > 0;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V previous() {
+            checkForComodification();
+            if (!hasPrevious())
+                throw new NoSuchElementException();
+            nextSlot = nextSlot == NONE ? tail : prev[nextSlot];
+            nextIndex--;
+            return (V) values[nextSlot];
+        }
+
+        @Override
+        public int nextIndex() {
+            return nextIndex;
+        }
+
+        @Override
+        public int previousIndex() {
+            return nextIndex - 1;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("Vue en lecture seule");
+        }
+
+        @Override
+        public void set(V e) {
+            throw new UnsupportedOperationException("Vue en lecture seule");
+        }
+
+        @Override
+        public void add(V e) {
+            throw new UnsupportedOperationException("Vue en lecture seule");
+        }
+
+        private void checkForComodification() {
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,303 @@
+package pixel_tracer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Grille stockée hors du tas Java, dans un fichier projeté en mémoire.
+ * <p>
+ * Les cellules ne sont ni allouées dans le tas ni parcourues par le ramasse-
+ * miettes, et un fichier déjà rendu se rouvre sans rien recopier. D'autres
+ * processus peuvent lire la grille directement dans le fichier, dont le
+ * format, en petit-boutiste, est :
+ * <ul>
+ * <li>un en-tête de {@value #HEADER_SIZE} octets : le nombre magique
+ * {@code PTCV}, la version, la largeur et la hauteur (entiers de 32 bits),
+ * puis le caractère de fond (16 bits) ;</li>
+ * <li>les cellules, ligne par ligne, chacune en UTF-16 sur deux octets.</li>
+ * </ul>
+ * Une projection ne pouvant dépasser 2 Go, les lignes sont réparties en blocs
+ * projetés séparément.
+ */
+public class MappedCanvas implements CanvasStorage, Closeable {
+    /** Nombre magique en tête du fichier : les octets "PTCV". */
+    static final int MAGIC = 0x56435450;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 32;
+    // Taille maximale d'un bloc de lignes projeté d'un seul tenant
+    private static final long MAX_CHUNK_BYTES = 1L << 30;
+
+    private final Path path;
+    private final FileChannel channel;
+    private int width;
+    private int height;
+    private char background;
+    private MappedByteBuffer header;
+    private MappedByteBuffer[] mappings;
+    // Vues des blocs : la ligne y est dans le bloc y / rowsPerChunk
+    private CharBuffer[] chunks;
+    private int rowsPerChunk;
+
+    private MappedCanvas(Path path, FileChannel channel, int width, int height, char background)
+            throws IOException {
+        this.path = path;
+        this.channel = channel;
+        this.width = width;
+        this.height = height;
+        this.background = background;
+        this.header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+        this.header.order(ByteOrder.LITTLE_ENDIAN);
+        map();
+    }
+
+    /**
+     * Crée un fichier de grille rempli du caractère de fond. Un fichier
+     * existant est écrasé.
+     *
+     * @param path       Le fichier
+     * @param width      Largeur de la grille
+     * @param height     Hauteur de la grille
+     * @param background Caractère de fond
+     * @return La grille projetée
+     * @throws IOException si le fichier ne peut pas être créé
+     */
+    public static MappedCanvas create(Path path, int width, int height, char background) throws IOException {
+        checkSize(width, height);
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            MappedCanvas canvas = new MappedCanvas(path, channel, width, height, background);
+            canvas.clear(background);
+            return canvas;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Ouvre un fichier de grille existant, sans en relire le contenu.
+     *
+     * @param path Le fichier
+     * @return La grille projetée
+     * @throws IOException si le fichier ne peut pas être lu ou n'est pas une
+     *                     grille valide
+     */
+    public static MappedCanvas open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // Un canal peut rendre l'en-tête en plusieurs lectures
+            }
+            buffer.flip();
+            if (buffer.remaining() < HEADER_SIZE || buffer.getInt(0) != MAGIC)
+                throw new IOException(path + " n'est pas une grille Pixel Tracer");
+            if (buffer.getInt(4) != VERSION)
+                throw new IOException(path + ": version de grille non prise en charge: " + buffer.getInt(4));
+            int width = buffer.getInt(8);
+            int height = buffer.getInt(12);
+            if (width <= 0 || height <= 0 || width > maxWidth()
+                    || channel.size() < HEADER_SIZE + 2L * width * height)
+                throw new IOException(path + ": grille tronquée ou corrompue");
+            return new MappedCanvas(path, channel, width, height, buffer.getChar(16));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return Le fichier de la grille
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public char getBackground() {
+        return background;
+    }
+
+    @Override
+    public char get(int x, int y) {
+        return chunks[y / rowsPerChunk].get(y % rowsPerChunk * width + x);
+    }
+
+    @Override
+    public void set(int x, int y, char value) {
+        chunks[y / rowsPerChunk].put(y % rowsPerChunk * width + x, value);
+    }
+
+    @Override
+    public void fillRow(int y, int x0, int x1, char value) {
+        CharBuffer chunk = chunks[y / rowsPerChunk];
+        int offset = y % rowsPerChunk * width;
+        for (int x = x0; x <= x1; x++) {
+            chunk.put(offset + x, value);
+        }
+    }
+
+    @Override
+    public void readRow(int y, int x0, int x1, char[] dest, int offset) {
+        // Vue propre à l'appel : des lignes différentes peuvent être lues en
+        // parallèle
+        CharBuffer view = chunks[y / rowsPerChunk].duplicate();
+        view.position(y % rowsPerChunk * width + x0);
+        view.get(dest, offset, x1 - x0 + 1);
+    }
+
+    @Override
+    public void writeRow(int y, int x0, int x1, char[] src, int offset) {
+        CharBuffer view = chunks[y / rowsPerChunk].duplicate();
+        view.position(y % rowsPerChunk * width + x0);
+        view.put(src, offset, x1 - x0 + 1);
+    }
+
+    @Override
+    public void clear(char background) {
+        this.background = background;
+        header.putChar(16, background);
+        char[] block = new char[(int) Math.min(8192, (long) width * height)];
+        Arrays.fill(block, background);
+        for (CharBuffer chunk : chunks) {
+            CharBuffer view = chunk.duplicate();
+            view.clear();
+            while (view.hasRemaining()) {
+                view.put(block, 0, Math.min(block.length, view.remaining()));
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Les lignes sont déplacées dans le fichier, de la dernière à la première
+     * si elles s'allongent et dans l'autre sens si elles raccourcissent, pour
+     * ne jamais écraser une ligne avant de l'avoir lue.
+     *
+     * @throws UncheckedIOException si le fichier ne peut pas être agrandi
+     */
+    @Override
+    public void resize(int newWidth, int newHeight) {
+        checkSize(newWidth, newHeight);
+        int oldWidth = width;
+        int oldRowsPerChunk = rowsPerChunk;
+        CharBuffer[] oldChunks = chunks;
+        int keptWidth = Math.min(oldWidth, newWidth);
+        int keptHeight = Math.min(height, newHeight);
+        long oldSize = HEADER_SIZE + 2L * width * height;
+
+        width = newWidth;
+        height = newHeight;
+        try {
+            map();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        if (newWidth != oldWidth) {
+            char[] row = new char[keptWidth];
+            boolean backwards = newWidth > oldWidth;
+            for (int i = 0; i < keptHeight; i++) {
+                int y = backwards ? keptHeight - 1 - i : i;
+                CharBuffer source = oldChunks[y / oldRowsPerChunk].duplicate();
+                source.position(y % oldRowsPerChunk * oldWidth);
+                source.get(row);
+                writeRow(y, 0, keptWidth - 1, row, 0);
+                if (newWidth > keptWidth) {
+                    fillRow(y, keptWidth, newWidth - 1, background);
+                }
+            }
+        }
+        for (int y = keptHeight; y < newHeight; y++) {
+            fillRow(y, 0, newWidth - 1, background);
+        }
+
+        long newSize = HEADER_SIZE + 2L * newWidth * newHeight;
+        if (newSize < oldSize) {
+            try {
+                channel.truncate(newSize);
+            } catch (IOException e) {
+                // Certains systèmes refusent de raccourcir un fichier projeté :
+                // la fin du fichier, hors de la grille, est simplement ignorée
+            }
+        }
+    }
+
+    /**
+     * Écrit sur le disque les modifications de la grille.
+     */
+    public void force() {
+        header.force();
+        for (MappedByteBuffer mapping : mappings) {
+            mapping.force();
+        }
+    }
+
+    /**
+     * Écrit la grille sur le disque et ferme le fichier. Les projections
+     * restent lisibles jusqu'à ce que le ramasse-miettes les libère.
+     *
+     * @throws IOException si la fermeture échoue
+     */
+    @Override
+    public void close() throws IOException {
+        if (channel.isOpen()) {
+            force();
+            channel.close();
+        }
+    }
+
+    /**
+     * Projette les lignes de la grille selon sa taille courante et met à jour
+     * l'en-tête.
+     */
+    private void map() throws IOException {
+        long rowBytes = 2L * width;
+        rowsPerChunk = (int) Math.min(height, MAX_CHUNK_BYTES / rowBytes);
+        int chunkCount = (height + rowsPerChunk - 1) / rowsPerChunk;
+        mappings = new MappedByteBuffer[chunkCount];
+        chunks = new CharBuffer[chunkCount];
+        for (int i = 0; i < chunkCount; i++) {
+            int rows = Math.min(rowsPerChunk, height - i * rowsPerChunk);
+            mappings[i] = channel.map(FileChannel.MapMode.READ_WRITE,
+                    HEADER_SIZE + i * rowsPerChunk * rowBytes, rows * rowBytes);
+            chunks[i] = mappings[i].order(ByteOrder.LITTLE_ENDIAN).asCharBuffer();
+        }
+        header.putInt(0, MAGIC);
+        header.putInt(4, VERSION);
+        header.putInt(8, width);
+        header.putInt(12, height);
+        header.putChar(16, background);
+    }
+
+    private static int maxWidth() {
+        return (int) (MAX_CHUNK_BYTES / 2);
+    }
+
+    private static void checkSize(int width, int height) {
+        if (width <= 0 || height <= 0 || width > maxWidth()) {
+            throw new IllegalArgumentException("Taille de grille invalide: " + width + "x" + height);
+        }
+    }
+}
\ No newline at end of file
@@ -1,22 +1,34 @@
 package pixel_tracer;
 
-import java.util.ArrayList;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Classe principale de l'application Pixel Tracer.
  */
 public class PixelTracerApp {
-    private List<Area> areas;
+    private LongOrderedMap<Area> areas;
     private Area currentArea;
     private Layer currentLayer;
     private Shape currentShape;
+    private boolean incrementalRendering;
+    private boolean parallelRendering;
+    private final AreaRenderer areaRenderer;
+    private final History history;
 
     /**
      * Crée une nouvelle instance de l'application Pixel Tracer.
      */
     public PixelTracerApp() {
-        this.areas = new ArrayList<>();
+        this.areas = new LongOrderedMap<>();
+        this.incrementalRendering = true;
+        this.parallelRendering = true;
+        this.areaRenderer = new AreaRenderer();
+        this.history = new History();
         initApp();
     }
 
@@ -29,7 +41,7 @@ public class PixelTracerApp {
 
         // Création d'une zone par défaut
         Area defaultArea = new Area(80, 40, (int) IdGenerator.getNextId(), "Area1");
-        areas.add(defaultArea);
+        areas.put(defaultArea.getId(), defaultArea);
         currentArea = defaultArea;
 
         // Création d'une couche par défaut dans la zone
@@ -48,7 +60,12 @@ public class PixelTracerApp {
         IdGenerator.saveId();
 
         // Libération des ressources (pas nécessaire en Java, mais pour respecter le
-        // modèle C)
+        // modèle C) ; les grilles projetées sont écrites sur le disque, y compris
+        // celles des zones supprimées gardées par l'historique
+        history.clear();
+        for (Area area : areas.values()) {
+            releaseGrid(area);
+        }
         areas.clear();
         currentArea = null;
         currentLayer = null;
@@ -56,10 +73,28 @@ public class PixelTracerApp {
     }
 
     /**
-     * @return La liste des zones
+     * @return La liste des zones, dans l'ordre de création (vue en lecture
+     *         seule)
      */
     public List<Area> getAreas() {
-        return areas;
+        return areas.values();
+    }
+
+    /**
+     * @return L'historique des modifications, pour les annuler ou les rétablir
+     */
+    public History getHistory() {
+        return history;
+    }
+
+    /**
+     * Recherche une zone par son ID.
+     * 
+     * @param areaId L'ID de la zone à trouver
+     * @return La zone correspondant à l'ID, ou null si aucune ne correspond
+     */
+    public Area findAreaById(int areaId) {
+        return areas.get(areaId);
     }
 
     /**
@@ -73,7 +108,7 @@ public class PixelTracerApp {
      * @param area La nouvelle zone active
      */
     public void setCurrentArea(Area area) {
-        if (areas.contains(area)) {
+        if (area != null && areas.get(area.getId()) == area) {
             currentArea = area;
             if (!area.getLayers().isEmpty()) {
                 currentLayer = area.getLayers().get(0);
@@ -92,10 +127,11 @@ public class PixelTracerApp {
     }
 
     /**
-     * @param layer La nouvelle couche active
+     * @param layer La nouvelle couche active, ou null pour n'en désigner
+     *              aucune
      */
     public void setCurrentLayer(Layer layer) {
-        if (currentArea != null && currentArea.getLayers().contains(layer)) {
+        if (layer == null || (currentArea != null && currentArea.containsLayer(layer))) {
             currentLayer = layer;
             currentShape = null;
         }
@@ -109,21 +145,57 @@ public class PixelTracerApp {
     }
 
     /**
-     * @param shape La nouvelle forme active
+     * @param shape La nouvelle forme active, ou null pour n'en désigner
+     *              aucune
      */
     public void setCurrentShape(Shape shape) {
-        if (currentLayer != null && currentLayer.getShapes().contains(shape)) {
+        if (shape == null || (currentLayer != null && currentLayer.containsShape(shape))) {
             currentShape = shape;
         }
     }
 
+    /**
+     * @return true si le rendu ne redessine que les régions endommagées
+     */
+    public boolean isIncrementalRendering() {
+        return incrementalRendering;
+    }
+
+    /**
+     * Active ou désactive le rendu incrémental. Lorsqu'il est désactivé, chaque
+     * rendu efface et redessine toute la zone.
+     * 
+     * @param incrementalRendering true pour le rendu incrémental
+     */
+    public void setIncrementalRendering(boolean incrementalRendering) {
+        this.incrementalRendering = incrementalRendering;
+    }
+
+    /**
+     * @return true si les grandes régions sont dessinées en parallèle
+     */
+    public boolean isParallelRendering() {
+        return parallelRendering;
+    }
+
+    /**
+     * Active ou désactive le rendu parallèle. Lorsqu'il est activé, une région
+     * à redessiner suffisamment grande est découpée en tuiles dessinées sur
+     * plusieurs cœurs ; le résultat est identique au rendu séquentiel.
+     * 
+     * @param parallelRendering true pour le rendu parallèle
+     */
+    public void setParallelRendering(boolean parallelRendering) {
+        this.parallelRendering = parallelRendering;
+    }
+
     /**
      * Ajoute une nouvelle zone à l'application.
      * 
      * @param area La zone à ajouter
      */
     public void addArea(Area area) {
-        areas.add(area);
+        areas.put(area.getId(), area);
     }
 
     /**
@@ -135,8 +207,20 @@ public class PixelTracerApp {
      * @return La zone créée
      */
     public Area createArea(int width, int height, String name) {
-        Area newArea = new Area(width, height, (int) IdGenerator.getNextId(), name);
-        areas.add(newArea);
+        return createArea(new DenseCanvas(width, height, '.'), name);
+    }
+
+    /**
+     * Crée et ajoute une nouvelle zone dont la grille est gardée dans le
+     * stockage spécifié.
+     * 
+     * @param grid Le stockage de la grille, qui fixe les dimensions de la zone
+     * @param name Nom de la zone
+     * @return La zone créée
+     */
+    public Area createArea(CanvasStorage grid, String name) {
+        Area newArea = new Area(grid, (int) IdGenerator.getNextId(), name);
+        areas.put(newArea.getId(), newArea);
         return newArea;
     }
 
@@ -147,11 +231,28 @@ public class PixelTracerApp {
      * @return true si la zone a été trouvée et supprimée, false sinon
      */
     public boolean removeArea(Area area) {
+        if (!detachArea(area))
+            return false;
+        releaseGrid(area);
+        return true;
+    }
+
+    /**
+     * Retire une zone de l'application sans libérer sa grille, pour pouvoir la
+     * replacer en annulant la suppression.
+     * 
+     * @param area La zone à retirer
+     * @return true si la zone a été trouvée et retirée, false sinon
+     */
+    boolean detachArea(Area area) {
+        if (area == null || areas.get(area.getId()) != area)
+            return false;
         if (currentArea == area) {
-            if (!areas.isEmpty() && areas.get(0) != area) {
-                currentArea = areas.get(0);
-            } else if (areas.size() > 1) {
-                currentArea = areas.get(1);
+            List<Area> ordered = areas.values();
+            if (!ordered.isEmpty() && ordered.get(0) != area) {
+                currentArea = ordered.get(0);
+            } else if (ordered.size() > 1) {
+                currentArea = ordered.get(1);
             } else {
                 currentArea = null;
             }
@@ -159,348 +260,257 @@ public class PixelTracerApp {
                     : null;
             currentShape = null;
         }
-        return areas.remove(area);
+        areas.remove(area.getId());
+        return true;
     }
 
     /**
-     * Point d'entrée principal de l'application.
+     * Replace une zone retirée à sa position d'origine.
      * 
-     * @param args Arguments de ligne de commande (non utilisés)
+     * @param area La zone à replacer
+     * @param next La zone qui la suivait, ou null si elle était la dernière
      */
-    public static void main(String[] args) {
-        PixelTracerApp app = new PixelTracerApp();
-
-        // Créer le processeur de commandes
-        CommandProcessor cmdProcessor = new CommandProcessor(app);
-
-        // Démarrer l'application en mode interactif
-        cmdProcessor.startInteractive();
-
-        // Nettoyer avant de quitter
-        app.destroy();
+    void insertArea(Area area, Area next) {
+        if (next != null && areas.get(next.getId()) == next) {
+            areas.putBefore(area.getId(), area, next.getId());
+        } else {
+            areas.put(area.getId(), area);
+        }
     }
 
     /**
-     * Effectue le rendu de la zone courante en dessinant toutes les formes
-     * de toutes les couches visibles.
+     * @param area Une zone de l'application
+     * @return La zone qui la suit dans l'ordre de création, ou null
      */
-    public void renderCurrentArea() {
-        if (currentArea == null)
-            return;
-
-        // Nettoie la grille
-        currentArea.clearGrid();
-
-        // Pour chaque couche visible, dessine ses formes
-        for (Layer layer : currentArea.getLayers()) {
-            if (layer.isVisible()) {
-                renderLayer(layer);
-            }
-        }
+    Area nextArea(Area area) {
+        return areas.nextValue(area.getId());
     }
 
     /**
-     * Effectue le rendu d'une couche en dessinant toutes ses formes.
+     * Rend active la zone touchée par une annulation, pour que son effet soit
+     * visible, et si possible la couche touchée. Si la zone n'appartient plus à
+     * l'application, la sélection est seulement corrigée pour ne désigner que
+     * des éléments présents.
      * 
-     * @param layer La couche à rendre
+     * @param area  La zone touchée, ou null
+     * @param layer La couche touchée, ou null
      */
-    private void renderLayer(Layer layer) {
-        if (currentArea == null || layer == null)
-            return;
-
-        // Pour chaque forme, dessine ses pixels dans la grille
-        for (Shape shape : layer.getShapes()) {
-            renderShape(shape);
+    void focus(Area area, Layer layer) {
+        if (area != null && areas.get(area.getId()) == area && currentArea != area) {
+            currentArea = area;
+            currentLayer = null;
+        }
+        if (currentArea != null && areas.get(currentArea.getId()) != currentArea) {
+            List<Area> ordered = areas.values();
+            currentArea = ordered.isEmpty() ? null : ordered.get(0);
+            currentLayer = null;
+        }
+        if (currentArea != null && currentArea.containsLayer(layer)) {
+            currentLayer = layer;
+        }
+        if (currentArea == null || !currentArea.containsLayer(currentLayer)) {
+            currentLayer = currentArea != null && !currentArea.getLayers().isEmpty() ? currentArea.getLayers().get(0)
+                    : null;
+        }
+        if (currentLayer == null || !currentLayer.containsShape(currentShape)) {
+            currentShape = null;
         }
     }
 
     /**
-     * Effectue le rendu d'une forme en définissant les cellules de la grille.
-     * Ceci est une implémentation simplifiée qui n'utilise que des caractères.
+     * Remplace toutes les zones par celles d'un projet chargé. Les grilles des
+     * anciennes zones sont libérées et l'historique est vidé.
      * 
-     * @param shape La forme à rendre
+     * @param loaded Les nouvelles zones, dans leur ordre
+     * @param area   La zone active, ou null
+     * @param layer  La couche active, ou null
+     * @param shape  La forme active, ou null
      */
-    private void renderShape(Shape shape) {
-        if (currentArea == null || shape == null)
-            return;
-
-        switch (shape.getShapeType()) {
-            case POINT:
-                renderPoint((PointShape) shape);
-                break;
-            case LINE:
-                renderLine((LineShape) shape);
-                break;
-            case SQUARE:
-                renderSquare((SquareShape) shape);
-                break;
-            case RECTANGLE:
-                renderRectangle((RectangleShape) shape);
-                break;
-            case CIRCLE:
-                renderCircle((CircleShape) shape);
-                break;
-            case POLYGON:
-                renderPolygon((PolygonShape) shape);
-                break;
-            case CURVE:
-                renderCurve((CurveShape) shape);
-                break;
+    void replaceAreas(List<Area> loaded, Area area, Layer layer, Shape shape) {
+        // Les modifications enregistrées portent sur les anciennes zones
+        history.clear();
+        List<Area> previous = areas.values();
+        areas = new LongOrderedMap<>();
+        for (Area newArea : loaded) {
+            areas.put(newArea.getId(), newArea);
+        }
+        currentArea = area;
+        currentLayer = layer;
+        currentShape = shape;
+        for (Area old : previous) {
+            releaseGrid(old);
         }
     }
 
     /**
-     * Dessine un point sur la grille.
+     * Ferme le stockage de la grille d'une zone s'il tient une ressource, comme
+     * le fichier d'une {@link MappedCanvas}.
      * 
-     * @param point La forme point à dessiner
+     * @param area La zone retirée
      */
-    private void renderPoint(PointShape point) {
-        int x = point.getPoint().getPosX();
-        int y = point.getPoint().getPosY();
-
-        if (x >= 0 && x < currentArea.getWidth() &&
-                y >= 0 && y < currentArea.getHeight()) {
-            currentArea.setCell(x, y, currentArea.getFillChar());
+    static void releaseGrid(Area area) {
+        if (area.getGrid() instanceof Closeable) {
+            try {
+                ((Closeable) area.getGrid()).close();
+            } catch (IOException e) {
+                System.err.println("Erreur lors de la fermeture de la grille de " + area.getName() + ": "
+                        + e.getMessage());
+            }
         }
     }
 
     /**
-     * Dessine une ligne sur la grille en utilisant l'algorithme de Bresenham.
+     * Point d'entrée principal de l'application.
+     * Sans argument, l'application démarre en mode interactif. Avec
+     * {@code --batch fichier} (ou {@code -b}), elle exécute le fichier de
+     * commandes sans affichage intermédiaire puis se termine ; {@code -}
+     * désigne l'entrée standard. Avec {@code --serve adresse} (ou
+     * {@code -s}), elle exécute les commandes de clients connectés à un port
+     * TCP local ou à une socket Unix, jusqu'à l'arrêt du processus.
+     * {@code --journal répertoire} (ou {@code -j}),
+     * placé en premier, reprend le projet enregistré dans le journal du
+     * répertoire et y journalise les commandes suivantes.
      * 
-     * @param line La forme ligne à dessiner
-     */
-    private void renderLine(LineShape line) {
-        int x0 = line.getP1().getPosX();
-        int y0 = line.getP1().getPosY();
-        int x1 = line.getP2().getPosX();
-        int y1 = line.getP2().getPosY();
-
-        // Algorithme de Bresenham pour tracer une ligne
-        int dx = Math.abs(x1 - x0);
-        int dy = Math.abs(y1 - y0);
-        int sx = x0 < x1 ? 1 : -1;
-        int sy = y0 < y1 ? 1 : -1;
-        int err = dx - dy;
-
-        while (true) {
-            if (x0 >= 0 && x0 < currentArea.getWidth() &&
-                    y0 >= 0 && y0 < currentArea.getHeight()) {
-                currentArea.setCell(x0, y0, currentArea.getFillChar());
-            }
+     * @param args Arguments de ligne de commande
+     */
+    public static void main(String[] args) {
+        PixelTracerApp app = new PixelTracerApp();
 
-            if (x0 == x1 && y0 == y1)
-                break;
+        // Créer le processeur de commandes
+        CommandProcessor cmdProcessor = new CommandProcessor(app);
 
-            int e2 = 2 * err;
-            if (e2 > -dy) {
-                err -= dy;
-                x0 += sx;
-            }
-            if (e2 < dx) {
-                err += dx;
-                y0 += sy;
+        int first = 0;
+        Journal journal = null;
+        if (args.length >= 2 && (args[0].equals("--journal") || args[0].equals("-j"))) {
+            try {
+                journal = Journal.open(app, cmdProcessor, Paths.get(args[1]));
+            } catch (IOException | InvalidPathException e) {
+                System.err.println("Erreur lors de l'ouverture du journal " + args[1] + ": " + e.getMessage());
+                app.destroy();
+                System.exit(2);
             }
+            cmdProcessor.setJournal(journal);
+            first = 2;
         }
-    }
 
-    /**
-     * Dessine un carré sur la grille.
-     * 
-     * @param square La forme carré à dessiner
-     */
-    private void renderSquare(SquareShape square) {
-        int x = square.getOrigin().getPosX();
-        int y = square.getOrigin().getPosY();
-        int length = square.getLength();
-
-        // Dessine les quatre côtés du carré
-        for (int i = 0; i < length; i++) {
-            // Ligne horizontale supérieure
-            if (x + i >= 0 && x + i < currentArea.getWidth() && y >= 0 && y < currentArea.getHeight()) {
-                currentArea.setCell(x + i, y, currentArea.getFillChar());
+        if (args.length >= first + 2 && (args[first].equals("--batch") || args[first].equals("-b"))) {
+            // Mode script : le code de retour signale les commandes en échec
+            int status;
+            try {
+                status = cmdProcessor.runBatch(args[first + 1]) > 0 ? 1 : 0;
+            } catch (IOException e) {
+                System.err.println("Erreur lors de la lecture de " + args[first + 1] + ": " + e.getMessage());
+                status = 2;
             }
+            closeJournal(journal);
+            app.destroy();
+            System.exit(status);
+        }
 
-            // Ligne horizontale inférieure
-            if (x + i >= 0 && x + i < currentArea.getWidth() && y + length - 1 >= 0
-                    && y + length - 1 < currentArea.getHeight()) {
-                currentArea.setCell(x + i, y + length - 1, currentArea.getFillChar());
-            }
+        if (args.length >= first + 2 && (args[first].equals("--serve") || args[first].equals("-s"))) {
+            serve(app, cmdProcessor, journal, args[first + 1]);
+            return;
+        }
 
-            // Ligne verticale gauche
-            if (x >= 0 && x < currentArea.getWidth() && y + i >= 0 && y + i < currentArea.getHeight()) {
-                currentArea.setCell(x, y + i, currentArea.getFillChar());
-            }
+        // Démarrer l'application en mode interactif
+        cmdProcessor.startInteractive();
 
-            // Ligne verticale droite
-            if (x + length - 1 >= 0 && x + length - 1 < currentArea.getWidth() && y + i >= 0
-                    && y + i < currentArea.getHeight()) {
-                currentArea.setCell(x + length - 1, y + i, currentArea.getFillChar());
-            }
-        }
+        // Nettoyer avant de quitter
+        closeJournal(journal);
+        app.destroy();
     }
 
     /**
-     * Dessine un rectangle sur la grille.
-     * 
-     * @param rectangle La forme rectangle à dessiner
-     */
-    private void renderRectangle(RectangleShape rectangle) {
-        int x = rectangle.getOrigin().getPosX();
-        int y = rectangle.getOrigin().getPosY();
-        int width = rectangle.getWidth();
-        int height = rectangle.getHeight();
-
-        // Dessine les quatre côtés du rectangle
-        for (int i = 0; i < width; i++) {
-            // Ligne horizontale supérieure
-            if (x + i >= 0 && x + i < currentArea.getWidth() && y >= 0 && y < currentArea.getHeight()) {
-                currentArea.setCell(x + i, y, currentArea.getFillChar());
-            }
-
-            // Ligne horizontale inférieure
-            if (x + i >= 0 && x + i < currentArea.getWidth() && y + height - 1 >= 0
-                    && y + height - 1 < currentArea.getHeight()) {
-                currentArea.setCell(x + i, y + height - 1, currentArea.getFillChar());
+     * Mode serveur : exécute les commandes reçues des clients jusqu'à l'arrêt
+     * du processus, qui ferme le serveur puis le journal.
+     */
+    private static void serve(PixelTracerApp app, CommandProcessor cmdProcessor, Journal journal, String address) {
+        CommandServer server = null;
+        try {
+            server = CommandServer.open(app, cmdProcessor, address);
+            System.out.println("Serveur à l'écoute sur " + server.getAddress());
+        } catch (IOException | InvalidPathException e) {
+            System.err.println("Erreur lors de l'ouverture du serveur " + address + ": " + e.getMessage());
+            if (server != null) {
+                closeServer(server);
             }
+            closeJournal(journal);
+            app.destroy();
+            System.exit(2);
         }
 
-        for (int i = 0; i < height; i++) {
-            // Ligne verticale gauche
-            if (x >= 0 && x < currentArea.getWidth() && y + i >= 0 && y + i < currentArea.getHeight()) {
-                currentArea.setCell(x, y + i, currentArea.getFillChar());
-            }
+        CommandServer opened = server;
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            closeServer(opened);
+            closeJournal(journal);
+            app.destroy();
+        }, "pixel-tracer-shutdown"));
+        try {
+            server.serve();
+        } catch (IOException e) {
+            System.err.println("Erreur du serveur: " + e.getMessage());
+            System.exit(2);
+        }
+    }
 
-            // Ligne verticale droite
-            if (x + width - 1 >= 0 && x + width - 1 < currentArea.getWidth() && y + i >= 0
-                    && y + i < currentArea.getHeight()) {
-                currentArea.setCell(x + width - 1, y + i, currentArea.getFillChar());
-            }
+    private static void closeServer(CommandServer server) {
+        try {
+            server.close();
+        } catch (IOException e) {
+            System.err.println("Erreur lors de la fermeture du serveur: " + e.getMessage());
         }
     }
 
     /**
-     * Dessine un cercle sur la grille en utilisant l'algorithme de Bresenham.
-     * 
-     * @param circle La forme cercle à dessiner
+     * Écrit les dernières commandes du journal sur le disque et le ferme.
      */
-    private void renderCircle(CircleShape circle) {
-        int xc = circle.getCenter().getPosX();
-        int yc = circle.getCenter().getPosY();
-        int r = circle.getRadius();
-
-        int x = 0;
-        int y = r;
-        int d = 3 - 2 * r;
-
-        drawCirclePoints(xc, yc, x, y);
-
-        while (y >= x) {
-            x++;
-            if (d > 0) {
-                y--;
-                d = d + 4 * (x - y) + 10;
-            } else {
-                d = d + 4 * x + 6;
-            }
-            drawCirclePoints(xc, yc, x, y);
+    private static void closeJournal(Journal journal) {
+        if (journal == null)
+            return;
+        try {
+            journal.close();
+        } catch (IOException e) {
+            System.err.println("Erreur lors de la fermeture du journal: " + e.getMessage());
         }
     }
 
     /**
-     * Dessine les huit points symétriques d'un cercle.
+     * Effectue le rendu de la zone courante en dessinant toutes les formes
+     * de toutes les couches visibles.
+     *
+     * @see #renderArea(Area)
      */
-    private void drawCirclePoints(int xc, int yc, int x, int y) {
-        setPixel(xc + x, yc + y);
-        setPixel(xc - x, yc + y);
-        setPixel(xc + x, yc - y);
-        setPixel(xc - x, yc - y);
-        setPixel(xc + y, yc + x);
-        setPixel(xc - y, yc + x);
-        setPixel(xc + y, yc - x);
-        setPixel(xc - y, yc - x);
+    public void renderCurrentArea() {
+        if (currentArea == null)
+            return;
+        renderArea(currentArea);
     }
 
     /**
-     * Définit un pixel sur la grille s'il est dans les limites.
+     * Effectue le rendu d'une zone, active ou non, selon les modes de rendu
+     * de l'application. Une grande région est traitée par tuiles, en
+     * parallèle.
+     *
+     * @param area La zone
+     * @see AreaRenderer#render(Area, boolean, boolean)
      */
-    private void setPixel(int x, int y) {
-        if (x >= 0 && x < currentArea.getWidth() && y >= 0 && y < currentArea.getHeight()) {
-            currentArea.setCell(x, y, currentArea.getFillChar());
-        }
+    public void renderArea(Area area) {
+        areaRenderer.render(area, incrementalRendering, parallelRendering);
     }
 
     /**
-     * Dessine un polygone sur la grille.
-     * 
-     * @param polygon La forme polygone à dessiner
+     * Effectue le rendu de toutes les zones. En mode parallèle, chaque zone
+     * est rendue par son propre moteur sur un fil du pool commun ; sinon,
+     * les zones sont rendues l'une après l'autre.
      */
-    private void renderPolygon(PolygonShape polygon) {
-        List<Point> points = polygon.getPoints();
-        int size = points.size();
-
-        if (size < 2)
+    public void renderAll() {
+        if (!parallelRendering) {
+            for (Area area : areas.values()) {
+                renderArea(area);
+            }
             return;
-
-        // Dessine les segments entre les points consécutifs
-        for (int i = 0; i < size; i++) {
-            Point p1 = points.get(i);
-            Point p2 = points.get((i + 1) % size); // Connecte le dernier point au premier
-
-            // Utilise l'algorithme de ligne pour tracer chaque segment
-            LineShape line = new LineShape(p1.getPosX(), p1.getPosY(), p2.getPosX(), p2.getPosY());
-            renderLine(line);
         }
-    }
-
-    /**
-     * Dessine une courbe de Bézier sur la grille.
-     * Cette méthode utilise une approximation simple.
-     * 
-     * @param curve La courbe à dessiner
-     */
-    private void renderCurve(CurveShape curve) {
-        // Pour une courbe de Bézier cubique, on peut utiliser une approximation
-        // en traçant plusieurs petits segments de ligne
-        Point p1 = curve.getP1();
-        Point p2 = curve.getP2();
-        Point p3 = curve.getP3();
-        Point p4 = curve.getP4();
-
-        // Nombre de segments pour l'approximation
-        int steps = 30;
-
-        for (int i = 0; i < steps; i++) {
-            float t1 = (float) i / steps;
-            float t2 = (float) (i + 1) / steps;
-
-            // Calcul des points sur la courbe
-            int x1 = bezierPoint(p1.getPosX(), p2.getPosX(), p3.getPosX(), p4.getPosX(), t1);
-            int y1 = bezierPoint(p1.getPosY(), p2.getPosY(), p3.getPosY(), p4.getPosY(), t1);
-            int x2 = bezierPoint(p1.getPosX(), p2.getPosX(), p3.getPosX(), p4.getPosX(), t2);
-            int y2 = bezierPoint(p1.getPosY(), p2.getPosY(), p3.getPosY(), p4.getPosY(), t2);
-
-            // Trace un segment entre les deux points
-            LineShape line = new LineShape(x1, y1, x2, y2);
-            renderLine(line);
-        }
-    }
-
-    /**
-     * Calcule un point sur une courbe de Bézier.
-     * 
-     * @param a Premier point de contrôle
-     * @param b Deuxième point de contrôle
-     * @param c Troisième point de contrôle
-     * @param d Quatrième point de contrôle
-     * @param t Paramètre de la courbe (entre 0 et 1)
-     * @return Valeur du point à la position t
-     */
-    private int bezierPoint(int a, int b, int c, int d, float t) {
-        float t1 = 1.0f - t;
-        return (int) (a * t1 * t1 * t1 +
-                3 * b * t * t1 * t1 +
-                3 * c * t * t * t1 +
-                d * t * t * t);
+        AreaRenderer.renderAll(areas.values(), incrementalRendering, true, ForkJoinPool.commonPool());
     }
 
     /**
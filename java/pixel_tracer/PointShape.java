@@ -29,6 +29,19 @@ public class PointShape extends Shape {
      */
     public void setPoint(Point point) {
         this.point = point;
+        geometryChanged();
+    }
+
+    @Override
+    protected BoundingBox computeBounds() {
+        return new BoundingBox(point.getPosX(), point.getPosY(), point.getPosX(), point.getPosY());
+    }
+
+    @Override
+    protected int[] computePath(Transform transform) {
+        int[] points = new int[2];
+        putTransformed(transform, point.getPosX(), point.getPosY(), points, 0);
+        return points;
     }
 
     @Override
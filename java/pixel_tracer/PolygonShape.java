@@ -45,6 +45,7 @@ public class PolygonShape extends Shape {
      */
     public void addPoint(int x, int y) {
         points.add(new Point(x, y));
+        geometryChanged();
     }
 
     /**
@@ -59,6 +60,7 @@ public class PolygonShape extends Shape {
      */
     public void setPoints(List<Point> points) {
         this.points = points;
+        geometryChanged();
     }
 
     /**
@@ -68,6 +70,42 @@ public class PolygonShape extends Shape {
         return points.size();
     }
 
+    @Override
+    protected BoundingBox computeBounds() {
+        if (points.size() < 2)
+            return BoundingBox.EMPTY;
+
+        int minX = Integer.MAX_VALUE;
+        int minY = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE;
+        int maxY = Integer.MIN_VALUE;
+        for (Point p : points) {
+            minX = Math.min(minX, p.getPosX());
+            minY = Math.min(minY, p.getPosY());
+            maxX = Math.max(maxX, p.getPosX());
+            maxY = Math.max(maxY, p.getPosY());
+        }
+        return new BoundingBox(minX, minY, maxX, maxY);
+    }
+
+    @Override
+    protected int[] computePath(Transform transform) {
+        if (points.size() < 2)
+            return new int[0];
+
+        int[] result = new int[points.size() * 2];
+        for (int i = 0; i < points.size(); i++) {
+            Point p = points.get(i);
+            putTransformed(transform, p.getPosX(), p.getPosY(), result, i);
+        }
+        return result;
+    }
+
+    @Override
+    public boolean isClosed() {
+        return true;
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder("Polygon: points=[");
@@ -0,0 +1,797 @@
+package pixel_tracer;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Enregistrement et chargement d'un projet complet : zones, couches, formes et
+ * état du générateur d'identifiants.
+ * <p>
+ * Le format est binaire et compact. Les entiers sont codés en varint (7 bits
+ * par octet, octet de poids faible en premier) ; les entiers signés, comme les
+ * coordonnées, passent d'abord par le codage zigzag pour que les petites
+ * valeurs négatives restent courtes. Les flottants sont en petit-boutiste et
+ * les chaînes en UTF-8 précédées de leur longueur. Le fichier contient :
+ * <ul>
+ * <li>l'en-tête : les octets {@code PTPJ} puis la version ;</li>
+ * <li>le dernier identifiant distribué, puis les identifiants de la zone, de
+ * la couche et de la forme actives (0 si aucune) ;</li>
+ * <li>le nombre de zones, puis pour chacune : identifiant, nom, largeur,
+ * hauteur, caractères vide et plein, stockage de la grille (0 plein, 1 par
+ * tuiles, 2 projeté suivi du chemin du fichier, relatif au répertoire du
+ * projet), vue éventuelle, nombre de couches et couches ;</li>
+ * <li>pour chaque couche, sa longueur en octets, puis identifiant, nom,
+ * visibilité, nombre de formes et formes, dans l'ordre de rendu ;</li>
+ * <li>pour chaque forme, son type, son identifiant, un octet d'options
+ * (remplissage, règle pair-impair, épaisseur, transformation), sa couleur,
+ * son épaisseur et sa transformation si elles diffèrent des valeurs par
+ * défaut, puis ses coordonnées ; chaque sommet d'une ligne, d'un polygone
+ * ou d'une courbe est codé par son écart au précédent.</li>
+ * </ul>
+ * Les lectures et écritures passent par un tampon de {@value #BUFFER_SIZE}
+ * octets sur un canal de fichier. Un enregistrement écrit d'abord un fichier
+ * temporaire puis le renomme : un fichier existant n'est jamais laissé à
+ * moitié écrit.
+ * <p>
+ * Le chargement ne crée ni ne modifie aucun fichier hors du répertoire du
+ * projet : une grille projetée dont le fichier a disparu, ou dont le chemin
+ * en sort, est remplacée par une grille par tuiles en mémoire, recomposée à
+ * partir des formes comme toute grille chargée.
+ */
+public final class ProjectFile {
+    /** Les octets "PTPJ", lus comme un entier petit-boutiste. */
+    static final int MAGIC = 0x4A505450;
+    static final int VERSION = 1;
+    static final int BUFFER_SIZE = 1 << 16;
+
+    // Types de formes ; les valeurs sont celles du fichier et ne doivent pas changer
+    private static final int POINT = 1;
+    private static final int LINE = 2;
+    private static final int SQUARE = 3;
+    private static final int RECTANGLE = 4;
+    private static final int CIRCLE = 5;
+    private static final int POLYGON = 6;
+    private static final int CURVE = 7;
+
+    // Options d'une forme
+    private static final int FILLED = 1;
+    private static final int EVEN_ODD = 2;
+    private static final int THICKNESS = 4;
+    private static final int TRANSFORM = 8;
+
+    // Stockages de la grille
+    private static final int DENSE = 0;
+    private static final int TILED = 1;
+    private static final int MAPPED = 2;
+
+    private ProjectFile() {
+    }
+
+    /**
+     * Enregistre toutes les zones de l'application dans un fichier.
+     *
+     * @param app  L'application
+     * @param path Le fichier, remplacé s'il existe
+     * @throws IOException si l'écriture échoue
+     */
+    public static void save(PixelTracerApp app, Path path) throws IOException {
+        Path directory = directoryOf(path);
+        replace(path, channel -> {
+            Output out = new Output(channel);
+            write(app, out, directory);
+            out.flush();
+        });
+    }
+
+    /**
+     * Écrit toutes les zones de l'application en mémoire, dans le format de
+     * {@link #save(PixelTracerApp, Path)}, pour les enregistrer plus tard
+     * depuis un autre fil avec {@link #save(ByteBuffer, Path)}. Toute la scène
+     * est parcourue sur le fil appelant, qui ne doit pas la modifier pendant ce
+     * temps.
+     *
+     * @param app  L'application
+     * @param path Le fichier où le contenu sera enregistré, dont le répertoire
+     *             sert de base aux chemins des grilles projetées
+     * @return Le contenu du fichier, prêt à être lu
+     * @throws IOException jamais en pratique, l'écriture restant en mémoire
+     */
+    public static ByteBuffer encode(PixelTracerApp app, Path path) throws IOException {
+        Output out = new Output(null);
+        write(app, out, directoryOf(path));
+        ByteBuffer content = out.buffer;
+        content.flip();
+        return content;
+    }
+
+    /**
+     * Enregistre un projet écrit par {@link #encode(PixelTracerApp, Path)}, avec les
+     * mêmes garanties que {@link #save(PixelTracerApp, Path)}.
+     *
+     * @param content Le contenu du fichier, entièrement consommé
+     * @param path    Le fichier, remplacé s'il existe
+     * @throws IOException si l'écriture échoue
+     */
+    public static void save(ByteBuffer content, Path path) throws IOException {
+        replace(path, channel -> {
+            while (content.hasRemaining()) {
+                channel.write(content);
+            }
+        });
+    }
+
+    /**
+     * Écrit un fichier temporaire à côté du fichier visé, l'écrit sur le
+     * disque, puis le renomme.
+     */
+    private static void replace(Path path, Content content) throws IOException {
+        Path absolute = path.toAbsolutePath();
+        Path temporary = Files.createTempFile(absolute.getParent(), absolute.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                content.writeTo(channel);
+                channel.force(true);
+            }
+            try {
+                Files.move(temporary, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (java.nio.file.AtomicMoveNotSupportedException e) {
+                Files.move(temporary, absolute, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Contenu d'un fichier enregistré par {@link #replace(Path, Content)}.
+     */
+    private interface Content {
+        void writeTo(FileChannel channel) throws IOException;
+    }
+
+    /**
+     * Remplace toutes les zones de l'application par celles d'un fichier. En
+     * cas d'erreur, l'application n'est pas modifiée.
+     *
+     * @param app  L'application
+     * @param path Le fichier
+     * @throws IOException si la lecture échoue ou si le fichier n'est pas un
+     *                     projet valide
+     */
+    public static void load(PixelTracerApp app, Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            read(app, new Input(channel), directoryOf(path));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new IOException(path + ": projet corrompu (" + e.getMessage() + ")", e);
+        }
+    }
+
+    /**
+     * @return Le répertoire absolu d'un fichier de projet, base des chemins
+     *         des grilles projetées
+     */
+    private static Path directoryOf(Path file) {
+        return file.toAbsolutePath().normalize().getParent();
+    }
+
+    private static void write(PixelTracerApp app, Output out, Path directory) throws IOException {
+        out.writeIntLE(MAGIC);
+        out.writeVarLong(VERSION);
+        out.writeVarLong(IdGenerator.getCurrentId());
+        Area currentArea = app.getCurrentArea();
+        Layer currentLayer = app.getCurrentLayer();
+        Shape currentShape = app.getCurrentShape();
+        out.writeVarLong(currentArea != null ? currentArea.getId() : 0);
+        out.writeVarLong(currentLayer != null ? currentLayer.getId() : 0);
+        out.writeVarLong(currentShape != null ? currentShape.getId() : 0);
+
+        List<Area> areas = app.getAreas();
+        out.writeVarLong(areas.size());
+        Output layerOut = new Output(null);
+        for (Area area : areas) {
+            writeArea(area, out, directory);
+            List<Layer> layers = area.getLayers();
+            out.writeVarLong(layers.size());
+            for (Layer layer : layers) {
+                // Couche précédée de sa longueur : écrite d'abord en mémoire
+                layerOut.reset();
+                writeLayer(layer, layerOut);
+                out.writeVarLong(layerOut.size());
+                out.writeBytes(layerOut);
+            }
+        }
+    }
+
+    private static void writeArea(Area area, Output out, Path directory) throws IOException {
+        out.writeVarLong(area.getId());
+        out.writeString(area.getName());
+        out.writeVarLong(area.getWidth());
+        out.writeVarLong(area.getHeight());
+        out.writeVarLong(area.getEmptyChar());
+        out.writeVarLong(area.getFillChar());
+        CanvasStorage grid = area.getGrid();
+        if (grid instanceof MappedCanvas) {
+            out.writeByte(MAPPED);
+            out.writeString(relativePath(directory, ((MappedCanvas) grid).getPath()));
+        } else {
+            out.writeByte(grid instanceof TiledCanvas ? TILED : DENSE);
+        }
+        Viewport viewport = area.getViewport();
+        out.writeByte(viewport != null ? 1 : 0);
+        if (viewport != null) {
+            out.writeZigZag(viewport.getX());
+            out.writeZigZag(viewport.getY());
+            out.writeVarLong(viewport.getWidth());
+            out.writeVarLong(viewport.getHeight());
+            out.writeZigZag(viewport.getZoom());
+        }
+    }
+
+    private static void writeLayer(Layer layer, Output out) throws IOException {
+        out.writeVarLong(layer.getId());
+        out.writeString(layer.getName());
+        out.writeByte(layer.isVisible() ? 1 : 0);
+        List<Shape> shapes = layer.getShapes();
+        out.writeVarLong(shapes.size());
+        for (Shape shape : shapes) {
+            writeShape(shape, out);
+        }
+    }
+
+    private static void writeShape(Shape shape, Output out) throws IOException {
+        out.writeByte(shapeTag(shape.getShapeType()));
+        out.writeVarLong(shape.getId());
+        int options = 0;
+        if (shape.isFill())
+            options |= FILLED;
+        if (shape.getFillRule() == Shape.FillRule.EVEN_ODD)
+            options |= EVEN_ODD;
+        if (shape.getThickness() != 1)
+            options |= THICKNESS;
+        if (!shape.getTransform().isIdentity())
+            options |= TRANSFORM;
+        out.writeByte(options);
+        out.writeByte(shape.getColor().ordinal());
+        if ((options & THICKNESS) != 0) {
+            out.writeFloatLE(shape.getThickness());
+        }
+        if ((options & TRANSFORM) != 0) {
+            for (double coefficient : shape.getTransform().getCoefficients()) {
+                out.writeDoubleLE(coefficient);
+            }
+        }
+
+        switch (shape.getShapeType()) {
+            case POINT:
+                writePoints(out, ((PointShape) shape).getPoint());
+                break;
+            case LINE:
+                LineShape line = (LineShape) shape;
+                writePoints(out, line.getP1(), line.getP2());
+                break;
+            case SQUARE:
+                SquareShape square = (SquareShape) shape;
+                writePoints(out, square.getOrigin());
+                out.writeZigZag(square.getLength());
+                break;
+            case RECTANGLE:
+                RectangleShape rectangle = (RectangleShape) shape;
+                writePoints(out, rectangle.getOrigin());
+                out.writeZigZag(rectangle.getWidth());
+                out.writeZigZag(rectangle.getHeight());
+                break;
+            case CIRCLE:
+                CircleShape circle = (CircleShape) shape;
+                writePoints(out, circle.getCenter());
+                out.writeZigZag(circle.getRadius());
+                break;
+            case POLYGON:
+                List<Point> points = ((PolygonShape) shape).getPoints();
+                out.writeVarLong(points.size());
+                writePoints(out, points.toArray(new Point[0]));
+                break;
+            case CURVE:
+                CurveShape curve = (CurveShape) shape;
+                writePoints(out, curve.getP1(), curve.getP2(), curve.getP3(), curve.getP4());
+                break;
+            default:
+                throw new IllegalStateException("Type de forme inconnu : " + shape.getShapeType());
+        }
+    }
+
+    /**
+     * Écrit des sommets, chacun par son écart au précédent.
+     */
+    private static void writePoints(Output out, Point... points) throws IOException {
+        long x = 0;
+        long y = 0;
+        for (Point point : points) {
+            out.writeZigZag(point.getPosX() - x);
+            out.writeZigZag(point.getPosY() - y);
+            x = point.getPosX();
+            y = point.getPosY();
+        }
+    }
+
+    private static int shapeTag(Shape.ShapeType type) {
+        switch (type) {
+            case POINT:
+                return POINT;
+            case LINE:
+                return LINE;
+            case SQUARE:
+                return SQUARE;
+            case RECTANGLE:
+                return RECTANGLE;
+            case CIRCLE:
+                return CIRCLE;
+            case POLYGON:
+                return POLYGON;
+            case CURVE:
+                return CURVE;
+            default:
+                throw new IllegalStateException("Type de forme inconnu : " + type);
+        }
+    }
+
+    private static void read(PixelTracerApp app, Input in, Path directory) throws IOException {
+        if (in.readIntLE() != MAGIC)
+            throw new IOException("Ce fichier n'est pas un projet Pixel Tracer");
+        long version = in.readVarLong();
+        if (version != VERSION)
+            throw new IOException("Version de projet non prise en charge : " + version);
+        long lastId = in.readVarLong();
+        // Zone et couche courantes : des int, comme leurs identifiants ; 0
+        // pour aucune
+        int currentAreaId = in.readInt();
+        int currentLayerId = in.readInt();
+        long currentShapeId = in.readVarLong();
+
+        List<Area> areas = new ArrayList<>();
+        long maxId = lastId;
+        try {
+            int areaCount = in.readCount();
+            for (int i = 0; i < areaCount; i++) {
+                Area area = readArea(in, directory);
+                areas.add(area);
+                maxId = Math.max(maxId, area.getId());
+                int layerCount = in.readCount();
+                for (int j = 0; j < layerCount; j++) {
+                    long length = in.readVarLong();
+                    long start = in.position();
+                    Layer layer = readLayer(in);
+                    if (in.position() - start != length)
+                        throw new IOException("Longueur de couche incorrecte");
+                    maxId = Math.max(maxId, layer.getId());
+                    for (Shape shape : layer.getShapes()) {
+                        maxId = Math.max(maxId, shape.getId());
+                    }
+                    area.addLayer(layer);
+                }
+                // La grille est recomposée à partir des formes chargées
+                area.invalidateAll();
+            }
+        } catch (IOException | RuntimeException e) {
+            for (Area area : areas) {
+                PixelTracerApp.releaseGrid(area);
+            }
+            throw e;
+        }
+
+        Area currentArea = null;
+        Layer currentLayer = null;
+        Shape currentShape = null;
+        for (Area area : areas) {
+            if (area.getId() == currentAreaId) {
+                currentArea = area;
+            }
+        }
+        if (currentArea == null && !areas.isEmpty()) {
+            currentArea = areas.get(0);
+        }
+        if (currentArea != null) {
+            currentLayer = currentArea.findLayerById(currentLayerId);
+            if (currentLayer == null && !currentArea.getLayers().isEmpty()) {
+                currentLayer = currentArea.getLayers().get(0);
+            }
+        }
+        if (currentLayer != null && currentShapeId != 0) {
+            currentShape = currentLayer.findShapeById(currentShapeId);
+        }
+        app.replaceAreas(areas, currentArea, currentLayer, currentShape);
+        // Les identifiants distribués ensuite ne reprennent aucun de ceux du projet
+        IdGenerator.setId(maxId);
+    }
+
+    private static Area readArea(Input in, Path directory) throws IOException {
+        int id = in.readInt();
+        String name = in.readString();
+        int width = in.readInt();
+        int height = in.readInt();
+        char emptyChar = (char) in.readInt();
+        char fillChar = (char) in.readInt();
+        if (width <= 0 || height <= 0)
+            throw new IOException("Taille de zone invalide : " + width + "x" + height);
+
+        CanvasStorage grid;
+        int storage = in.readByte();
+        switch (storage) {
+            case DENSE:
+                grid = new DenseCanvas(width, height, emptyChar);
+                break;
+            case TILED:
+                grid = new TiledCanvas(width, height, emptyChar);
+                break;
+            case MAPPED:
+                grid = openMappedCanvas(directory, in.readString(), width, height, emptyChar);
+                break;
+            default:
+                throw new IOException("Stockage de grille inconnu : " + storage);
+        }
+
+        Area area = new Area(grid, id, name);
+        area.setFillChar(fillChar);
+        if (in.readByte() != 0) {
+            int x = in.readZigZagInt();
+            int y = in.readZigZagInt();
+            int viewWidth = in.readInt();
+            int viewHeight = in.readInt();
+            area.setViewport(new Viewport(x, y, viewWidth, viewHeight, in.readZigZagInt()));
+        }
+        return area;
+    }
+
+    /**
+     * @return Le chemin d'un fichier relatif au répertoire du projet, ou
+     *         absolu s'il n'a pas de chemin relatif (autre racine)
+     */
+    private static String relativePath(Path directory, Path file) {
+        Path absolute = file.toAbsolutePath().normalize();
+        try {
+            return directory.relativize(absolute).toString();
+        } catch (IllegalArgumentException e) {
+            return absolute.toString();
+        }
+    }
+
+    /**
+     * Rouvre le fichier de grille d'une zone projetée. Un fichier absent, ou
+     * hors du répertoire du projet, liens symboliques résolus, n'est ni créé ni
+     * ouvert : la zone reçoit une grille par tuiles. La grille sera de toute
+     * façon recomposée.
+     */
+    private static CanvasStorage openMappedCanvas(Path directory, String file, int width, int height,
+            char background) throws IOException {
+        Path path;
+        try {
+            path = directory.resolve(file).normalize();
+        } catch (InvalidPathException e) {
+            throw new IOException("Chemin de grille invalide : " + file, e);
+        }
+        if (!path.startsWith(directory) || !Files.exists(path)
+                || !path.toRealPath().startsWith(directory.toRealPath()))
+            return new TiledCanvas(width, height, background);
+        MappedCanvas canvas = MappedCanvas.open(path);
+        if (canvas.getWidth() != width || canvas.getHeight() != height) {
+            canvas.resize(width, height);
+        }
+        return canvas;
+    }
+
+    private static Layer readLayer(Input in) throws IOException {
+        Layer layer = new Layer(in.readInt(), in.readString());
+        layer.setVisible(in.readByte() != 0);
+        int shapeCount = in.readCount();
+        for (int i = 0; i < shapeCount; i++) {
+            layer.addShape(readShape(in));
+        }
+        return layer;
+    }
+
+    private static Shape readShape(Input in) throws IOException {
+        int tag = in.readByte();
+        long id = in.readVarLong();
+        int options = in.readByte();
+        int color = in.readByte();
+        if (color >= Shape.Color.values().length)
+            throw new IOException("Couleur inconnue : " + color);
+        float thickness = (options & THICKNESS) != 0 ? in.readFloatLE() : 1;
+        Transform transform = Transform.IDENTITY;
+        if ((options & TRANSFORM) != 0) {
+            transform = Transform.of(in.readDoubleLE(), in.readDoubleLE(), in.readDoubleLE(),
+                    in.readDoubleLE(), in.readDoubleLE(), in.readDoubleLE());
+        }
+
+        Shape shape;
+        int[] p;
+        switch (tag) {
+            case POINT:
+                p = readPoints(in, 1);
+                shape = new PointShape(p[0], p[1]);
+                break;
+            case LINE:
+                p = readPoints(in, 2);
+                shape = new LineShape(p[0], p[1], p[2], p[3]);
+                break;
+            case SQUARE:
+                p = readPoints(in, 1);
+                shape = new SquareShape(p[0], p[1], in.readZigZagInt());
+                break;
+            case RECTANGLE:
+                p = readPoints(in, 1);
+                shape = new RectangleShape(p[0], p[1], in.readZigZagInt(), in.readZigZagInt());
+                break;
+            case CIRCLE:
+                p = readPoints(in, 1);
+                shape = new CircleShape(p[0], p[1], in.readZigZagInt());
+                break;
+            case POLYGON:
+                shape = new PolygonShape(readPoints(in, in.readCount()));
+                break;
+            case CURVE:
+                p = readPoints(in, 4);
+                shape = new CurveShape(p[0], p[1], p[2], p[3], p[4], p[5], p[6], p[7]);
+                break;
+            default:
+                throw new IOException("Type de forme inconnu : " + tag);
+        }
+
+        // Propriétés appliquées avant l'ajout à la couche : aucune mise à jour
+        // de l'index n'est nécessaire
+        shape.setId(id);
+        shape.setFill((options & FILLED) != 0);
+        shape.setFillRule((options & EVEN_ODD) != 0 ? Shape.FillRule.EVEN_ODD : Shape.FillRule.NON_ZERO);
+        shape.setColor(Shape.Color.values()[color]);
+        shape.setThickness(thickness);
+        shape.setTransform(transform);
+        return shape;
+    }
+
+    /**
+     * Lit des sommets codés par leur écart au précédent.
+     *
+     * @return Les coordonnées, x et y alternés
+     */
+    private static int[] readPoints(Input in, int count) throws IOException {
+        int[] coordinates = new int[2 * count];
+        long x = 0;
+        long y = 0;
+        for (int i = 0; i < count; i++) {
+            x += in.readZigZag();
+            y += in.readZigZag();
+            coordinates[2 * i] = Math.toIntExact(x);
+            coordinates[2 * i + 1] = Math.toIntExact(y);
+        }
+        return coordinates;
+    }
+
+    /**
+     * Tampon d'écriture vers un canal, ou en mémoire si le canal est null.
+     */
+    private static final class Output {
+        private final WritableByteChannel channel;
+        private ByteBuffer buffer;
+
+        Output(WritableByteChannel channel) {
+            this.channel = channel;
+            this.buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        void reset() {
+            buffer.clear();
+        }
+
+        int size() {
+            return buffer.position();
+        }
+
+        void writeByte(int value) throws IOException {
+            ensure(1);
+            buffer.put((byte) value);
+        }
+
+        void writeIntLE(int value) throws IOException {
+            ensure(4);
+            buffer.putInt(value);
+        }
+
+        void writeFloatLE(float value) throws IOException {
+            ensure(4);
+            buffer.putFloat(value);
+        }
+
+        void writeDoubleLE(double value) throws IOException {
+            ensure(8);
+            buffer.putDouble(value);
+        }
+
+        void writeVarLong(long value) throws IOException {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer.put((byte) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            buffer.put((byte) value);
+        }
+
+        void writeZigZag(long value) throws IOException {
+            writeVarLong((value << 1) ^ (value >> 63));
+        }
+
+        void writeString(String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(bytes.length);
+            writeBytes(bytes, 0, bytes.length);
+        }
+
+        /**
+         * Écrit le contenu d'un tampon en mémoire.
+         */
+        void writeBytes(Output other) throws IOException {
+            writeBytes(other.buffer.array(), 0, other.size());
+        }
+
+        private void writeBytes(byte[] bytes, int offset, int length) throws IOException {
+            while (length > 0) {
+                ensure(Math.min(length, BUFFER_SIZE));
+                int chunk = Math.min(length, buffer.remaining());
+                buffer.put(bytes, offset, chunk);
+                offset += chunk;
+                length -= chunk;
+            }
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        /**
+         * Fait de la place pour au moins n octets : vide le tampon dans le canal,
+         * ou l'agrandit s'il est en mémoire.
+         */
+        private void ensure(int n) throws IOException {
+            if (buffer.remaining() >= n)
+                return;
+            if (channel != null) {
+                flush();
+            } else {
+                ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + n))
+                        .order(ByteOrder.LITTLE_ENDIAN);
+                buffer.flip();
+                larger.put(buffer);
+                buffer = larger;
+            }
+        }
+    }
+
+    /**
+     * Tampon de lecture depuis un canal.
+     */
+    private static final class Input {
+        private final ReadableByteChannel channel;
+        private final ByteBuffer buffer;
+        // Nombre d'octets lus avant le début du tampon
+        private long consumed;
+
+        Input(ReadableByteChannel channel) {
+            this.channel = channel;
+            this.buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            this.buffer.flip();
+        }
+
+        long position() {
+            return consumed + buffer.position();
+        }
+
+        int readByte() throws IOException {
+            require(1);
+            return buffer.get() & 0xFF;
+        }
+
+        int readIntLE() throws IOException {
+            require(4);
+            return buffer.getInt();
+        }
+
+        float readFloatLE() throws IOException {
+            require(4);
+            return buffer.getFloat();
+        }
+
+        double readDoubleLE() throws IOException {
+            require(8);
+            return buffer.getDouble();
+        }
+
+        long readVarLong() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0)
+                    return value;
+            }
+            throw new IOException("Entier trop long");
+        }
+
+        long readZigZag() throws IOException {
+            long value = readVarLong();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        int readZigZagInt() throws IOException {
+            return Math.toIntExact(readZigZag());
+        }
+
+        /**
+         * @return Un entier positif qui tient dans un int
+         */
+        int readInt() throws IOException {
+            long value = readVarLong();
+            if (value < 0 || value > Integer.MAX_VALUE)
+                throw new IOException("Entier hors limites : " + value);
+            return (int) value;
+        }
+
+        /**
+         * @return Un nombre d'éléments, borné pour qu'un fichier corrompu ne
+         *         provoque pas d'allocation démesurée
+         */
+        int readCount() throws IOException {
+            int count = readInt();
+            if (count > Integer.MAX_VALUE / 2)
+                throw new IOException("Nombre d'éléments invalide : " + count);
+            return count;
+        }
+
+        String readString() throws IOException {
+            int length = readInt();
+            byte[] bytes = new byte[length];
+            int offset = 0;
+            while (offset < length) {
+                require(1);
+                int chunk = Math.min(length - offset, buffer.remaining());
+                buffer.get(bytes, offset, chunk);
+                offset += chunk;
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Garantit que n octets au moins sont disponibles dans le tampon.
+         *
+         * @throws EOFException si le fichier se termine avant
+         */
+        private void require(int n) throws IOException {
+            if (buffer.remaining() >= n)
+                return;
+            consumed += buffer.position();
+            buffer.compact();
+            while (buffer.position() < n) {
+                if (channel.read(buffer) < 0) {
+                    buffer.flip();
+                    throw new EOFException("Fin de fichier inattendue");
+                }
+            }
+            buffer.flip();
+        }
+    }
+}
\ No newline at end of file
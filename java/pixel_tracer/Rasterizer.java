@@ -0,0 +1,1184 @@
+package pixel_tracer;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Primitives de tracé travaillant directement sur des coordonnées : pixels,
+ * segments horizontaux et verticaux, lignes, cercles. Chaque forme est rendue
+ * à l'aide de ces primitives, sans créer d'objet intermédiaire. Les formes
+ * remplies et les traits épais sont décomposés en segments horizontaux,
+ * écrits par mots entiers dans le masque : leur coût est proportionnel au
+ * nombre de lignes couvertes et non au nombre de pixels.
+ * <p>
+ * Un rasteriseur marque les cellules couvertes dans un masque, à l'intérieur
+ * d'un rectangle de découpe. Il est réutilisable d'un rendu à l'autre mais ne
+ * doit être utilisé que par un seul fil à la fois.
+ */
+public class Rasterizer {
+    // Tolérance des comparaisons de distances, pour les cellules exactement
+    // sur le bord d'un trait
+    private static final double EPSILON = 1e-9;
+    // Rayon, en multiple du périmètre de la découpe, au-delà duquel un cercle
+    // n'est plus parcouru pas à pas mais seulement là où il peut l'atteindre
+    private static final long CIRCLE_SKIP_RATIO = 4;
+
+    private CoverageMask target;
+
+    // Table des arêtes du remplissage de polygone, réutilisée d'un tracé à
+    // l'autre : sommet haut (x, y), vecteur vers le sommet bas et sens
+    private int[] edgeX = new int[0];
+    private int[] edgeY = new int[0];
+    private int[] edgeDx = new int[0];
+    private int[] edgeDy = new int[0];
+    private int[] edgeWinding = new int[0];
+    private int edgeCount;
+    private int edgeMinY;
+    private int edgeMaxY;
+    // Arêtes triées par ordonnée de départ (ordonnée relative << 32 | arête)
+    private long[] edgeOrder = new long[0];
+    // Arêtes actives et leurs intersections avec la ligne courante
+    private int[] active = new int[0];
+    private double[] crossingX = new double[0];
+    private int[] crossingWinding = new int[0];
+
+    // Étendue de la ligne courante d'un quadrilatère de trait
+    private double rowMin;
+    private double rowMax;
+
+    // Cellule du masque qui reçoit le pixel (0, 0)
+    private int originX;
+    private int originY;
+
+    // Rectangle de découpe (bornes inclusives)
+    private int clipMinX;
+    private int clipMinY;
+    private int clipMaxX;
+    private int clipMaxY;
+
+    /**
+     * Prépare le tracé dans un masque.
+     *
+     * @param target Le masque qui reçoit les pixels
+     * @param clip   Le rectangle de découpe, inclus dans le masque
+     */
+    public void begin(CoverageMask target, BoundingBox clip) {
+        begin(target, clip, 0, 0);
+    }
+
+    /**
+     * Prépare le tracé dans un masque qui ne couvre qu'une fenêtre de la zone :
+     * le pixel (x, y) est écrit dans la cellule (x - originX, y - originY).
+     *
+     * @param target  Le masque qui reçoit les pixels
+     * @param clip    Le rectangle de découpe, en coordonnées de la zone ; une
+     *                fois décalé de l'origine, il doit être inclus dans le
+     *                masque
+     * @param originX Coordonnée X du pixel écrit dans la colonne 0 du masque
+     * @param originY Coordonnée Y du pixel écrit dans la ligne 0 du masque
+     */
+    public void begin(CoverageMask target, BoundingBox clip, int originX, int originY) {
+        this.target = target;
+        this.originX = originX;
+        this.originY = originY;
+        this.clipMinX = clip.getMinX();
+        this.clipMinY = clip.getMinY();
+        this.clipMaxX = clip.getMaxX();
+        this.clipMaxY = clip.getMaxY();
+    }
+
+    /**
+     * Effectue le rendu d'une forme en marquant ses cellules dans le masque.
+     *
+     * @param shape La forme à rendre
+     */
+    public void drawShape(Shape shape) {
+        double radius = shape.getStrokeRadius();
+        if (!shape.getTransform().isIdentity()) {
+            drawPath(shape, radius);
+            return;
+        }
+        switch (shape.getShapeType()) {
+            case POINT:
+                Point point = ((PointShape) shape).getPoint();
+                plot(point.getPosX(), point.getPosY());
+                if (radius > 0) {
+                    disk(point.getPosX(), point.getPosY(), radius);
+                }
+                break;
+            case LINE:
+                LineShape line = (LineShape) shape;
+                if (radius > 0) {
+                    strokeLine(line.getP1().getPosX(), line.getP1().getPosY(),
+                            line.getP2().getPosX(), line.getP2().getPosY(), radius);
+                } else {
+                    line(line.getP1().getPosX(), line.getP1().getPosY(),
+                            line.getP2().getPosX(), line.getP2().getPosY());
+                }
+                break;
+            case SQUARE:
+                SquareShape square = (SquareShape) shape;
+                drawRectangle(shape, square.getOrigin(), square.getLength(), square.getLength(), radius);
+                break;
+            case RECTANGLE:
+                RectangleShape rectangle = (RectangleShape) shape;
+                drawRectangle(shape, rectangle.getOrigin(), rectangle.getWidth(), rectangle.getHeight(), radius);
+                break;
+            case CIRCLE:
+                CircleShape circle = (CircleShape) shape;
+                int xc = circle.getCenter().getPosX();
+                int yc = circle.getCenter().getPosY();
+                if (shape.isFill()) {
+                    fillCircle(xc, yc, circle.getRadius());
+                }
+                if (radius > 0) {
+                    strokeCircle(xc, yc, circle.getRadius(), radius);
+                } else if (!shape.isFill()) {
+                    circle(xc, yc, circle.getRadius());
+                }
+                break;
+            case POLYGON:
+                List<Point> points = ((PolygonShape) shape).getPoints();
+                if (shape.isFill()) {
+                    fillPolygon(points, shape.getFillRule());
+                }
+                if (radius > 0) {
+                    strokePolygon(points, radius);
+                } else {
+                    polygon(points);
+                }
+                break;
+            case CURVE:
+                CurveShape curve = (CurveShape) shape;
+                if (radius > 0) {
+                    strokePolyline(curve.getPolyline(), radius);
+                } else {
+                    polyline(curve.getPolyline());
+                }
+                break;
+        }
+    }
+
+    /**
+     * Dessine une forme transformée à partir de son contour en cache : une
+     * ligne brisée, ou un polygone si le contour est fermé.
+     */
+    private void drawPath(Shape shape, double radius) {
+        int[] path = shape.getPath();
+        if (path.length == 0)
+            return;
+        if (shape.isClosed()) {
+            if (shape.isFill()) {
+                fillPolygon(path, shape.getFillRule());
+            }
+            if (radius > 0) {
+                strokePolygon(path, radius);
+            } else {
+                polygon(path);
+            }
+        } else if (radius > 0) {
+            strokePolyline(path, radius);
+        } else {
+            polyline(path);
+        }
+    }
+
+    /**
+     * Dessine un carré ou un rectangle, rempli ou non, avec l'épaisseur de son
+     * trait.
+     */
+    private void drawRectangle(Shape shape, Point origin, int width, int height, double radius) {
+        int x = origin.getPosX();
+        int y = origin.getPosY();
+        if (shape.isFill()) {
+            fillRectangle(x, y, width, height);
+        }
+        if (radius > 0) {
+            strokeRectangle(x, y, width, height, radius);
+        } else if (!shape.isFill()) {
+            rectangle(x, y, width, height);
+        }
+    }
+
+    /**
+     * Définit un pixel s'il est dans le rectangle de découpe.
+     *
+     * @param x Coordonnée X
+     * @param y Coordonnée Y
+     */
+    public void plot(int x, int y) {
+        if (x >= clipMinX && x <= clipMaxX && y >= clipMinY && y <= clipMaxY) {
+            target.set(x - originX, y - originY);
+        }
+    }
+
+    /**
+     * Remplit un segment horizontal, restreint au rectangle de découpe.
+     *
+     * @param y  Ligne
+     * @param x0 Première colonne incluse
+     * @param x1 Dernière colonne incluse
+     */
+    public void horizontalSpan(int y, int x0, int x1) {
+        if (y < clipMinY || y > clipMaxY)
+            return;
+        int from = Math.max(x0, clipMinX);
+        int to = Math.min(x1, clipMaxX);
+        if (from <= to) {
+            target.fillRow(y - originY, from - originX, to - originX);
+        }
+    }
+
+    /**
+     * Remplit un segment vertical, restreint au rectangle de découpe.
+     *
+     * @param x  Colonne
+     * @param y0 Première ligne incluse
+     * @param y1 Dernière ligne incluse
+     */
+    public void verticalSpan(int x, int y0, int y1) {
+        if (x < clipMinX || x > clipMaxX)
+            return;
+        int to = Math.min(y1, clipMaxY);
+        for (int y = Math.max(y0, clipMinY); y <= to; y++) {
+            target.set(x - originX, y - originY);
+        }
+    }
+
+    /**
+     * Trace une ligne en utilisant l'algorithme de Bresenham.
+     * <p>
+     * La ligne est d'abord découpée au rectangle de découpe : les codes de
+     * Cohen–Sutherland des extrémités rejettent une ligne entièrement d'un côté
+     * du rectangle, et sinon les premier et dernier pas de l'algorithme qui
+     * tombent dans le rectangle sont calculés directement. Le tracé reprend au
+     * premier de ces pas avec l'erreur qu'il aurait eue : les pixels sont
+     * exactement ceux du tracé complet, pour un coût proportionnel à la partie
+     * visible de la ligne.
+     *
+     * @param x0 Coordonnée X du premier point
+     * @param y0 Coordonnée Y du premier point
+     * @param x1 Coordonnée X du second point
+     * @param y1 Coordonnée Y du second point
+     */
+    public void line(int x0, int y0, int x1, int y1) {
+        int code0 = outCode(x0, y0);
+        int code1 = outCode(x1, y1);
+        if ((code0 & code1) != 0)
+            return;
+
+        // Étendues et erreur en long : leur double dépasse un int pour une
+        // ligne de plus d'un milliard de cellules
+        long dx = Math.abs((long) x1 - x0);
+        long dy = Math.abs((long) y1 - y0);
+        int sx = x0 < x1 ? 1 : -1;
+        int sy = y0 < y1 ? 1 : -1;
+        long err = dx - dy;
+
+        if ((code0 | code1) != 0) {
+            // Pas visibles : l'axe principal avance d'une cellule à chaque pas
+            long first;
+            long last;
+            if (dx >= dy) {
+                first = Math.max(firstStep(x0, sx, clipMinX, clipMaxX), firstMinorStep(y0, sy, clipMinY, clipMaxY, dx, dy));
+                last = Math.min(Math.min(lastStep(x0, sx, clipMinX, clipMaxX), dx),
+                        lastMinorStep(y0, sy, clipMinY, clipMaxY, dx, dy));
+            } else {
+                first = Math.max(firstStep(y0, sy, clipMinY, clipMaxY), firstMinorStep(x0, sx, clipMinX, clipMaxX, dy, dx));
+                last = Math.min(Math.min(lastStep(y0, sy, clipMinY, clipMaxY), dy),
+                        lastMinorStep(x0, sx, clipMinX, clipMaxX, dy, dx));
+            }
+            first = Math.max(first, 0);
+            if (first > last)
+                return;
+
+            // État de l'algorithme au premier pas visible
+            long major = first;
+            long minor = minorSteps(first, Math.max(dx, dy), Math.min(dx, dy));
+            long xSteps = dx >= dy ? major : minor;
+            long ySteps = dx >= dy ? minor : major;
+            x0 += (int) (sx * xSteps);
+            y0 += (int) (sy * ySteps);
+            err = dx - dy - xSteps * dy + ySteps * dx;
+            x1 = x0 + (int) (sx * (dx >= dy ? last - first : minorSteps(last, dy, dx) - xSteps));
+            y1 = y0 + (int) (sy * (dx >= dy ? minorSteps(last, dx, dy) - ySteps : last - first));
+        }
+
+        while (true) {
+            plot(x0, y0);
+
+            if (x0 == x1 && y0 == y1)
+                break;
+
+            long e2 = 2 * err;
+            if (e2 > -dy) {
+                err -= dy;
+                x0 += sx;
+            }
+            if (e2 < dx) {
+                err += dx;
+                y0 += sy;
+            }
+        }
+    }
+
+    /**
+     * @return Les bits de Cohen–Sutherland d'un point : gauche, droite, haut et
+     *         bas du rectangle de découpe
+     */
+    private int outCode(int x, int y) {
+        int code = 0;
+        if (x < clipMinX) {
+            code |= 1;
+        } else if (x > clipMaxX) {
+            code |= 2;
+        }
+        if (y < clipMinY) {
+            code |= 4;
+        } else if (y > clipMaxY) {
+            code |= 8;
+        }
+        return code;
+    }
+
+    /**
+     * Nombre de pas effectués sur l'axe secondaire après k pas sur l'axe
+     * principal, d'étendues major et minor (minor au plus égal à major) : le
+     * pas k tombe sur la cellule secondaire la plus proche de la droite, les
+     * égalités étant tranchées vers le début de la ligne.
+     */
+    private static long minorSteps(long k, long major, long minor) {
+        if (major == 0)
+            return 0;
+        return Math.max(0, -Math.floorDiv(major - 2 * k * minor, 2 * major));
+    }
+
+    /**
+     * @return Le premier pas sur l'axe principal dont la coordonnée est dans
+     *         l'intervalle [min, max]
+     */
+    private static long firstStep(int start, int step, int min, int max) {
+        return step > 0 ? (long) min - start : (long) start - max;
+    }
+
+    /**
+     * @return Le dernier pas sur l'axe principal dont la coordonnée est dans
+     *         l'intervalle [min, max]
+     */
+    private static long lastStep(int start, int step, int min, int max) {
+        return step > 0 ? (long) max - start : (long) start - min;
+    }
+
+    /**
+     * @return Le premier pas sur l'axe principal dont la coordonnée
+     *         secondaire est dans l'intervalle [min, max]
+     */
+    private static long firstMinorStep(int start, int step, int min, int max, long major, long minor) {
+        // Nombre minimal de pas secondaires pour entrer dans l'intervalle
+        long needed = step > 0 ? (long) min - start : (long) start - max;
+        if (needed <= 0)
+            return 0;
+        if (minor == 0)
+            return Long.MAX_VALUE;
+        // Plus petit k tel que minorSteps(k) >= needed
+        return (2 * needed - 1) * major / (2 * minor) + 1;
+    }
+
+    /**
+     * @return Le dernier pas sur l'axe principal dont la coordonnée
+     *         secondaire est dans l'intervalle [min, max]
+     */
+    private static long lastMinorStep(int start, int step, int min, int max, long major, long minor) {
+        // Nombre maximal de pas secondaires avant de sortir de l'intervalle
+        long allowed = step > 0 ? (long) max - start : (long) start - min;
+        if (allowed < 0)
+            return -1;
+        if (minor == 0)
+            return Long.MAX_VALUE;
+        // Plus grand k tel que minorSteps(k) <= allowed
+        return (2 * allowed + 1) * major / (2 * minor);
+    }
+
+    /**
+     * Trace le contour d'un rectangle. Les côtés horizontaux sont tracés si la
+     * largeur est positive, les côtés verticaux si la hauteur est positive.
+     *
+     * @param x      Coordonnée X du coin supérieur gauche
+     * @param y      Coordonnée Y du coin supérieur gauche
+     * @param width  Largeur
+     * @param height Hauteur
+     */
+    public void rectangle(int x, int y, int width, int height) {
+        if (width > 0) {
+            horizontalSpan(y, x, x + width - 1);
+            horizontalSpan(y + height - 1, x, x + width - 1);
+        }
+        if (height > 0) {
+            verticalSpan(x, y, y + height - 1);
+            verticalSpan(x + width - 1, y, y + height - 1);
+        }
+    }
+
+    /**
+     * Remplit un rectangle, ligne par ligne. Un rectangle dont un côté est nul
+     * ou négatif n'a pas d'intérieur : seul son contour est tracé.
+     *
+     * @param x      Coordonnée X du coin supérieur gauche
+     * @param y      Coordonnée Y du coin supérieur gauche
+     * @param width  Largeur
+     * @param height Hauteur
+     */
+    public void fillRectangle(int x, int y, int width, int height) {
+        if (width <= 0 || height <= 0) {
+            rectangle(x, y, width, height);
+            return;
+        }
+        int to = Math.min(y + height - 1, clipMaxY);
+        for (int row = Math.max(y, clipMinY); row <= to; row++) {
+            horizontalSpan(row, x, x + width - 1);
+        }
+    }
+
+    /**
+     * Trace un cercle en utilisant l'algorithme de Bresenham.
+     *
+     * @param xc     Coordonnée X du centre
+     * @param yc     Coordonnée Y du centre
+     * @param radius Rayon
+     */
+    public void circle(int xc, int yc, int radius) {
+        // Les pixels de Bresenham sont à moins de 2 cellules du cercle : un
+        // rectangle de découpe hors de cet anneau ne reçoit aucun pixel
+        if (radius >= 0 && outsideRing(xc, yc, radius - 2L, radius + 2L))
+            return;
+        traceCircle(xc, yc, radius, false);
+    }
+
+    /**
+     * Remplit un disque. Les points calculés par l'algorithme de Bresenham
+     * délimitent, pour chaque ligne, un segment horizontal allant du bord
+     * gauche au bord droit du cercle ; le disque couvre donc exactement le
+     * contour tracé par {@link #circle(int, int, int)} et son intérieur.
+     *
+     * @param xc     Coordonnée X du centre
+     * @param yc     Coordonnée Y du centre
+     * @param radius Rayon
+     */
+    public void fillCircle(int xc, int yc, int radius) {
+        if (radius < 0) {
+            // Pas d'intérieur : le contour seul, comme pour un cercle non rempli
+            circle(xc, yc, radius);
+            return;
+        }
+        if (outsideRing(xc, yc, -1, radius + 2L))
+            return;
+        traceCircle(xc, yc, radius, true);
+    }
+
+    /**
+     * Parcourt le premier octant du cercle de Bresenham, de (0, radius)
+     * jusqu'à la diagonale, et dessine pour chaque pas (x, y) les huit points
+     * symétriques ou les quatre segments qui les relient. Les coordonnées sont
+     * en long : pour un rayon proche de {@link Integer#MAX_VALUE}, le centre
+     * plus le rayon dépasse un int.
+     * <p>
+     * Le parcours compte un pas par colonne de l'octant. Pour un rayon grand
+     * devant le rectangle de découpe, seuls les pas qui peuvent l'atteindre
+     * sont calculés, à partir de la forme close de l'ordonnée (voir
+     * {@link #circleY(long, long)}) ; les derniers pas avant la diagonale,
+     * hors de cette forme, sont toujours parcourus.
+     */
+    private void traceCircle(int xc, int yc, int radius, boolean fill) {
+        long r = radius;
+        long x = 0;
+        long y = r;
+        long d = 3 - 2 * r;
+
+        long clipSpan = Math.max((long) clipMaxX - clipMinX + clipMaxY - clipMinY + 2, 2);
+        if (r > CIRCLE_SKIP_RATIO * clipSpan) {
+            long last = lastClosedStep(r);
+            // Pas dont un point a une abscisse ou une ordonnée dans la découpe
+            traceSteps(xc, yc, r, (long) clipMinX - xc, (long) clipMaxX - xc, last, fill);
+            traceSteps(xc, yc, r, (long) xc - clipMaxX, (long) xc - clipMinX, last, fill);
+            traceSteps(xc, yc, r, (long) clipMinY - yc, (long) clipMaxY - yc, last, fill);
+            traceSteps(xc, yc, r, (long) yc - clipMaxY, (long) yc - clipMinY, last, fill);
+            if (fill) {
+                // Lignes à y du centre : le dernier pas de même ordonnée est
+                // le plus large
+                long lowest = circleY(r, last);
+                for (int row = clipMinY; row <= clipMaxY; row++) {
+                    long k = Math.abs((long) row - yc);
+                    if (k >= lowest && k <= r) {
+                        long width = lastStepAbove(r, k, last);
+                        spanClipped(row, xc - width, xc + width);
+                    }
+                }
+            }
+            x = last;
+            y = circleY(r, last);
+            d = circleError(r, x, y);
+        }
+
+        circleStep(xc, yc, x, y, fill);
+        while (y >= x) {
+            x++;
+            if (d > 0) {
+                y--;
+                d = d + 4 * (x - y) + 10;
+            } else {
+                d = d + 4 * x + 6;
+            }
+            circleStep(xc, yc, x, y, fill);
+        }
+    }
+
+    /**
+     * Dessine les pas d'abscisse comprise entre from et to, bornés à
+     * l'intervalle [0, last] où l'ordonnée a une forme close.
+     */
+    private void traceSteps(int xc, int yc, long r, long from, long to, long last, boolean fill) {
+        long x = Math.max(from, 0);
+        long end = Math.min(to, last);
+        if (x > end)
+            return;
+        long y = circleY(r, x);
+        long d = circleError(r, x, y);
+        circleStep(xc, yc, x, y, fill);
+        while (x < end) {
+            x++;
+            if (d > 0) {
+                y--;
+                d = d + 4 * (x - y) + 10;
+            } else {
+                d = d + 4 * x + 6;
+            }
+            circleStep(xc, yc, x, y, fill);
+        }
+    }
+
+    /**
+     * Ordonnée du pas x du cercle de Bresenham de rayon r, sans parcourir les
+     * pas précédents. L'erreur du pas (x, y) vaut
+     * {@link #circleError(long, long, long)}, et l'ordonnée ne descend que si
+     * elle est positive : y est le plus grand entier tel que
+     * y² - 3y &lt;= (r - 1)² - (x + 1)² + 1. Cette forme est exacte tant
+     * qu'elle donne y &gt;= x + 2, c'est-à-dire jusqu'à
+     * {@link #lastClosedStep(long)}.
+     */
+    private static long circleY(long r, long x) {
+        long bound = circleBound(r, x);
+        long y = (long) ((3 + Math.sqrt(9 + 4.0 * bound)) / 2);
+        while (y * y - 3 * y > bound) {
+            y--;
+        }
+        while ((y + 1) * (y + 1) - 3 * (y + 1) <= bound) {
+            y++;
+        }
+        return y;
+    }
+
+    private static long circleBound(long r, long x) {
+        return (r - 1) * (r - 1) - (x + 1) * (x + 1) + 1;
+    }
+
+    /**
+     * @return L'erreur de l'algorithme au pas (x, y) ; les termes en r² et y²
+     *         se compensent, le résultat reste exact même si les produits
+     *         dépassent un long
+     */
+    private static long circleError(long r, long x, long y) {
+        return 2 * (x * x + 4 * x + y * y - 3 * y) + 3 + 4 * r - 2 * r * r;
+    }
+
+    /**
+     * @return Le dernier pas dont l'ordonnée est donnée par
+     *         {@link #circleY(long, long)}, celui où y &gt;= x + 2
+     */
+    private static long lastClosedStep(long r) {
+        long low = 0;
+        long high = r;
+        while (low < high) {
+            long middle = (low + high + 1) >>> 1;
+            long next = middle + 2;
+            if (next * next - 3 * next <= circleBound(r, middle)) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return Le dernier pas, jusqu'à last, dont l'ordonnée est au moins k
+     */
+    private static long lastStepAbove(long r, long k, long last) {
+        long low = 0;
+        long high = last;
+        while (low < high) {
+            long middle = (low + high + 1) >>> 1;
+            if (k * k - 3 * k <= circleBound(r, middle)) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    private void circleStep(int xc, int yc, long x, long y, boolean fill) {
+        if (fill) {
+            fillCircleSpans(xc, yc, x, y);
+        } else {
+            plotCirclePoints(xc, yc, x, y);
+        }
+    }
+
+    /**
+     * @return true si le rectangle de découpe ne contient aucun point dont la
+     *         distance au centre est comprise entre inner et outer
+     */
+    private boolean outsideRing(int xc, int yc, long inner, long outer) {
+        long nearX = Math.max(0, Math.max((long) clipMinX - xc, (long) xc - clipMaxX));
+        long nearY = Math.max(0, Math.max((long) clipMinY - yc, (long) yc - clipMaxY));
+        if (nearX * nearX + nearY * nearY > outer * outer)
+            return true;
+        if (inner <= 0)
+            return false;
+        long farX = Math.max(Math.abs((long) clipMinX - xc), Math.abs((long) clipMaxX - xc));
+        long farY = Math.max(Math.abs((long) clipMinY - yc), Math.abs((long) clipMaxY - yc));
+        return farX * farX + farY * farY < inner * inner;
+    }
+
+    /**
+     * Remplit les quatre segments horizontaux reliant les points symétriques
+     * d'un cercle.
+     */
+    private void fillCircleSpans(int xc, int yc, long x, long y) {
+        spanClipped(yc + y, xc - x, xc + x);
+        spanClipped(yc - y, xc - x, xc + x);
+        spanClipped(yc + x, xc - y, xc + y);
+        spanClipped(yc - x, xc - y, xc + y);
+    }
+
+    /**
+     * Dessine les huit points symétriques d'un cercle.
+     */
+    private void plotCirclePoints(int xc, int yc, long x, long y) {
+        plotClipped(xc + x, yc + y);
+        plotClipped(xc - x, yc + y);
+        plotClipped(xc + x, yc - y);
+        plotClipped(xc - x, yc - y);
+        plotClipped(xc + y, yc + x);
+        plotClipped(xc - y, yc + x);
+        plotClipped(xc + y, yc - x);
+        plotClipped(xc - y, yc - x);
+    }
+
+    /**
+     * {@link #plot(int, int)} pour des coordonnées qui peuvent sortir des int.
+     */
+    private void plotClipped(long x, long y) {
+        if (x >= clipMinX && x <= clipMaxX && y >= clipMinY && y <= clipMaxY) {
+            target.set((int) x - originX, (int) y - originY);
+        }
+    }
+
+    /**
+     * {@link #horizontalSpan(int, int, int)} pour des coordonnées qui peuvent
+     * sortir des int.
+     */
+    private void spanClipped(long y, long x0, long x1) {
+        if (y < clipMinY || y > clipMaxY)
+            return;
+        long from = Math.max(x0, clipMinX);
+        long to = Math.min(x1, clipMaxX);
+        if (from <= to) {
+            target.fillRow((int) y - originY, (int) from - originX, (int) to - originX);
+        }
+    }
+
+    /**
+     * Trace un polygone fermé : le dernier point est relié au premier.
+     *
+     * @param points Les sommets du polygone
+     */
+    public void polygon(List<Point> points) {
+        int size = points.size();
+        if (size < 2)
+            return;
+
+        Point first = points.get(0);
+        Point p1 = first;
+        for (int i = 1; i <= size; i++) {
+            Point p2 = i < size ? points.get(i) : first;
+            line(p1.getPosX(), p1.getPosY(), p2.getPosX(), p2.getPosY());
+            p1 = p2;
+        }
+    }
+
+    /**
+     * Trace un polygone fermé : le dernier sommet est relié au premier.
+     *
+     * @param points Les sommets, x et y alternés
+     */
+    public void polygon(int[] points) {
+        int last = points.length - 2;
+        if (last < 0)
+            return;
+
+        int x1 = points[last];
+        int y1 = points[last + 1];
+        for (int i = 0; i <= last; i += 2) {
+            line(x1, y1, points[i], points[i + 1]);
+            x1 = points[i];
+            y1 = points[i + 1];
+        }
+    }
+
+    /**
+     * Remplit l'intérieur d'un polygone par balayage de lignes avec une table
+     * des arêtes actives. Chaque ligne est échantillonnée au centre des
+     * cellules : une cellule est intérieure si elle est située entre deux
+     * intersections du contour selon la règle de remplissage. Le contour lui-même
+     * n'est pas tracé.
+     *
+     * @param points Les sommets du polygone
+     * @param rule   La règle de remplissage
+     */
+    public void fillPolygon(List<Point> points, Shape.FillRule rule) {
+        int size = points.size();
+        if (size < 3)
+            return;
+
+        // Construction de la table des arêtes, sans les arêtes horizontales
+        startEdges(size);
+        for (int i = 0; i < size; i++) {
+            Point p1 = points.get(i);
+            Point p2 = points.get(i + 1 < size ? i + 1 : 0);
+            addEdge(p1.getPosX(), p1.getPosY(), p2.getPosX(), p2.getPosY());
+        }
+        fillEdges(rule);
+    }
+
+    /**
+     * Remplit l'intérieur d'un polygone donné par un tableau de sommets, comme
+     * {@link #fillPolygon(List, Shape.FillRule)}.
+     *
+     * @param points Les sommets, x et y alternés
+     * @param rule   La règle de remplissage
+     */
+    public void fillPolygon(int[] points, Shape.FillRule rule) {
+        int size = points.length / 2;
+        if (size < 3)
+            return;
+
+        startEdges(size);
+        int x1 = points[points.length - 2];
+        int y1 = points[points.length - 1];
+        for (int i = 0; i < points.length; i += 2) {
+            addEdge(x1, y1, points[i], points[i + 1]);
+            x1 = points[i];
+            y1 = points[i + 1];
+        }
+        fillEdges(rule);
+    }
+
+    private void startEdges(int size) {
+        ensureEdgeCapacity(size);
+        edgeCount = 0;
+        edgeMinY = Integer.MAX_VALUE;
+        edgeMaxY = Integer.MIN_VALUE;
+    }
+
+    /**
+     * Ajoute une arête à la table, sauf si elle est horizontale.
+     */
+    private void addEdge(int x1, int y1, int x2, int y2) {
+        if (y1 == y2)
+            return;
+        boolean down = y1 < y2;
+        int top = down ? y1 : y2;
+        int bottom = down ? y2 : y1;
+        edgeX[edgeCount] = down ? x1 : x2;
+        edgeY[edgeCount] = top;
+        edgeDx[edgeCount] = down ? x2 - x1 : x1 - x2;
+        edgeDy[edgeCount] = bottom - top;
+        edgeWinding[edgeCount] = down ? 1 : -1;
+        edgeMinY = Math.min(edgeMinY, top);
+        edgeMaxY = Math.max(edgeMaxY, bottom);
+        edgeCount++;
+    }
+
+    /**
+     * Remplit l'intérieur des arêtes de la table, ligne par ligne.
+     */
+    private void fillEdges(Shape.FillRule rule) {
+        int edgeCount = this.edgeCount;
+        int minY = edgeMinY;
+        int maxY = edgeMaxY;
+        if (edgeCount == 0)
+            return;
+        for (int e = 0; e < edgeCount; e++) {
+            edgeOrder[e] = ((long) (edgeY[e] - minY) << 32) | e;
+        }
+        Arrays.sort(edgeOrder, 0, edgeCount);
+
+        // Une arête couvre les lignes de son sommet haut (inclus) à son sommet
+        // bas (exclu) : un sommet partagé n'est compté qu'une fois
+        int firstRow = Math.max(minY, clipMinY);
+        int lastRow = Math.min(maxY - 1, clipMaxY);
+        int next = 0;
+        int activeCount = 0;
+        for (int y = firstRow; y <= lastRow; y++) {
+            while (next < edgeCount && edgeY[(int) edgeOrder[next]] <= y) {
+                active[activeCount++] = (int) edgeOrder[next++];
+            }
+
+            // Retrait des arêtes terminées et calcul des intersections, gardées
+            // triées par insertion : l'ordre change peu d'une ligne à l'autre
+            int kept = 0;
+            for (int a = 0; a < activeCount; a++) {
+                int e = active[a];
+                if (edgeY[e] + edgeDy[e] <= y)
+                    continue;
+                active[kept] = e;
+                double x = edgeX[e] + (double) (y - edgeY[e]) * edgeDx[e] / edgeDy[e];
+                int winding = edgeWinding[e];
+                int k = kept;
+                while (k > 0 && crossingX[k - 1] > x) {
+                    crossingX[k] = crossingX[k - 1];
+                    crossingWinding[k] = crossingWinding[k - 1];
+                    k--;
+                }
+                crossingX[k] = x;
+                crossingWinding[k] = winding;
+                kept++;
+            }
+            activeCount = kept;
+
+            if (rule == Shape.FillRule.EVEN_ODD) {
+                for (int c = 0; c + 1 < activeCount; c += 2) {
+                    fillBetween(y, crossingX[c], crossingX[c + 1]);
+                }
+            } else {
+                // Une région intérieure commence quand le nombre
+                // d'enroulements quitte zéro et se termine quand il y revient
+                int winding = 0;
+                double start = 0;
+                for (int c = 0; c < activeCount; c++) {
+                    int previous = winding;
+                    winding += crossingWinding[c];
+                    if (previous == 0) {
+                        start = crossingX[c];
+                    } else if (winding == 0) {
+                        fillBetween(y, start, crossingX[c]);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Remplit les cellules d'une ligne dont le centre est entre deux abscisses.
+     */
+    private void fillBetween(int y, double left, double right) {
+        horizontalSpan(y, (int) Math.ceil(left), (int) Math.floor(right));
+    }
+
+    private void ensureEdgeCapacity(int size) {
+        if (edgeX.length < size) {
+            edgeX = new int[size];
+            edgeY = new int[size];
+            edgeDx = new int[size];
+            edgeDy = new int[size];
+            edgeWinding = new int[size];
+            edgeOrder = new long[size];
+            active = new int[size];
+            crossingX = new double[size];
+            crossingWinding = new int[size];
+        }
+    }
+
+    /**
+     * Remplit les cellules dont le centre est à une distance d'au plus radius
+     * d'un point.
+     *
+     * @param cx     Coordonnée X du centre
+     * @param cy     Coordonnée Y du centre
+     * @param radius Rayon
+     */
+    public void disk(double cx, double cy, double radius) {
+        annulus(cx, cy, radius, -1);
+    }
+
+    /**
+     * Remplit les cellules dont la distance au centre est comprise entre deux
+     * rayons, une ligne à la fois : chaque ligne donne au plus deux segments.
+     *
+     * @param cx    Coordonnée X du centre
+     * @param cy    Coordonnée Y du centre
+     * @param outer Rayon extérieur
+     * @param inner Rayon intérieur, négatif pour un disque plein
+     */
+    private void annulus(double cx, double cy, double outer, double inner) {
+        int firstRow = Math.max((int) Math.ceil(cy - outer - EPSILON), clipMinY);
+        int lastRow = Math.min((int) Math.floor(cy + outer + EPSILON), clipMaxY);
+        double outerSquared = outer * outer;
+        double innerSquared = inner * inner;
+        for (int y = firstRow; y <= lastRow; y++) {
+            double dy = y - cy;
+            double remaining = outerSquared - dy * dy;
+            if (remaining < -EPSILON)
+                continue;
+            double dx = Math.sqrt(Math.max(remaining, 0));
+            int left = (int) Math.ceil(cx - dx - EPSILON);
+            int right = (int) Math.floor(cx + dx + EPSILON);
+            double hole = innerSquared - dy * dy;
+            if (inner > 0 && hole > EPSILON) {
+                // Cellules à au moins inner du centre : de part et d'autre du trou
+                double holeDx = Math.sqrt(hole);
+                horizontalSpan(y, left, (int) Math.floor(cx - holeDx + EPSILON));
+                horizontalSpan(y, (int) Math.ceil(cx + holeDx - EPSILON), right);
+            } else {
+                horizontalSpan(y, left, right);
+            }
+        }
+    }
+
+    /**
+     * Trace le corps d'un segment épais : les cellules dont le centre se projette
+     * sur le segment à une distance d'au plus radius. Les extrémités ne sont pas
+     * arrondies ; le tracé fin du segment est inclus.
+     *
+     * @param x0     Coordonnée X du premier point
+     * @param y0     Coordonnée Y du premier point
+     * @param x1     Coordonnée X du second point
+     * @param y1     Coordonnée Y du second point
+     * @param radius Demi-épaisseur du trait
+     */
+    public void strokeSegment(int x0, int y0, int x1, int y1, double radius) {
+        line(x0, y0, x1, y1);
+        double length = Math.hypot(x1 - x0, y1 - y0);
+        if (length == 0)
+            return;
+
+        // Quadrilatère entourant le segment, décalé de radius selon la normale
+        double nx = -(y1 - y0) / length * radius;
+        double ny = (x1 - x0) / length * radius;
+        double ax = x0 + nx, ay = y0 + ny;
+        double bx = x1 + nx, by = y1 + ny;
+        double cx = x1 - nx, cy = y1 - ny;
+        double dx = x0 - nx, dy = y0 - ny;
+
+        double top = Math.min(Math.min(ay, by), Math.min(cy, dy));
+        double bottom = Math.max(Math.max(ay, by), Math.max(cy, dy));
+        int firstRow = Math.max((int) Math.ceil(top - EPSILON), clipMinY);
+        int lastRow = Math.min((int) Math.floor(bottom + EPSILON), clipMaxY);
+        for (int y = firstRow; y <= lastRow; y++) {
+            // Le quadrilatère est convexe : chaque ligne le coupe en un segment
+            rowMin = Double.POSITIVE_INFINITY;
+            rowMax = Double.NEGATIVE_INFINITY;
+            crossEdge(ax, ay, bx, by, y);
+            crossEdge(bx, by, cx, cy, y);
+            crossEdge(cx, cy, dx, dy, y);
+            crossEdge(dx, dy, ax, ay, y);
+            if (rowMin <= rowMax) {
+                horizontalSpan(y, (int) Math.ceil(rowMin - EPSILON), (int) Math.floor(rowMax + EPSILON));
+            }
+        }
+    }
+
+    /**
+     * Étend l'étendue de la ligne courante à l'intersection d'une arête.
+     */
+    private void crossEdge(double ax, double ay, double bx, double by, double y) {
+        if (y < Math.min(ay, by) - EPSILON || y > Math.max(ay, by) + EPSILON)
+            return;
+        if (Math.abs(by - ay) < EPSILON) {
+            // Arête horizontale : elle est entièrement sur la ligne
+            rowMin = Math.min(rowMin, Math.min(ax, bx));
+            rowMax = Math.max(rowMax, Math.max(ax, bx));
+            return;
+        }
+        double x = ax + (y - ay) * (bx - ax) / (by - ay);
+        rowMin = Math.min(rowMin, x);
+        rowMax = Math.max(rowMax, x);
+    }
+
+    /**
+     * Trace une ligne épaisse aux extrémités arrondies.
+     *
+     * @param x0     Coordonnée X du premier point
+     * @param y0     Coordonnée Y du premier point
+     * @param x1     Coordonnée X du second point
+     * @param y1     Coordonnée Y du second point
+     * @param radius Demi-épaisseur du trait
+     */
+    public void strokeLine(int x0, int y0, int x1, int y1, double radius) {
+        strokeSegment(x0, y0, x1, y1, radius);
+        disk(x0, y0, radius);
+        disk(x1, y1, radius);
+    }
+
+    /**
+     * Trace le contour épais d'un rectangle : chaque côté tracé par
+     * {@link #rectangle(int, int, int, int)} devient une bande de cellules,
+     * et les coins restent carrés.
+     *
+     * @param x      Coordonnée X du coin supérieur gauche
+     * @param y      Coordonnée Y du coin supérieur gauche
+     * @param width  Largeur
+     * @param height Hauteur
+     * @param radius Demi-épaisseur du trait
+     */
+    public void strokeRectangle(int x, int y, int width, int height, double radius) {
+        int k = (int) Math.floor(radius + EPSILON);
+        if (width > 0) {
+            block(x - k, y - k, x + width - 1 + k, y + k);
+            block(x - k, y + height - 1 - k, x + width - 1 + k, y + height - 1 + k);
+        }
+        if (height > 0) {
+            block(x - k, y - k, x + k, y + height - 1 + k);
+            block(x + width - 1 - k, y - k, x + width - 1 + k, y + height - 1 + k);
+        }
+    }
+
+    /**
+     * Remplit un bloc rectangulaire donné par ses coins inclus.
+     */
+    private void block(int x0, int y0, int x1, int y1) {
+        int to = Math.min(y1, clipMaxY);
+        for (int y = Math.max(y0, clipMinY); y <= to; y++) {
+            horizontalSpan(y, x0, x1);
+        }
+    }
+
+    /**
+     * Trace un cercle épais : le cercle de Bresenham et l'anneau des cellules
+     * situées à au plus radius du cercle.
+     *
+     * @param xc           Coordonnée X du centre
+     * @param yc           Coordonnée Y du centre
+     * @param circleRadius Rayon du cercle
+     * @param radius       Demi-épaisseur du trait
+     */
+    public void strokeCircle(int xc, int yc, int circleRadius, double radius) {
+        circle(xc, yc, circleRadius);
+        double r = Math.abs((double) circleRadius);
+        annulus(xc, yc, r + radius, r - radius);
+    }
+
+    /**
+     * Trace le contour épais d'un polygone fermé, aux jointures arrondies.
+     *
+     * @param points Les sommets du polygone
+     * @param radius Demi-épaisseur du trait
+     */
+    public void strokePolygon(List<Point> points, double radius) {
+        int size = points.size();
+        if (size < 2)
+            return;
+
+        Point first = points.get(0);
+        Point p1 = first;
+        for (int i = 1; i <= size; i++) {
+            Point p2 = i < size ? points.get(i) : first;
+            strokeSegment(p1.getPosX(), p1.getPosY(), p2.getPosX(), p2.getPosY(), radius);
+            disk(p1.getPosX(), p1.getPosY(), radius);
+            p1 = p2;
+        }
+    }
+
+    /**
+     * Trace le contour épais d'un polygone fermé donné par un tableau de
+     * sommets, comme {@link #strokePolygon(List, double)}.
+     *
+     * @param points Les sommets, x et y alternés
+     * @param radius Demi-épaisseur du trait
+     */
+    public void strokePolygon(int[] points, double radius) {
+        int last = points.length - 2;
+        if (last < 0)
+            return;
+
+        int x1 = points[last];
+        int y1 = points[last + 1];
+        for (int i = 0; i <= last; i += 2) {
+            strokeSegment(x1, y1, points[i], points[i + 1], radius);
+            disk(points[i], points[i + 1], radius);
+            x1 = points[i];
+            y1 = points[i + 1];
+        }
+    }
+
+    /**
+     * Trace une courbe de Bézier épaisse, approchée par des segments épais aux
+     * jointures arrondies.
+     *
+     * @param p1     Premier point de contrôle
+     * @param p2     Deuxième point de contrôle
+     * @param p3     Troisième point de contrôle
+     * @param p4     Quatrième point de contrôle
+     * @param radius Demi-épaisseur du trait
+     */
+    public void strokeCurve(Point p1, Point p2, Point p3, Point p4, double radius) {
+        strokePolyline(CurveShape.flatten(p1, p2, p3, p4), radius);
+    }
+
+    /**
+     * Trace une ligne brisée ouverte épaisse, aux extrémités et jointures
+     * arrondies.
+     *
+     * @param points Les sommets, x et y alternés
+     * @param radius Demi-épaisseur du trait
+     */
+    public void strokePolyline(int[] points, double radius) {
+        if (points.length == 0)
+            return;
+
+        int x1 = points[0];
+        int y1 = points[1];
+        disk(x1, y1, radius);
+        for (int i = 2; i < points.length; i += 2) {
+            int x2 = points[i];
+            int y2 = points[i + 1];
+            strokeSegment(x1, y1, x2, y2, radius);
+            disk(x2, y2, radius);
+            x1 = x2;
+            y1 = y2;
+        }
+    }
+
+    /**
+     * Trace une courbe de Bézier cubique approchée par des segments de ligne.
+     *
+     * @param p1 Premier point de contrôle
+     * @param p2 Deuxième point de contrôle
+     * @param p3 Troisième point de contrôle
+     * @param p4 Quatrième point de contrôle
+     */
+    public void curve(Point p1, Point p2, Point p3, Point p4) {
+        polyline(CurveShape.flatten(p1, p2, p3, p4));
+    }
+
+    /**
+     * Trace une ligne brisée ouverte.
+     *
+     * @param points Les sommets, x et y alternés
+     */
+    public void polyline(int[] points) {
+        if (points.length == 0)
+            return;
+
+        int x1 = points[0];
+        int y1 = points[1];
+        plot(x1, y1);
+        for (int i = 2; i < points.length; i += 2) {
+            int x2 = points[i];
+            int y2 = points[i + 1];
+            line(x1, y1, x2, y2);
+            x1 = x2;
+            y1 = y2;
+        }
+    }}
\ No newline at end of file
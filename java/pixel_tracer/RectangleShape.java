@@ -36,6 +36,7 @@ public class RectangleShape extends Shape {
      */
     public void setOrigin(Point origin) {
         this.origin = origin;
+        geometryChanged();
     }
 
     /**
@@ -50,6 +51,7 @@ public class RectangleShape extends Shape {
      */
     public void setWidth(int width) {
         this.width = width;
+        geometryChanged();
     }
 
     /**
@@ -64,6 +66,43 @@ public class RectangleShape extends Shape {
      */
     public void setHeight(int height) {
         this.height = height;
+        geometryChanged();
+    }
+
+    @Override
+    protected BoundingBox computeBounds() {
+        if (width <= 0 && height <= 0)
+            return BoundingBox.EMPTY;
+        // Un côté nul ou négatif n'empêche pas le tracé des deux autres côtés
+        return BoundingBox.ofCorners(origin.getPosX(), origin.getPosY(),
+                origin.getPosX() + width - 1, origin.getPosY() + height - 1);
+    }
+
+    @Override
+    protected int[] computePath(Transform transform) {
+        if (width <= 0 && height <= 0)
+            return new int[0];
+        return corners(transform, origin.getPosX(), origin.getPosY(), width, height);
+    }
+
+    @Override
+    public boolean isClosed() {
+        return true;
+    }
+
+    /**
+     * Calcule les coins transformés d'un rectangle, dans l'ordre du contour.
+     * Les coins sont les centres des cellules extrêmes du tracé.
+     */
+    static int[] corners(Transform transform, int x, int y, int width, int height) {
+        int right = x + width - 1;
+        int bottom = y + height - 1;
+        int[] points = new int[8];
+        putTransformed(transform, x, y, points, 0);
+        putTransformed(transform, right, y, points, 1);
+        putTransformed(transform, right, bottom, points, 2);
+        putTransformed(transform, x, bottom, points, 3);
+        return points;
     }
 
     @Override
@@ -2,14 +2,25 @@ package pixel_tracer;
 
 /**
  * Classe abstraite représentant une forme dans un espace 2D.
+ * <p>
+ * Une forme peut porter une transformation affine (rotation, mise à l'échelle,
+ * translation) appliquée au rendu. Sa géométrie n'est pas modifiée : le
+ * contour transformé est calculé une fois puis gardé en cache, avec sa boîte
+ * englobante, jusqu'à la prochaine modification.
  */
 public abstract class Shape {
     private long id;
     private ShapeType shapeType;
     private Color color;
     private float thickness;
-    private double rotation;
+    private Transform transform;
     private boolean fill;
+    private FillRule fillRule;
+    private BoundingBox bounds;
+    // Sommets du contour transformé, ou null s'ils sont à recalculer
+    private int[] path;
+    private Layer layer;
+    private long order;
 
     /**
      * Types de formes disponibles.
@@ -34,6 +45,19 @@ public abstract class Shape {
         GREEN
     }
 
+    /**
+     * Règles déterminant l'intérieur d'une forme remplie dont le contour se
+     * recoupe.
+     */
+    public enum FillRule {
+        // Un point est intérieur si une demi-droite issue de ce point coupe le
+        // contour un nombre impair de fois
+        EVEN_ODD,
+        // Un point est intérieur si le contour tourne autour de lui un nombre
+        // non nul de fois
+        NON_ZERO
+    }
+
     /**
      * Crée une nouvelle forme avec le type spécifié.
      * 
@@ -44,8 +68,9 @@ public abstract class Shape {
         this.shapeType = shapeType;
         this.color = Color.BLACK;
         this.thickness = 1.0f;
-        this.rotation = 0.0;
+        this.transform = Transform.IDENTITY;
         this.fill = false;
+        this.fillRule = FillRule.NON_ZERO;
     }
 
     /**
@@ -94,21 +119,119 @@ public abstract class Shape {
      * @param thickness Nouvelle épaisseur
      */
     public void setThickness(float thickness) {
-        this.thickness = thickness;
+        if (this.thickness != thickness) {
+            this.thickness = thickness;
+            geometryChanged();
+        }
+    }
+
+    /**
+     * Renvoie la distance maximale au tracé des cellules couvertes par le trait.
+     * Un trait d'épaisseur e couvre les cellules dont le centre est à au plus
+     * (e - 1) / 2 du tracé : une épaisseur impaire donne un trait de e cellules
+     * centré sur le tracé. En dessous d'une épaisseur de 2, le trait est le
+     * tracé fin habituel.
+     * 
+     * @return Le rayon du trait, 0 pour un trait fin
+     */
+    public double getStrokeRadius() {
+        return thickness >= 2 ? (thickness - 1) / 2.0 : 0;
     }
 
     /**
-     * @return L'angle de rotation en degrés
+     * @return L'angle de rotation en degrés, lu sur la transformation de la
+     *         forme
      */
     public double getRotation() {
-        return rotation;
+        return transform.getRotation();
     }
 
     /**
-     * @param rotation Nouvel angle de rotation
+     * Remplace la transformation de la forme par une rotation autour du centre
+     * de sa géométrie.
+     * 
+     * @param rotation Nouvel angle de rotation en degrés
      */
     public void setRotation(double rotation) {
-        this.rotation = rotation;
+        BoundingBox box = computeBounds();
+        setTransform(rotation == 0 ? Transform.IDENTITY
+                : Transform.rotation(rotation, middle(box.getMinX(), box.getMaxX()),
+                        middle(box.getMinY(), box.getMaxY())));
+    }
+
+    /**
+     * @return L'abscisse du centre de la forme transformée : le centre de sa
+     *         géométrie, transformé sans arrondi ni épaisseur de trait
+     */
+    public double getCenterX() {
+        BoundingBox box = computeBounds();
+        return transform.transformX(middle(box.getMinX(), box.getMaxX()), middle(box.getMinY(), box.getMaxY()));
+    }
+
+    /**
+     * @return L'ordonnée du centre de la forme transformée : le centre de sa
+     *         géométrie, transformé sans arrondi ni épaisseur de trait
+     */
+    public double getCenterY() {
+        BoundingBox box = computeBounds();
+        return transform.transformY(middle(box.getMinX(), box.getMaxX()), middle(box.getMinY(), box.getMaxY()));
+    }
+
+    private static double middle(int min, int max) {
+        return ((double) min + max) / 2;
+    }
+
+    /**
+     * @return La transformation appliquée au rendu de la forme
+     */
+    public Transform getTransform() {
+        return transform;
+    }
+
+    /**
+     * @param transform Nouvelle transformation
+     */
+    public void setTransform(Transform transform) {
+        if (!this.transform.equals(transform)) {
+            this.transform = transform;
+            geometryChanged();
+        }
+    }
+
+    /**
+     * Compose la transformation de la forme avec une autre, appliquée après
+     * elle.
+     * 
+     * @param next La transformation à ajouter
+     */
+    public void transform(Transform next) {
+        setTransform(transform.then(next));
+    }
+
+    /**
+     * Renvoie les sommets du contour de la forme transformée, arrondis à la
+     * cellule la plus proche. Ils sont calculés au premier appel puis conservés
+     * jusqu'à la prochaine modification de la géométrie ou de la
+     * transformation.
+     * 
+     * @return Les sommets, x et y alternés ; le tableau ne doit pas être
+     *         modifié
+     */
+    public int[] getPath() {
+        int[] result = path;
+        if (result == null) {
+            result = computePath(transform);
+            path = result;
+        }
+        return result;
+    }
+
+    /**
+     * @return true si le contour est fermé : son dernier sommet est relié au
+     *         premier et la forme peut être remplie
+     */
+    public boolean isClosed() {
+        return false;
     }
 
     /**
@@ -122,7 +245,153 @@ public abstract class Shape {
      * @param fill Indique si la forme doit être remplie
      */
     public void setFill(boolean fill) {
-        this.fill = fill;
+        if (this.fill != fill) {
+            this.fill = fill;
+            geometryChanged();
+        }
+    }
+
+    /**
+     * @return La règle de remplissage
+     */
+    public FillRule getFillRule() {
+        return fillRule;
+    }
+
+    /**
+     * @param fillRule Nouvelle règle de remplissage
+     */
+    public void setFillRule(FillRule fillRule) {
+        if (this.fillRule != fillRule) {
+            this.fillRule = fillRule;
+            if (fill) {
+                geometryChanged();
+            }
+        }
+    }
+
+    /**
+     * Renvoie la boîte englobante des cellules que le rendu de la forme peut
+     * modifier. Elle est calculée au premier appel puis conservée jusqu'à la
+     * prochaine modification de la géométrie.
+     * 
+     * @return La boîte englobante de la forme
+     */
+    public BoundingBox getBounds() {
+        BoundingBox result = bounds;
+        if (result == null) {
+            BoundingBox outline = transform.isIdentity() ? computeBounds() : boundsOf(getPath());
+            result = outline.expand((int) Math.ceil(getStrokeRadius()));
+            bounds = result;
+        }
+        return result;
+    }
+
+    /**
+     * Calcule la boîte englobante du tracé fin à partir de la géométrie
+     * courante. {@link #getBounds()} l'agrandit de l'épaisseur du trait.
+     * 
+     * @return La boîte englobante de la forme
+     */
+    protected abstract BoundingBox computeBounds();
+
+    /**
+     * Calcule les sommets du contour de la forme par une transformation. Les
+     * segments qui les relient, et l'intérieur d'un contour fermé, couvrent
+     * toutes les cellules du tracé fin de la forme transformée.
+     * 
+     * @param transform La transformation à appliquer
+     * @return Les sommets, x et y alternés, arrondis à la cellule la plus
+     *         proche ; vide si la forme n'a pas de tracé
+     */
+    protected abstract int[] computePath(Transform transform);
+
+    /**
+     * Écrit un point transformé et arrondi dans un tableau de sommets.
+     * 
+     * @param transform La transformation
+     * @param x         Coordonnée X du point
+     * @param y         Coordonnée Y du point
+     * @param points    Les sommets, x et y alternés
+     * @param index     Rang du sommet à écrire
+     */
+    protected static void putTransformed(Transform transform, double x, double y, int[] points, int index) {
+        points[2 * index] = toCell(transform.transformX(x, y));
+        points[2 * index + 1] = toCell(transform.transformY(x, y));
+    }
+
+    /**
+     * Arrondit une coordonnée à la cellule la plus proche. Une coordonnée
+     * hors des entiers représentables est ramenée à la borne la plus proche :
+     * une forme que ses transformations composées ont poussée hors de cette
+     * plage reste hors de la zone au lieu d'y revenir par débordement.
+     * 
+     * @param value La coordonnée
+     * @return La cellule, entre {@link Integer#MIN_VALUE} et
+     *         {@link Integer#MAX_VALUE}
+     */
+    static int toCell(double value) {
+        return BoundingBox.clamp(Math.round(value));
+    }
+
+    /**
+     * @param points Des sommets, x et y alternés
+     * @return La boîte englobante des sommets, vide s'il n'y en a aucun
+     */
+    static BoundingBox boundsOf(int[] points) {
+        if (points.length == 0)
+            return BoundingBox.EMPTY;
+        int minX = points[0], maxX = points[0];
+        int minY = points[1], maxY = points[1];
+        for (int i = 2; i < points.length; i += 2) {
+            minX = Math.min(minX, points[i]);
+            maxX = Math.max(maxX, points[i]);
+            minY = Math.min(minY, points[i + 1]);
+            maxY = Math.max(maxY, points[i + 1]);
+        }
+        return new BoundingBox(minX, minY, maxX, maxY);
+    }
+
+    /**
+     * Invalide la boîte englobante et le contour en cache et prévient la couche propriétaire,
+     * qui met à jour son index et la région à redessiner. Les sous-classes
+     * l'appellent après toute modification de leur géométrie, et la forme
+     * après tout changement de son remplissage ; un point modifié directement
+     * via ses propres setters doit être suivi d'un appel explicite.
+     */
+    protected void geometryChanged() {
+        BoundingBox oldBounds = bounds;
+        bounds = null;
+        path = null;
+        if (layer != null) {
+            layer.shapeChanged(this, oldBounds);
+        }
+    }
+
+    /**
+     * @return La couche qui contient la forme, ou null
+     */
+    public Layer getLayer() {
+        return layer;
+    }
+
+    /**
+     * Rattache la forme à une couche. Appelée par {@link Layer}.
+     * 
+     * @param layer La couche propriétaire, ou null pour détacher la forme
+     * @param order Rang d'insertion de la forme dans la couche
+     */
+    void attach(Layer layer, long order) {
+        this.layer = layer;
+        this.order = order;
+    }
+
+    /**
+     * @return Le rang d'insertion de la forme dans sa couche, qui fixe l'ordre
+     *         de rendu
+     */
+    long getOrder() {
+        return order;
     }
 
     /**
@@ -0,0 +1,171 @@
+package pixel_tracer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Index spatial des formes d'une couche, sous forme de grille uniforme de
+ * cases. Chaque forme est enregistrée dans toutes les cases que touche sa
+ * boîte englobante ; les formes qui couvriraient trop de cases sont gardées à
+ * part et testées à chaque requête.
+ */
+public class SpatialIndex {
+    // Côté d'une case : 2^CELL_SHIFT cellules de la grille
+    private static final int CELL_SHIFT = 5;
+    // Au-delà de ce nombre de cases, une forme est rangée dans la liste des grandes formes
+    private static final int MAX_CELLS_PER_SHAPE = 64;
+
+    private static final Comparator<Shape> BY_ORDER = new Comparator<Shape>() {
+        @Override
+        public int compare(Shape a, Shape b) {
+            return Long.compare(a.getOrder(), b.getOrder());
+        }
+    };
+
+    private final LongOrderedMap<List<Shape>> cells;
+    private final List<Shape> largeShapes;
+
+    /**
+     * Crée un index vide.
+     */
+    public SpatialIndex() {
+        this.cells = new LongOrderedMap<>();
+        this.largeShapes = new ArrayList<>();
+    }
+
+    /**
+     * Ajoute une forme à l'index.
+     *
+     * @param shape  La forme à indexer
+     * @param bounds Sa boîte englobante
+     */
+    public void insert(Shape shape, BoundingBox bounds) {
+        if (bounds.isEmpty())
+            return;
+        if (isLarge(bounds)) {
+            largeShapes.add(shape);
+            return;
+        }
+        for (int cy = cell(bounds.getMinY()); cy <= cell(bounds.getMaxY()); cy++) {
+            for (int cx = cell(bounds.getMinX()); cx <= cell(bounds.getMaxX()); cx++) {
+                long key = key(cx, cy);
+                List<Shape> bucket = cells.get(key);
+                if (bucket == null) {
+                    bucket = new ArrayList<>();
+                    cells.put(key, bucket);
+                }
+                bucket.add(shape);
+            }
+        }
+    }
+
+    /**
+     * Retire une forme de l'index.
+     *
+     * @param shape  La forme à retirer
+     * @param bounds La boîte englobante avec laquelle elle a été indexée
+     */
+    public void remove(Shape shape, BoundingBox bounds) {
+        if (bounds.isEmpty())
+            return;
+        if (isLarge(bounds)) {
+            largeShapes.remove(shape);
+            return;
+        }
+        for (int cy = cell(bounds.getMinY()); cy <= cell(bounds.getMaxY()); cy++) {
+            for (int cx = cell(bounds.getMinX()); cx <= cell(bounds.getMaxX()); cx++) {
+                long key = key(cx, cy);
+                List<Shape> bucket = cells.get(key);
+                if (bucket != null && bucket.remove(shape) && bucket.isEmpty()) {
+                    cells.remove(key);
+                }
+            }
+        }
+    }
+
+    /**
+     * Vide l'index.
+     */
+    public void clear() {
+        cells.clear();
+        largeShapes.clear();
+    }
+
+    /**
+     * Recherche les formes dont la boîte englobante intersecte une région.
+     *
+     * @param region La région recherchée
+     * @param result Liste à laquelle les formes trouvées sont ajoutées, dans
+     *               l'ordre d'insertion dans la couche
+     */
+    public void query(BoundingBox region, List<Shape> result) {
+        if (region.isEmpty())
+            return;
+
+        int start = result.size();
+        int minCx = cell(region.getMinX());
+        int minCy = cell(region.getMinY());
+        for (int cy = minCy; cy <= cell(region.getMaxY()); cy++) {
+            for (int cx = minCx; cx <= cell(region.getMaxX()); cx++) {
+                List<Shape> bucket = cells.get(key(cx, cy));
+                if (bucket == null)
+                    continue;
+                for (Shape shape : bucket) {
+                    BoundingBox bounds = shape.getBounds();
+                    if (!bounds.intersects(region))
+                        continue;
+                    // Une forme présente dans plusieurs cases n'est retenue que dans la
+                    // première case commune à la région et à sa boîte
+                    if (cx == Math.max(minCx, cell(bounds.getMinX()))
+                            && cy == Math.max(minCy, cell(bounds.getMinY()))) {
+                        result.add(shape);
+                    }
+                }
+            }
+        }
+        for (Shape shape : largeShapes) {
+            if (shape.getBounds().intersects(region)) {
+                result.add(shape);
+            }
+        }
+        Collections.sort(result.subList(start, result.size()), BY_ORDER);
+    }
+
+    /**
+     * Estime le nombre de cases parcourues par une requête sur la région.
+     *
+     * @param region La région recherchée
+     * @return Le nombre de cases couvertes par la région
+     */
+    public long cellCount(BoundingBox region) {
+        if (region.isEmpty())
+            return 0;
+        return (long) (cell(region.getMaxX()) - cell(region.getMinX()) + 1)
+                * (cell(region.getMaxY()) - cell(region.getMinY()) + 1);
+    }
+
+    /**
+     * @return Le nombre de cases contenant au moins une forme
+     */
+    public int occupiedCellCount() {
+        return cells.size();
+    }
+
+    private static boolean isLarge(BoundingBox bounds) {
+        long count = (long) (cell(bounds.getMaxX()) - cell(bounds.getMinX()) + 1)
+                * (cell(bounds.getMaxY()) - cell(bounds.getMinY()) + 1);
+        return count > MAX_CELLS_PER_SHAPE;
+    }
+
+    private static int cell(int coordinate) {
+        // Le décalage arithmétique arrondit vers -infini, ce qui convient aux
+        // coordonnées négatives
+        return coordinate >> CELL_SHIFT;
+    }
+
+    private static long key(int cx, int cy) {
+        return ((long) cx << 32) | (cy & 0xFFFFFFFFL);
+    }
+}
\ No newline at end of file
@@ -32,6 +32,7 @@ public class SquareShape extends Shape {
      */
     public void setOrigin(Point origin) {
         this.origin = origin;
+        geometryChanged();
     }
 
     /**
@@ -46,6 +47,27 @@ public class SquareShape extends Shape {
      */
     public void setLength(int length) {
         this.length = length;
+        geometryChanged();
+    }
+
+    @Override
+    protected BoundingBox computeBounds() {
+        if (length <= 0)
+            return BoundingBox.EMPTY;
+        return new BoundingBox(origin.getPosX(), origin.getPosY(),
+                origin.getPosX() + length - 1, origin.getPosY() + length - 1);
+    }
+
+    @Override
+    protected int[] computePath(Transform transform) {
+        if (length <= 0)
+            return new int[0];
+        return RectangleShape.corners(transform, origin.getPosX(), origin.getPosY(), length, length);
+    }
+
+    @Override
+    public boolean isClosed() {
+        return true;
     }
 
     @Override
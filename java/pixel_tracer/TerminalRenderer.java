@@ -0,0 +1,177 @@
+package pixel_tracer;
+
+import java.io.PrintStream;
+
+/**
+ * Affichage d'une zone dans un terminal compatible ANSI, qui ne réécrit que
+ * les cellules modifiées depuis la trame précédente.
+ * <p>
+ * Le curseur est déplacé relativement à la trame affichée : les lignes écrites
+ * sous la trame (invite, messages) doivent être signalées avec
+ * {@link #linesWritten(int)}. Toute sortie dont la hauteur n'est pas connue
+ * doit être suivie d'un appel à {@link #invalidate()}, qui provoque un
+ * réaffichage complet.
+ */
+public class TerminalRenderer {
+    private static final String ESC = "\033[";
+    // En dessous de cet écart, réécrire les cellules inchangées coûte moins cher
+    // qu'une séquence de déplacement du curseur
+    private static final int MIN_GAP = 6;
+
+    private final PrintStream out;
+    private final StringBuilder buffer;
+    private char[] previous;
+    private char[] current;
+    private int width;
+    private int height;
+    private boolean valid;
+    private int linesBelow;
+
+    /**
+     * Crée un afficheur écrivant dans le flux spécifié.
+     *
+     * @param out Le flux du terminal
+     */
+    public TerminalRenderer(PrintStream out) {
+        this.out = out;
+        this.buffer = new StringBuilder();
+        this.previous = new char[0];
+        this.current = new char[0];
+        this.valid = false;
+    }
+
+    /**
+     * Indique si la sortie standard est un terminal capable d'interpréter les
+     * séquences ANSI. La console Windows historique ne les comprend pas ; les
+     * terminaux récents se signalent par des variables d'environnement.
+     *
+     * @return true si l'affichage différentiel peut être utilisé
+     */
+    public static boolean isSupported() {
+        if (System.console() == null)
+            return false;
+        String os = System.getProperty("os.name").toLowerCase();
+        if (!os.contains("win"))
+            return true;
+        return System.getenv("WT_SESSION") != null || System.getenv("TERM") != null
+                || "ON".equalsIgnoreCase(System.getenv("ConEmuANSI"));
+    }
+
+    /**
+     * Force un réaffichage complet à la prochaine trame, par exemple après un
+     * effacement de l'écran ou une sortie de hauteur inconnue.
+     */
+    public void invalidate() {
+        valid = false;
+    }
+
+    /**
+     * Signale que des lignes ont été écrites sous la trame depuis son affichage.
+     *
+     * @param lines Le nombre de lignes
+     */
+    public void linesWritten(int lines) {
+        linesBelow += lines;
+    }
+
+    /**
+     * Affiche la grille d'une zone, ou sa vue active. Seules les séries de
+     * cellules qui diffèrent de la trame précédente sont réécrites ; le curseur
+     * est ensuite placé sous la trame et les lignes écrites depuis la trame
+     * précédente sont effacées.
+     *
+     * @param area La zone à afficher
+     */
+    public void present(Area area) {
+        int newWidth = area.getDisplayWidth();
+        int newHeight = area.getDisplayHeight();
+        if (current.length < newWidth * newHeight) {
+            current = new char[newWidth * newHeight];
+        }
+        for (int y = 0; y < newHeight; y++) {
+            area.copyDisplayRow(y, current, y * newWidth);
+        }
+
+        buffer.setLength(0);
+        if (!valid || newWidth != width || newHeight != height) {
+            appendFullFrame(newWidth, newHeight);
+        } else {
+            appendChanges();
+        }
+
+        char[] swap = previous;
+        previous = current;
+        current = swap;
+        width = newWidth;
+        height = newHeight;
+        valid = true;
+        linesBelow = 0;
+
+        out.append(buffer);
+        out.flush();
+    }
+
+    private void appendFullFrame(int newWidth, int newHeight) {
+        String separator = System.lineSeparator();
+        buffer.append(ESC).append("H").append(ESC).append("2J");
+        for (int y = 0; y < newHeight; y++) {
+            buffer.append(current, y * newWidth, newWidth).append(separator);
+        }
+    }
+
+    private void appendChanges() {
+        // Retour en haut à gauche de la trame
+        buffer.append('\r');
+        moveUp(height + linesBelow);
+
+        int cursorX = 0;
+        int cursorY = 0;
+        for (int y = 0; y < height; y++) {
+            int offset = y * width;
+            int x = 0;
+            while (x < width) {
+                if (current[offset + x] == previous[offset + x]) {
+                    x++;
+                    continue;
+                }
+
+                // Début d'une série de cellules modifiées, prolongée tant que les
+                // cellules inchangées intermédiaires sont peu nombreuses
+                int start = x;
+                int end = x + 1;
+                int scan = end;
+                while (scan < width && scan - end < MIN_GAP) {
+                    if (current[offset + scan] != previous[offset + scan]) {
+                        end = scan + 1;
+                    }
+                    scan++;
+                }
+
+                if (y != cursorY) {
+                    buffer.append(ESC).append(y - cursorY).append('B').append('\r');
+                    cursorY = y;
+                    cursorX = 0;
+                }
+                if (start > cursorX) {
+                    buffer.append(ESC).append(start - cursorX).append('C');
+                }
+                buffer.append(current, offset + start, end - start);
+                cursorX = end;
+                x = end;
+            }
+        }
+
+        // Sous la trame, en effaçant l'invite et les messages précédents
+        buffer.append('\r');
+        if (height > cursorY) {
+            buffer.append(ESC).append(height - cursorY).append('B');
+        }
+        buffer.append(ESC).append("J");
+    }
+
+    private void moveUp(int lines) {
+        if (lines > 0) {
+            buffer.append(ESC).append(lines).append('A');
+        }
+    }
+}
\ No newline at end of file
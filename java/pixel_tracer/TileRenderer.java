@@ -0,0 +1,229 @@
+package pixel_tracer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Rendu d'une région d'une zone à partir des masques de couverture des couches.
+ * <p>
+ * Chaque couche garde ses pixels dans un masque mis en cache : seules les
+ * régions modifiées par ses propres formes sont effacées et redessinées.
+ * La région demandée de la grille est ensuite recomposée à partir des masques
+ * des couches visibles ; masquer ou afficher une couche ne coûte donc qu'une
+ * recomposition.
+ * <p>
+ * Lorsque le travail couvre une surface suffisante, il est découpé en tuiles
+ * traitées en parallèle. Chaque forme est rangée dans les tuiles que couvre sa
+ * boîte englobante et chaque tuile est dessinée par son propre rasteriseur,
+ * découpé aux limites de la tuile. Les tuiles sont alignées sur des blocs de
+ * 64 colonnes : elles n'écrivent jamais dans les mêmes mots des masques ni
+ * dans les mêmes cellules de la grille, et le résultat est identique à celui
+ * d'un rendu séquentiel.
+ * <p>
+ * Les formes ne doivent pas être modifiées pendant un rendu.
+ */
+public class TileRenderer {
+    // Multiple de 64 : une tuile couvre des mots entiers des masques
+    static final int TILE_WIDTH = 64;
+    static final int TILE_HEIGHT = 32;
+    // En dessous de cette surface, le découpage en tuiles coûte plus qu'il ne
+    // rapporte
+    static final int PARALLEL_MIN_CELLS = 16384;
+    // Taille de tuile du rendu séquentiel : une seule tuile couvre toute la zone
+    private static final int SINGLE_TILE = 1 << 30;
+
+    private final ForkJoinPool pool;
+    private final Rasterizer rasterizer;
+    // Couches dont le masque est à recalculer, et région à recalculer
+    private final List<Layer> dirtyLayers;
+    private final List<BoundingBox> dirtyRegions;
+    // Formes de chaque couche à recalculer dans chaque tuile, à l'indice
+    // couche * nombre de tuiles + tuile ; réutilisées d'un rendu à l'autre
+    private final List<List<Shape>> bins;
+    private final List<Shape> layerShapes;
+
+    // Rendu en cours
+    private Area area;
+    private BoundingBox region;
+    private BoundingBox extent;
+    private int tileWidth;
+    private int tileHeight;
+    private int firstColumn;
+    private int firstRow;
+    private int columns;
+    private int tileCount;
+
+    /**
+     * Crée un moteur de rendu utilisant le pool commun.
+     */
+    public TileRenderer() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Crée un moteur de rendu utilisant le pool spécifié.
+     *
+     * @param pool Le pool exécutant les tuiles
+     */
+    public TileRenderer(ForkJoinPool pool) {
+        this.pool = pool;
+        this.rasterizer = new Rasterizer();
+        this.dirtyLayers = new ArrayList<>();
+        this.dirtyRegions = new ArrayList<>();
+        this.bins = new ArrayList<>();
+        this.layerShapes = new ArrayList<>();
+    }
+
+    /**
+     * @return Le nombre de fils pouvant dessiner des tuiles simultanément
+     */
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    /**
+     * Met à jour les masques des couches visibles puis recompose une région de
+     * la grille.
+     *
+     * @param area     La zone à rendre
+     * @param region   La région de la grille à recomposer, incluse dans la zone
+     * @param parallel true pour autoriser le rendu en parallèle
+     */
+    public void render(Area area, BoundingBox region, boolean parallel) {
+        this.area = area;
+        this.region = region;
+        extent = region;
+        for (Layer layer : area.getLayers()) {
+            if (!layer.isVisible())
+                continue;
+            BoundingBox damage = layer.takeCoverageDamage(area.getWidth(), area.getHeight());
+            if (!damage.isEmpty()) {
+                dirtyLayers.add(layer);
+                dirtyRegions.add(damage);
+                extent = extent.union(damage);
+            }
+        }
+
+        try {
+            if (extent.isEmpty())
+                return;
+            if (parallel && getParallelism() > 1
+                    && (long) extent.getWidth() * extent.getHeight() >= PARALLEL_MIN_CELLS) {
+                layout(TILE_WIDTH, TILE_HEIGHT);
+                binShapes();
+                pool.invoke(new TileTask(0, tileCount));
+            } else {
+                layout(SINGLE_TILE, SINGLE_TILE);
+                binShapes();
+                renderTile(0, rasterizer);
+            }
+        } finally {
+            for (int i = 0; i < dirtyLayers.size() * tileCount; i++) {
+                bins.get(i).clear();
+            }
+            dirtyLayers.clear();
+            dirtyRegions.clear();
+            this.area = null;
+            this.region = null;
+            tileCount = 0;
+        }
+    }
+
+    /**
+     * Découpe l'étendue du rendu en tuiles alignées sur la taille spécifiée.
+     */
+    private void layout(int width, int height) {
+        tileWidth = width;
+        tileHeight = height;
+        firstColumn = extent.getMinX() / width;
+        firstRow = extent.getMinY() / height;
+        columns = extent.getMaxX() / width - firstColumn + 1;
+        int rows = extent.getMaxY() / height - firstRow + 1;
+        tileCount = columns * rows;
+    }
+
+    /**
+     * Range les formes qui touchent la région à recalculer de chaque couche dans
+     * les tuiles couvertes par leur boîte englobante.
+     */
+    private void binShapes() {
+        int binCount = dirtyLayers.size() * tileCount;
+        while (bins.size() < binCount) {
+            bins.add(new ArrayList<>());
+        }
+
+        for (int k = 0; k < dirtyLayers.size(); k++) {
+            BoundingBox damage = dirtyRegions.get(k);
+            layerShapes.clear();
+            dirtyLayers.get(k).findShapesIn(damage, layerShapes);
+            for (int i = 0; i < layerShapes.size(); i++) {
+                Shape shape = layerShapes.get(i);
+                BoundingBox bounds = shape.getBounds().intersection(damage);
+                int lastColumn = bounds.getMaxX() / tileWidth - firstColumn;
+                int lastRow = bounds.getMaxY() / tileHeight - firstRow;
+                for (int row = bounds.getMinY() / tileHeight - firstRow; row <= lastRow; row++) {
+                    for (int column = bounds.getMinX() / tileWidth - firstColumn; column <= lastColumn; column++) {
+                        bins.get(k * tileCount + row * columns + column).add(shape);
+                    }
+                }
+            }
+        }
+        layerShapes.clear();
+    }
+
+    /**
+     * Recalcule les masques dans une tuile puis recompose la partie de la
+     * région qu'elle contient.
+     *
+     * @param tile       L'indice de la tuile, ligne par ligne
+     * @param rasterizer Le rasteriseur du fil courant
+     */
+    private void renderTile(int tile, Rasterizer rasterizer) {
+        int minX = (firstColumn + tile % columns) * tileWidth;
+        int minY = (firstRow + tile / columns) * tileHeight;
+        BoundingBox bounds = new BoundingBox(minX, minY,
+                minX + (tileWidth - 1), minY + (tileHeight - 1)).intersection(extent);
+
+        for (int k = 0; k < dirtyLayers.size(); k++) {
+            BoundingBox damage = dirtyRegions.get(k).intersection(bounds);
+            if (damage.isEmpty())
+                continue;
+            CoverageMask coverage = dirtyLayers.get(k).getCoverage();
+            coverage.clear(damage);
+            rasterizer.begin(coverage, damage);
+            List<Shape> shapes = bins.get(k * tileCount + tile);
+            for (int i = 0; i < shapes.size(); i++) {
+                rasterizer.drawShape(shapes.get(i));
+            }
+        }
+
+        area.composite(region.intersection(bounds));
+    }
+
+    /**
+     * Tâche dessinant un intervalle de tuiles, divisé récursivement.
+     */
+    private final class TileTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+
+        TileTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                renderTile(from, new Rasterizer());
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new TileTask(from, middle), new TileTask(middle, to));
+        }
+    }
+}
\ No newline at end of file
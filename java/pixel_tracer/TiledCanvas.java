@@ -0,0 +1,228 @@
+package pixel_tracer;
+
+import java.util.Arrays;
+
+/**
+ * Grille découpée en tuiles de taille fixe, allouées à la première écriture
+ * d'un caractère autre que le fond. Une tuile absente ne contient que le
+ * caractère de fond : une grande zone presque vide n'occupe que la mémoire des
+ * tuiles où quelque chose a été dessiné.
+ * <p>
+ * Redimensionner la grille ne fait que replacer les tuiles allouées dans un
+ * nouveau répertoire, et l'effacer ne libère que les tuiles allouées.
+ * <p>
+ * Les tuiles ont la taille de celles de {@link TileRenderer} : les fils d'un
+ * rendu parallèle n'écrivent jamais dans la même tuile, et seule l'allocation
+ * d'une tuile est synchronisée.
+ */
+public class TiledCanvas implements CanvasStorage {
+    static final int TILE_WIDTH = TileRenderer.TILE_WIDTH;
+    static final int TILE_HEIGHT = TileRenderer.TILE_HEIGHT;
+    private static final int SHIFT_X = Integer.numberOfTrailingZeros(TILE_WIDTH);
+    private static final int SHIFT_Y = Integer.numberOfTrailingZeros(TILE_HEIGHT);
+
+    private int width;
+    private int height;
+    private int columns;
+    private char background;
+    // Tuiles rangées ligne par ligne, null si la tuile ne contient que le fond
+    private char[][] tiles;
+    // Indices des tuiles allouées
+    private int[] allocated;
+    private int allocatedCount;
+
+    /**
+     * Crée une grille vide, sans aucune tuile allouée.
+     *
+     * @param width      Largeur de la grille
+     * @param height     Hauteur de la grille
+     * @param background Caractère de fond
+     */
+    public TiledCanvas(int width, int height, char background) {
+        this.width = width;
+        this.height = height;
+        this.background = background;
+        this.columns = tileCount(width, TILE_WIDTH);
+        this.tiles = new char[columns * tileCount(height, TILE_HEIGHT)][];
+        this.allocated = new int[16];
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public char getBackground() {
+        return background;
+    }
+
+    /**
+     * @return Le nombre de tuiles allouées
+     */
+    public int getAllocatedTileCount() {
+        return allocatedCount;
+    }
+
+    @Override
+    public char get(int x, int y) {
+        char[] tile = tiles[tileIndex(x, y)];
+        return tile == null ? background : tile[cellIndex(x, y)];
+    }
+
+    @Override
+    public void set(int x, int y, char value) {
+        int index = tileIndex(x, y);
+        char[] tile = tiles[index];
+        if (tile == null) {
+            if (value == background)
+                return;
+            tile = allocate(index);
+        }
+        tile[cellIndex(x, y)] = value;
+    }
+
+    @Override
+    public void fillRow(int y, int x0, int x1, char value) {
+        int rowStart = (y >> SHIFT_Y) * columns;
+        int rowOffset = (y & (TILE_HEIGHT - 1)) << SHIFT_X;
+        for (int x = x0; x <= x1;) {
+            int end = Math.min(x1, x | (TILE_WIDTH - 1));
+            int index = rowStart + (x >> SHIFT_X);
+            char[] tile = tiles[index];
+            if (tile != null || value != background) {
+                if (tile == null) {
+                    tile = allocate(index);
+                }
+                int from = rowOffset + (x & (TILE_WIDTH - 1));
+                Arrays.fill(tile, from, from + end - x + 1, value);
+            }
+            x = end + 1;
+        }
+    }
+
+    @Override
+    public void readRow(int y, int x0, int x1, char[] dest, int offset) {
+        int rowStart = (y >> SHIFT_Y) * columns;
+        int rowOffset = (y & (TILE_HEIGHT - 1)) << SHIFT_X;
+        for (int x = x0; x <= x1;) {
+            int end = Math.min(x1, x | (TILE_WIDTH - 1));
+            char[] tile = tiles[rowStart + (x >> SHIFT_X)];
+            int to = offset + x - x0;
+            if (tile == null) {
+                Arrays.fill(dest, to, to + end - x + 1, background);
+            } else {
+                System.arraycopy(tile, rowOffset + (x & (TILE_WIDTH - 1)), dest, to, end - x + 1);
+            }
+            x = end + 1;
+        }
+    }
+
+    @Override
+    public void writeRow(int y, int x0, int x1, char[] src, int offset) {
+        int rowStart = (y >> SHIFT_Y) * columns;
+        int rowOffset = (y & (TILE_HEIGHT - 1)) << SHIFT_X;
+        for (int x = x0; x <= x1;) {
+            int end = Math.min(x1, x | (TILE_WIDTH - 1));
+            int index = rowStart + (x >> SHIFT_X);
+            int from = offset + x - x0;
+            int length = end - x + 1;
+            char[] tile = tiles[index];
+            if (tile == null && !isBackground(src, from, length)) {
+                tile = allocate(index);
+            }
+            if (tile != null) {
+                System.arraycopy(src, from, tile, rowOffset + (x & (TILE_WIDTH - 1)), length);
+            }
+            x = end + 1;
+        }
+    }
+
+    @Override
+    public void clear(char background) {
+        this.background = background;
+        for (int i = 0; i < allocatedCount; i++) {
+            tiles[allocated[i]] = null;
+        }
+        allocatedCount = 0;
+    }
+
+    @Override
+    public void resize(int newWidth, int newHeight) {
+        int newColumns = tileCount(newWidth, TILE_WIDTH);
+        int newRows = tileCount(newHeight, TILE_HEIGHT);
+        char[][] newTiles = new char[newColumns * newRows][];
+        int kept = 0;
+        for (int i = 0; i < allocatedCount; i++) {
+            int index = allocated[i];
+            int column = index % columns;
+            int row = index / columns;
+            if (column >= newColumns || row >= newRows)
+                continue;
+            char[] tile = tiles[index];
+            // Les cellules d'une tuile de bord hors de la grille restent au fond
+            int visibleWidth = Math.min(TILE_WIDTH, newWidth - (column << SHIFT_X));
+            int visibleHeight = Math.min(TILE_HEIGHT, newHeight - (row << SHIFT_Y));
+            if (visibleWidth < TILE_WIDTH) {
+                for (int y = 0; y < visibleHeight; y++) {
+                    Arrays.fill(tile, (y << SHIFT_X) + visibleWidth, (y + 1) << SHIFT_X, background);
+                }
+            }
+            Arrays.fill(tile, visibleHeight << SHIFT_X, tile.length, background);
+            int newIndex = row * newColumns + column;
+            newTiles[newIndex] = tile;
+            allocated[kept++] = newIndex;
+        }
+        this.tiles = newTiles;
+        this.allocatedCount = kept;
+        this.columns = newColumns;
+        this.width = newWidth;
+        this.height = newHeight;
+    }
+
+    /**
+     * Alloue une tuile remplie du fond. Synchronisée : deux fils peuvent allouer
+     * des tuiles différentes en même temps.
+     *
+     * @param index Indice de la tuile
+     * @return La tuile
+     */
+    private synchronized char[] allocate(int index) {
+        char[] tile = tiles[index];
+        if (tile == null) {
+            tile = new char[TILE_WIDTH * TILE_HEIGHT];
+            Arrays.fill(tile, background);
+            if (allocatedCount == allocated.length) {
+                allocated = Arrays.copyOf(allocated, allocatedCount * 2);
+            }
+            allocated[allocatedCount++] = index;
+            tiles[index] = tile;
+        }
+        return tile;
+    }
+
+    private boolean isBackground(char[] chars, int from, int length) {
+        for (int i = from; i < from + length; i++) {
+            if (chars[i] != background)
+                return false;
+        }
+        return true;
+    }
+
+    private int tileIndex(int x, int y) {
+        return (y >> SHIFT_Y) * columns + (x >> SHIFT_X);
+    }
+
+    private static int cellIndex(int x, int y) {
+        return ((y & (TILE_HEIGHT - 1)) << SHIFT_X) + (x & (TILE_WIDTH - 1));
+    }
+
+    private static int tileCount(int size, int tileSize) {
+        return (size + tileSize - 1) / tileSize;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,199 @@
+package pixel_tracer;
+
+/**
+ * Transformation affine du plan, immuable. Un point (x, y) devient
+ * (a x + c y + e, b x + d y + f).
+ * <p>
+ * Les sinus et cosinus d'une rotation sont calculés une seule fois, à la
+ * création de la transformation ; l'application à un point ne coûte que
+ * quelques multiplications. Les rotations d'un multiple de 90 degrés sont
+ * exactes, pour qu'une forme tournée d'un quart de tour reste sur la grille.
+ */
+public final class Transform {
+    /** La transformation identité. */
+    public static final Transform IDENTITY = new Transform(1, 0, 0, 1, 0, 0);
+
+    private final double a;
+    private final double b;
+    private final double c;
+    private final double d;
+    private final double e;
+    private final double f;
+
+    private Transform(double a, double b, double c, double d, double e, double f) {
+        this.a = a;
+        this.b = b;
+        this.c = c;
+        this.d = d;
+        this.e = e;
+        this.f = f;
+    }
+
+    /**
+     * @param dx Déplacement horizontal
+     * @param dy Déplacement vertical
+     * @return Une translation
+     */
+    public static Transform translation(double dx, double dy) {
+        return new Transform(1, 0, 0, 1, dx, dy);
+    }
+
+    /**
+     * Crée une rotation autour d'un point. L'axe Y étant orienté vers le bas, un
+     * angle positif tourne dans le sens des aiguilles d'une montre à l'écran.
+     *
+     * @param degrees Angle en degrés
+     * @param cx      Coordonnée X du centre de rotation
+     * @param cy      Coordonnée Y du centre de rotation
+     * @return Une rotation
+     */
+    public static Transform rotation(double degrees, double cx, double cy) {
+        double cos;
+        double sin;
+        double turns = degrees / 90;
+        if (turns == Math.rint(turns)) {
+            // Quart de tour exact : pas d'erreur d'arrondi sur les sommets
+            switch ((int) (((long) turns % 4 + 4) % 4)) {
+                case 0:
+                    cos = 1;
+                    sin = 0;
+                    break;
+                case 1:
+                    cos = 0;
+                    sin = 1;
+                    break;
+                case 2:
+                    cos = -1;
+                    sin = 0;
+                    break;
+                default:
+                    cos = 0;
+                    sin = -1;
+                    break;
+            }
+        } else {
+            double radians = Math.toRadians(degrees);
+            cos = Math.cos(radians);
+            sin = Math.sin(radians);
+        }
+        return new Transform(cos, sin, -sin, cos,
+                cx - cos * cx + sin * cy, cy - sin * cx - cos * cy);
+    }
+
+    /**
+     * @param sx Facteur horizontal
+     * @param sy Facteur vertical
+     * @param cx Coordonnée X du point fixe
+     * @param cy Coordonnée Y du point fixe
+     * @return Une mise à l'échelle autour d'un point
+     */
+    public static Transform scaling(double sx, double sy, double cx, double cy) {
+        return new Transform(sx, 0, 0, sy, cx - sx * cx, cy - sy * cy);
+    }
+
+    /**
+     * Crée une transformation à partir de ses coefficients : un point (x, y)
+     * devient (a x + c y + e, b x + d y + f).
+     *
+     * @param a Coefficient de x dans la nouvelle abscisse
+     * @param b Coefficient de x dans la nouvelle ordonnée
+     * @param c Coefficient de y dans la nouvelle abscisse
+     * @param d Coefficient de y dans la nouvelle ordonnée
+     * @param e Déplacement horizontal
+     * @param f Déplacement vertical
+     * @return La transformation
+     */
+    public static Transform of(double a, double b, double c, double d, double e, double f) {
+        return new Transform(a, b, c, d, e, f);
+    }
+
+    /**
+     * @return Les coefficients a, b, c, d, e et f de la transformation, dans
+     *         un nouveau tableau
+     */
+    public double[] getCoefficients() {
+        return new double[] { a, b, c, d, e, f };
+    }
+
+    /**
+     * Compose deux transformations.
+     *
+     * @param next La transformation appliquée après celle-ci
+     * @return La transformation qui applique celle-ci puis next
+     */
+    public Transform then(Transform next) {
+        return new Transform(
+                next.a * a + next.c * b,
+                next.b * a + next.d * b,
+                next.a * c + next.c * d,
+                next.b * c + next.d * d,
+                next.a * e + next.c * f + next.e,
+                next.b * e + next.d * f + next.f);
+    }
+
+    /**
+     * @return true si la transformation ne modifie aucun point
+     */
+    public boolean isIdentity() {
+        return a == 1 && b == 0 && c == 0 && d == 1 && e == 0 && f == 0;
+    }
+
+    /**
+     * @param x Coordonnée X du point
+     * @param y Coordonnée Y du point
+     * @return La coordonnée X du point transformé
+     */
+    public double transformX(double x, double y) {
+        return a * x + c * y + e;
+    }
+
+    /**
+     * @param x Coordonnée X du point
+     * @param y Coordonnée Y du point
+     * @return La coordonnée Y du point transformé
+     */
+    public double transformY(double x, double y) {
+        return b * x + d * y + f;
+    }
+
+    /**
+     * @return Le plus grand allongement d'un vecteur par la transformation
+     */
+    public double getScale() {
+        // Plus grande valeur singulière de la partie linéaire
+        double p = a * a + b * b + c * c + d * d;
+        double q = a * d - b * c;
+        return Math.sqrt((p + Math.sqrt(Math.max(p * p - 4 * q * q, 0))) / 2);
+    }
+
+    /**
+     * @return L'angle en degrés de l'image de l'axe X
+     */
+    public double getRotation() {
+        return Math.toDegrees(Math.atan2(b, a));
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof Transform))
+            return false;
+        Transform t = (Transform) other;
+        return a == t.a && b == t.b && c == t.c && d == t.d && e == t.e && f == t.f;
+    }
+
+    @Override
+    public int hashCode() {
+        long h = Double.doubleToLongBits(a);
+        h = 31 * h + Double.doubleToLongBits(b);
+        h = 31 * h + Double.doubleToLongBits(c);
+        h = 31 * h + Double.doubleToLongBits(d);
+        h = 31 * h + Double.doubleToLongBits(e);
+        h = 31 * h + Double.doubleToLongBits(f);
+        return (int) (h ^ (h >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        return "[" + a + " " + c + " " + e + ", " + b + " " + d + " " + f + "]";
+    }
+}
\ No newline at end of file
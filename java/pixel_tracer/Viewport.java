@@ -0,0 +1,155 @@
+package pixel_tracer;
+
+/**
+ * Fenêtre d'affichage sur une zone plus grande que l'écran, immuable.
+ * <p>
+ * Une vue couvre width x height caractères à l'écran ; son coin supérieur
+ * gauche est la cellule (x, y) de la zone. Au niveau de zoom n positif, chaque
+ * cellule de la zone occupe un carré de 2^n caractères ; au niveau n négatif,
+ * chaque caractère résume un carré de 2^-n cellules, et il est rempli dès que
+ * l'une d'elles l'est.
+ */
+public final class Viewport {
+    /** Niveau de zoom minimal : un caractère pour 8 x 8 cellules. */
+    public static final int MIN_ZOOM = -3;
+    /** Niveau de zoom maximal : 8 x 8 caractères par cellule. */
+    public static final int MAX_ZOOM = 3;
+
+    private final int x;
+    private final int y;
+    private final int width;
+    private final int height;
+    private final int zoom;
+
+    /**
+     * Crée une vue sans zoom.
+     *
+     * @param x      Colonne de la zone affichée en haut à gauche
+     * @param y      Ligne de la zone affichée en haut à gauche
+     * @param width  Largeur de la vue, en caractères
+     * @param height Hauteur de la vue, en caractères
+     */
+    public Viewport(int x, int y, int width, int height) {
+        this(x, y, width, height, 0);
+    }
+
+    /**
+     * Crée une vue.
+     *
+     * @param x      Colonne de la zone affichée en haut à gauche
+     * @param y      Ligne de la zone affichée en haut à gauche
+     * @param width  Largeur de la vue, en caractères
+     * @param height Hauteur de la vue, en caractères
+     * @param zoom   Niveau de zoom, entre {@link #MIN_ZOOM} et {@link #MAX_ZOOM}
+     * @throws IllegalArgumentException si la taille ou le zoom sont invalides
+     */
+    public Viewport(int x, int y, int width, int height, int zoom) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Taille de vue invalide: " + width + "x" + height);
+        }
+        if (zoom < MIN_ZOOM || zoom > MAX_ZOOM) {
+            throw new IllegalArgumentException("Niveau de zoom invalide: " + zoom);
+        }
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+        this.zoom = zoom;
+    }
+
+    /**
+     * @return La colonne de la zone affichée en haut à gauche
+     */
+    public int getX() {
+        return x;
+    }
+
+    /**
+     * @return La ligne de la zone affichée en haut à gauche
+     */
+    public int getY() {
+        return y;
+    }
+
+    /**
+     * @return La largeur de la vue, en caractères
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @return La hauteur de la vue, en caractères
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return Le niveau de zoom
+     */
+    public int getZoom() {
+        return zoom;
+    }
+
+    /**
+     * @return Le nombre de caractères par cellule sur chaque axe, 1 sauf en
+     *         zoom avant
+     */
+    public int getCharsPerCell() {
+        return zoom > 0 ? 1 << zoom : 1;
+    }
+
+    /**
+     * @return Le nombre de cellules par caractère sur chaque axe, 1 sauf en
+     *         zoom arrière
+     */
+    public int getCellsPerChar() {
+        return zoom < 0 ? 1 << -zoom : 1;
+    }
+
+    /**
+     * @return Les cellules de la zone affichées par la vue, qui peuvent
+     *         déborder de la zone
+     */
+    public BoundingBox getWindow() {
+        return new BoundingBox(x, y, x + windowSize(width, zoom) - 1, y + windowSize(height, zoom) - 1);
+    }
+
+    /**
+     * @param dx Déplacement horizontal, en cellules de la zone
+     * @param dy Déplacement vertical, en cellules de la zone
+     * @return La vue déplacée
+     */
+    public Viewport pan(int dx, int dy) {
+        return new Viewport(x + dx, y + dy, width, height, zoom);
+    }
+
+    /**
+     * Change le niveau de zoom en gardant le centre de la vue en place.
+     *
+     * @param level Nouveau niveau, ramené entre {@link #MIN_ZOOM} et
+     *              {@link #MAX_ZOOM}
+     * @return La vue zoomée
+     */
+    public Viewport zoom(int level) {
+        int clamped = Math.max(MIN_ZOOM, Math.min(MAX_ZOOM, level));
+        int newX = x + (windowSize(width, zoom) - windowSize(width, clamped)) / 2;
+        int newY = y + (windowSize(height, zoom) - windowSize(height, clamped)) / 2;
+        return new Viewport(newX, newY, width, height, clamped);
+    }
+
+    /**
+     * @param size  Taille de la vue en caractères
+     * @param level Niveau de zoom
+     * @return Le nombre de cellules couvertes par la vue sur cet axe
+     */
+    private static int windowSize(int size, int level) {
+        return level >= 0 ? (size + (1 << level) - 1) >> level : size << -level;
+    }
+
+    @Override
+    public String toString() {
+        return "Viewport[origin=(" + x + ", " + y + "), size=" + width + "x" + height + ", zoom=" + zoom + "]";
+    }
+}
\ No newline at end of file
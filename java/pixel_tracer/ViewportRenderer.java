@@ -0,0 +1,127 @@
+package pixel_tracer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Rendu de la vue active d'une zone.
+ * <p>
+ * Seules les formes dont la boîte englobante touche la fenêtre affichée sont
+ * dessinées, dans un masque de la taille de la fenêtre : le coût d'un rendu
+ * dépend de la vue et non de la taille de la zone. Le rasteriseur découpe
+ * chaque tracé à la fenêtre avant de le parcourir, si bien qu'une longue ligne
+ * qui la traverse ne coûte que ses cellules visibles.
+ * <p>
+ * Le masque est ensuite rééchantillonné selon le niveau de zoom : chaque
+ * cellule est agrandie en zoom avant, et chaque carré de cellules résumé en un
+ * caractère en zoom arrière. Les caractères hors de la zone sont des espaces.
+ */
+public class ViewportRenderer {
+    private final Rasterizer rasterizer;
+    private final List<Shape> shapes;
+    private CoverageMask mask;
+
+    /**
+     * Crée un moteur de rendu de vue.
+     */
+    public ViewportRenderer() {
+        this.rasterizer = new Rasterizer();
+        this.shapes = new ArrayList<>();
+    }
+
+    /**
+     * Dessine la vue active d'une zone dans son tampon d'affichage.
+     *
+     * @param area La zone, dont la vue ne doit pas être null
+     */
+    public void render(Area area) {
+        Viewport viewport = area.getViewport();
+        BoundingBox visible = viewport.getWindow().intersection(area.getBounds());
+        char[] view = area.takeViewBuffer();
+        if (visible.isEmpty()) {
+            Arrays.fill(view, ' ');
+            return;
+        }
+
+        if (mask == null || mask.getWidth() != visible.getWidth() || mask.getHeight() != visible.getHeight()) {
+            mask = new CoverageMask(visible.getWidth(), visible.getHeight());
+        } else {
+            mask.clearAll();
+        }
+        rasterizer.begin(mask, visible, visible.getMinX(), visible.getMinY());
+        try {
+            for (Layer layer : area.getLayers()) {
+                if (!layer.isVisible())
+                    continue;
+                layer.findShapesIn(visible, shapes);
+                for (int i = 0; i < shapes.size(); i++) {
+                    rasterizer.drawShape(shapes.get(i));
+                }
+                shapes.clear();
+            }
+        } finally {
+            shapes.clear();
+        }
+
+        if (viewport.getZoom() >= 0) {
+            magnify(area, viewport, visible, view);
+        } else {
+            reduce(area, viewport, visible, view);
+        }
+    }
+
+    /**
+     * Rééchantillonne le masque sans zoom ou en zoom avant : chaque caractère
+     * reprend la cellule qu'il agrandit.
+     */
+    private void magnify(Area area, Viewport viewport, BoundingBox visible, char[] view) {
+        int scale = viewport.getCharsPerCell();
+        int width = viewport.getWidth();
+        char fillChar = area.getFillChar();
+        char emptyChar = area.getEmptyChar();
+        for (int sy = 0; sy < viewport.getHeight(); sy++) {
+            int y = viewport.getY() + sy / scale;
+            int offset = sy * width;
+            for (int sx = 0; sx < width; sx++) {
+                int x = viewport.getX() + sx / scale;
+                char c = ' ';
+                if (visible.contains(x, y)) {
+                    c = mask.get(x - visible.getMinX(), y - visible.getMinY()) ? fillChar : emptyChar;
+                }
+                view[offset + sx] = c;
+            }
+        }
+    }
+
+    /**
+     * Rééchantillonne le masque en zoom arrière : un caractère est rempli dès
+     * qu'une cellule du carré qu'il résume l'est.
+     */
+    private void reduce(Area area, Viewport viewport, BoundingBox visible, char[] view) {
+        int scale = viewport.getCellsPerChar();
+        int width = viewport.getWidth();
+        char fillChar = area.getFillChar();
+        char emptyChar = area.getEmptyChar();
+        for (int sy = 0; sy < viewport.getHeight(); sy++) {
+            int minY = Math.max(viewport.getY() + sy * scale, visible.getMinY());
+            int maxY = Math.min(viewport.getY() + sy * scale + scale - 1, visible.getMaxY());
+            int offset = sy * width;
+            for (int sx = 0; sx < width; sx++) {
+                int minX = Math.max(viewport.getX() + sx * scale, visible.getMinX());
+                int maxX = Math.min(viewport.getX() + sx * scale + scale - 1, visible.getMaxX());
+                if (minX > maxX || minY > maxY) {
+                    view[offset + sx] = ' ';
+                    continue;
+                }
+                boolean covered = false;
+                for (int y = minY; y <= maxY && !covered; y++) {
+                    for (int x = minX; x <= maxX && !covered; x++) {
+                        covered = mask.get(x - visible.getMinX(), y - visible.getMinY());
+                    }
+                }
+                view[offset + sx] = covered ? fillChar : emptyChar;
+            }
+        }
+    }
+}
\ No newline at end of file